@@ -0,0 +1,335 @@
+package com.compiler.lexer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.dfa.DfaState;
+import com.compiler.lexer.nfa.FlatNfa;
+import com.compiler.lexer.nfa.NFA;
+
+/**
+ * AlphabetPartition
+ * -----------------
+ * Splits the input alphabet into equivalence classes: two characters belong
+ * to the same class when no transition of the automaton can tell them apart.
+ * Subset construction and minimization then only need to process one
+ * representative per class instead of every character of the alphabet.
+ * <p>
+ * Classes are numbered 0..k-1. Characters outside the alphabet, or without
+ * any transition, have no class ({@link #classOf(char)} returns -1).
+ * Internally the partition is stored as sorted character segments.
+ */
+public final class AlphabetPartition {
+    /**
+     * Class returned for characters that never have a transition.
+     */
+    public static final int NO_CLASS = -1;
+
+    private final char[] segmentStart;
+    private final int[] segmentClass;
+    private final int classCount;
+    private final char[] representatives;
+
+    private AlphabetPartition(char[] segmentStart, int[] segmentClass, int classCount) {
+        this.segmentStart = segmentStart;
+        this.segmentClass = segmentClass;
+        this.classCount = classCount;
+        this.representatives = new char[classCount];
+        boolean[] seen = new boolean[classCount];
+        for (int i = 0; i < segmentStart.length; i++) {
+            int cls = segmentClass[i];
+            if (cls != NO_CLASS && !seen[cls]) {
+                seen[cls] = true;
+                representatives[cls] = segmentStart[i];
+            }
+        }
+    }
+
+    /**
+     * Computes the character classes induced by the transition symbols of an NFA.
+     *
+     * @param nfa      The NFA whose transitions define the classes.
+     * @param alphabet The input alphabet, or null to keep every character.
+     * @return The partition of the alphabet.
+     */
+    public static AlphabetPartition fromNfa(NFA nfa, Set<Character> alphabet) {
+        return fromNfa(nfa.flatten(), alphabet);
+    }
+
+    /**
+     * Computes the character classes induced by the transition symbols of a flattened NFA.
+     *
+     * @param nfa      The flat view of the NFA whose transitions define the classes.
+     * @param alphabet The input alphabet, or null to keep every character.
+     * @return The partition of the alphabet.
+     */
+    public static AlphabetPartition fromNfa(FlatNfa nfa, Set<Character> alphabet) {
+        int count = nfa.getSymbolEdgeCount();
+        char[] lo = new char[count];
+        char[] hi = new char[count];
+        for (int e = 0; e < count; e++) {
+            lo[e] = nfa.edgeLo(e);
+            hi[e] = nfa.edgeHi(e);
+        }
+        return fromRanges(lo, hi, alphabet);
+    }
+
+    /**
+     * Computes the character classes induced by a list of inclusive character
+     * ranges: two characters are equivalent when exactly the same ranges
+     * contain them.
+     *
+     * @param lo       The lowest character of each range.
+     * @param hi       The highest character of each range.
+     * @param alphabet The input alphabet, or null to keep every character.
+     * @return The partition of the alphabet.
+     */
+    public static AlphabetPartition fromRanges(char[] lo, char[] hi, Set<Character> alphabet) {
+        // Step 1: Collect the distinct intervals
+        TreeSet<Long> intervals = new TreeSet<>();
+        for (int e = 0; e < lo.length; e++) {
+            intervals.add(((long) lo[e] << 16) | hi[e]);
+        }
+
+        // Step 2: Elementary segments between interval boundaries
+        TreeSet<Integer> bounds = new TreeSet<>();
+        bounds.add(0);
+        for (long interval : intervals) {
+            bounds.add((int) (interval >>> 16));
+            bounds.add((int) (interval & 0xFFFF) + 1);
+        }
+        bounds.remove(Character.MAX_VALUE + 1);
+        int[] starts = bounds.stream().mapToInt(Integer::intValue).toArray();
+
+        // Step 3: Signature of a segment = set of intervals covering it
+        BitSet[] signatures = new BitSet[starts.length];
+        for (int i = 0; i < starts.length; i++) signatures[i] = new BitSet();
+        int label = 0;
+        for (long interval : intervals) {
+            int first = (int) (interval >>> 16);
+            int last = (int) (interval & 0xFFFF);
+            for (int i = Arrays.binarySearch(starts, first); i < starts.length && starts[i] <= last; i++) {
+                signatures[i].set(label);
+            }
+            label++;
+        }
+        Map<BitSet, Integer> classes = new HashMap<>();
+        int[] classes0 = new int[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            classes0[i] = signatures[i].isEmpty()
+                ? NO_CLASS
+                : classes.computeIfAbsent(signatures[i], k -> classes.size());
+        }
+
+        AlphabetPartition full = build(starts, classes0);
+        return alphabet == null ? full : full.restrictTo(alphabet);
+    }
+
+    /**
+     * Computes the character classes of a DFA: two characters are equivalent
+     * when they lead to the same target in every state.
+     *
+     * @param dfa      The DFA whose transitions define the classes.
+     * @param alphabet The input alphabet, or null to keep every character.
+     * @return The partition of the alphabet.
+     */
+    public static AlphabetPartition fromDfa(DFA dfa, Set<Character> alphabet) {
+        // Number every state: the listed ones plus anything reachable from the start
+        Map<DfaState, Integer> index = new IdentityHashMap<>();
+        List<DfaState> states = new ArrayList<>();
+        ArrayDeque<DfaState> queue = new ArrayDeque<>();
+        for (DfaState state : dfa.allStates) {
+            if (index.putIfAbsent(state, states.size()) == null) states.add(state);
+        }
+        if (index.putIfAbsent(dfa.startState, states.size()) == null) states.add(dfa.startState);
+        queue.addAll(states);
+        while (!queue.isEmpty()) {
+            for (DfaState target : queue.poll().getTransitions().values()) {
+                if (index.putIfAbsent(target, states.size()) == null) {
+                    states.add(target);
+                    queue.add(target);
+                }
+            }
+        }
+
+        // Signature of a character = its (state, target) pairs, in state order
+        TreeMap<Character, IntList> signatures = new TreeMap<>();
+        for (int s = 0; s < states.size(); s++) {
+            for (Map.Entry<Character, DfaState> entry : states.get(s).getTransitions().entrySet()) {
+                if (alphabet != null && !alphabet.contains(entry.getKey())) continue;
+                IntList signature = signatures.computeIfAbsent(entry.getKey(), k -> new IntList());
+                signature.add(s);
+                signature.add(index.get(entry.getValue()));
+            }
+        }
+
+        Map<IntList, Integer> classes = new HashMap<>();
+        int[] starts = new int[signatures.size() * 2 + 1];
+        int[] classes0 = new int[starts.length];
+        int count = 0;
+        for (Map.Entry<Character, IntList> entry : signatures.entrySet()) {
+            int c = entry.getKey();
+            starts[count] = c;
+            classes0[count++] = classes.computeIfAbsent(entry.getValue(), k -> classes.size());
+            starts[count] = c + 1;
+            classes0[count++] = NO_CLASS;
+        }
+        return fromCharSegments(starts, classes0, count);
+    }
+
+    /**
+     * Keeps only the characters of the given alphabet and renumbers the classes.
+     */
+    private AlphabetPartition restrictTo(Set<Character> alphabet) {
+        char[] sorted = new char[alphabet.size()];
+        int n = 0;
+        for (char c : alphabet) sorted[n++] = c;
+        Arrays.sort(sorted);
+
+        int[] starts = new int[n * 2 + 1];
+        int[] classes0 = new int[starts.length];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            starts[count] = sorted[i];
+            classes0[count++] = classOf(sorted[i]);
+            starts[count] = sorted[i] + 1;
+            classes0[count++] = NO_CLASS;
+        }
+        return fromCharSegments(starts, classes0, count);
+    }
+
+    /**
+     * Builds a partition from possibly overlapping single-character segments
+     * listed in ascending order; later entries at the same start win.
+     */
+    private static AlphabetPartition fromCharSegments(int[] starts, int[] classes0, int count) {
+        int[] s = new int[count + 1];
+        int[] c = new int[count + 1];
+        int n = 0;
+        s[n] = 0;
+        c[n++] = NO_CLASS;
+        for (int i = 0; i < count; i++) {
+            if (starts[i] > Character.MAX_VALUE) break;
+            if (s[n - 1] == starts[i]) {
+                c[n - 1] = classes0[i];
+            } else {
+                s[n] = starts[i];
+                c[n++] = classes0[i];
+            }
+        }
+        return build(Arrays.copyOf(s, n), Arrays.copyOf(c, n));
+    }
+
+    /**
+     * Merges adjacent segments of the same class and renumbers the classes
+     * in order of first appearance.
+     */
+    private static AlphabetPartition build(int[] starts, int[] classes0) {
+        Map<Integer, Integer> renumber = new HashMap<>();
+        char[] segStart = new char[starts.length];
+        int[] segClass = new int[starts.length];
+        int n = 0;
+        for (int i = 0; i < starts.length; i++) {
+            int cls = classes0[i] == NO_CLASS
+                ? NO_CLASS
+                : renumber.computeIfAbsent(classes0[i], k -> renumber.size());
+            if (n > 0 && segClass[n - 1] == cls) continue;
+            segStart[n] = (char) starts[i];
+            segClass[n++] = cls;
+        }
+        return new AlphabetPartition(Arrays.copyOf(segStart, n), Arrays.copyOf(segClass, n), renumber.size());
+    }
+
+    /**
+     * Returns the number of character classes.
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * Returns the class of a character.
+     *
+     * @param symbol The input character.
+     * @return The class ID, or {@link #NO_CLASS} if the character has no class.
+     */
+    public int classOf(char symbol) {
+        int i = Arrays.binarySearch(segmentStart, symbol);
+        if (i < 0) i = -i - 2;
+        return segmentClass[i];
+    }
+
+    /**
+     * Returns the smallest character of a class.
+     */
+    public char getRepresentative(int cls) {
+        return representatives[cls];
+    }
+
+    /**
+     * Returns the highest character that belongs to some class, or -1 if there is none.
+     */
+    public int getMaxChar() {
+        for (int i = segmentStart.length - 1; i >= 0; i--) {
+            if (segmentClass[i] != NO_CLASS) {
+                return i + 1 < segmentStart.length ? segmentStart[i + 1] - 1 : Character.MAX_VALUE;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns all characters of a class, in ascending order.
+     */
+    public char[] getMembers(int cls) {
+        StringBuilder members = new StringBuilder();
+        for (int i = 0; i < segmentStart.length; i++) {
+            if (segmentClass[i] != cls) continue;
+            int end = i + 1 < segmentStart.length ? segmentStart[i + 1] : Character.MAX_VALUE + 1;
+            for (int c = segmentStart[i]; c < end; c++) members.append((char) c);
+        }
+        return members.toString().toCharArray();
+    }
+
+    @Override
+    public String toString() {
+        return "AlphabetPartition{classes=" + classCount + ", segments=" + segmentStart.length + "}";
+    }
+
+    /**
+     * Minimal growable int list with value semantics, used as a signature key.
+     */
+    private static final class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof IntList)) return false;
+            IntList other = (IntList) o;
+            return Arrays.equals(data, 0, size, other.data, 0, other.size);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = 1;
+            for (int i = 0; i < size; i++) h = 31 * h + data[i];
+            return h;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.compiler.lexer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.regex.RegexParser;
+
+/**
+ * AutomatonCache
+ * --------------
+ * Thread-safe cache of compiled, minimized automata keyed by pattern text,
+ * token type and alphabet, with least-recently-used eviction once the
+ * capacity is reached. Repeated compilations of the same pattern become a
+ * map lookup, and concurrent requests for a pattern that is still being
+ * compiled wait for that single compilation instead of repeating it.
+ * <p>
+ * Only immutable automata are shared between callers and threads: the
+ * {@link PackedDfa} tables are returned as cached, while every call to
+ * {@link #getDfa} returns a private copy of the cached {@link DFA} graph,
+ * whose states are mutable.
+ *
+ * Example usage:
+ * <pre>
+ *     AutomatonCache cache = AutomatonCache.shared();
+ *     boolean valid = cache.matches("[0-9]+(\\.[0-9]+)?", input);
+ * </pre>
+ */
+public final class AutomatonCache {
+    /**
+     * Capacity of the shared cache.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final AutomatonCache SHARED = new AutomatonCache(DEFAULT_CAPACITY);
+
+    private final int capacity;
+    private final Map<Key, CompletableFuture<Object>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity Maximum number of automata kept.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public AutomatonCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<Object>> eldest) {
+                if (size() <= AutomatonCache.this.capacity) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache shared by the whole process.
+     */
+    public static AutomatonCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the minimized packed DFA of a regex, over every character.
+     *
+     * @param regex     The regular expression.
+     * @param tokenType The token type of the accepting states, or null.
+     * @return The cached or newly compiled table.
+     */
+    public PackedDfa compile(String regex, String tokenType) {
+        return (PackedDfa) get(new Key("regex", regex, tokenType, null), () ->
+            HopcroftMinimizer.minimize(NfaToDfaConverter.convertToPacked(new RegexParser(tokenType).parse(regex))));
+    }
+
+    /**
+     * Returns the minimized packed DFA of a regex without token type.
+     */
+    public PackedDfa compile(String regex) {
+        return compile(regex, null);
+    }
+
+    /**
+     * Returns the minimized packed DFA of a lexer specification.
+     */
+    public PackedDfa compile(LexerSpec spec) {
+        return (PackedDfa) get(new Key("spec", spec.getFingerprint(), null, null), spec::compile);
+    }
+
+    /**
+     * Returns the minimized DFA of a regex over an alphabet. The DFA is
+     * built once and copied for every caller, who may modify the copy.
+     *
+     * @param regex     The regular expression.
+     * @param tokenType The token type of the accepting states, or null.
+     * @param alphabet  The input alphabet.
+     * @return A copy of the cached or newly built DFA.
+     */
+    public DFA getDfa(String regex, String tokenType, Set<Character> alphabet) {
+        DFA cached = (DFA) get(new Key("dfa", regex, tokenType, alphabet), () -> HopcroftMinimizer.minimizeDfa(
+            NfaToDfaConverter.convertNfaToDfa(new RegexParser(tokenType).parse(regex), alphabet), alphabet));
+        return cached.copy();
+    }
+
+    /**
+     * Checks if a regex matches a whole string, compiling the regex at most once.
+     */
+    public boolean matches(String regex, String input) {
+        return new DfaSimulator().simulate(compile(regex), input);
+    }
+
+    /**
+     * Looks up an entry, compiling it on a miss. The lock is only held for
+     * the map operations; the compilation runs in the first requesting thread.
+     */
+    private Object get(Key key, Supplier<Object> compiler) {
+        CompletableFuture<Object> future;
+        boolean owner = false;
+        synchronized (entries) {
+            future = entries.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                entries.put(key, future);
+                owner = true;
+            }
+        }
+        if (!owner) {
+            hits.increment();
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        misses.increment();
+        try {
+            Object automaton = compiler.get();
+            future.complete(automaton);
+            return automaton;
+        } catch (RuntimeException | Error e) {
+            // Do not cache failures: waiting threads get the error, later calls retry
+            synchronized (entries) {
+                entries.remove(key, future);
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that compiled an automaton.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of automata evicted to respect the capacity.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of cached automata.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the maximum number of cached automata.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Removes every cached automaton (statistics are kept).
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AutomatonCache{size=" + size() + ", capacity=" + capacity + ", hits=" + getHits()
+            + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "}";
+    }
+
+    /**
+     * Cache key: what is compiled, from which text, with which options.
+     */
+    private static final class Key {
+        private final String kind;
+        private final String text;
+        private final String tokenType;
+        private final String alphabet;
+
+        Key(String kind, String text, String tokenType, Set<Character> alphabet) {
+            this.kind = kind;
+            this.text = Objects.requireNonNull(text, "pattern");
+            this.tokenType = tokenType;
+            this.alphabet = alphabet == null ? null : sorted(alphabet);
+        }
+
+        private static String sorted(Set<Character> alphabet) {
+            StringBuilder sb = new StringBuilder(alphabet.size());
+            for (char c : new TreeSet<>(alphabet)) sb.append(c);
+            return sb.toString();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return kind.equals(other.kind) && text.equals(other.text)
+                && Objects.equals(tokenType, other.tokenType) && Objects.equals(alphabet, other.alphabet);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, text, tokenType, alphabet);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.compiler.lexer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import com.compiler.lexer.dfa.TransitionTable;
+
+/**
+ * BatchLexer
+ * ----------
+ * Tokenizes many files concurrently with one shared, immutable transition
+ * table (a {@link com.compiler.lexer.dfa.PackedDfa}). Each file is read with
+ * NIO and lexed into a {@link TokenStream} on a worker thread: a virtual
+ * thread per file when the runtime supports them, otherwise a pool with one
+ * thread per core.
+ * <p>
+ * Results are delivered on the calling thread in completion order. At most
+ * {@code maxInFlight} files are read or lexed at any time (back-pressure),
+ * so memory stays bounded no matter how many paths are given. A file that
+ * cannot be read or tokenized produces a {@link Result} holding the error;
+ * it does not stop the batch.
+ *
+ * Example usage:
+ * <pre>
+ *     try (BatchLexer lexer = new BatchLexer(table)) {
+ *         lexer.lex(paths, result -&gt; compile(result.getPath(), result.getTokens()));
+ *     }
+ * </pre>
+ */
+public class BatchLexer implements AutoCloseable {
+
+    private final Tokenizer tokenizer;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int maxInFlight;
+
+    /**
+     * Constructs a batch lexer on virtual threads (or a bounded pool),
+     * with up to 4 files per core in flight.
+     *
+     * @param table A thread-safe transition table recognizing all token patterns.
+     */
+    public BatchLexer(TransitionTable table) {
+        this(table, defaultExecutor(), true, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a batch lexer on a caller-provided executor, which is not
+     * shut down by {@link #close()}.
+     *
+     * @param table       A thread-safe transition table recognizing all token patterns.
+     * @param executor    The executor that reads and lexes the files.
+     * @param maxInFlight Maximum number of files submitted but not yet delivered.
+     */
+    public BatchLexer(TransitionTable table, ExecutorService executor, int maxInFlight) {
+        this(table, executor, false, maxInFlight);
+    }
+
+    private BatchLexer(TransitionTable table, ExecutorService executor, boolean ownsExecutor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.tokenizer = new Tokenizer(table);
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Uses {@code Executors.newVirtualThreadPerTaskExecutor()} when available
+     * (Java 21+), a fixed pool with one thread per core otherwise.
+     */
+    private static ExecutorService defaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "batch-lexer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Lexes every file and hands each result to a consumer as soon as it is
+     * available. Blocks until all files have been delivered.
+     *
+     * @param files    The files to tokenize (UTF-8).
+     * @param consumer Receives the results, on the calling thread, in completion order.
+     *                 If it throws, the files still being lexed are cancelled.
+     */
+    public void lex(Collection<Path> files, Consumer<Result> consumer) {
+        CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+        Set<Future<Result>> inFlight = new HashSet<>();
+        boolean delivered = false;
+        try {
+            for (Path file : files) {
+                if (inFlight.size() == maxInFlight) {
+                    consumer.accept(take(completion, inFlight)); // back-pressure: wait for a slot
+                }
+                inFlight.add(completion.submit(() -> lexFile(file)));
+            }
+            while (!inFlight.isEmpty()) {
+                consumer.accept(take(completion, inFlight));
+            }
+            delivered = true;
+        } finally {
+            if (!delivered) {
+                // The consumer or a task failed: nobody will collect the remaining results
+                for (Future<Result> future : inFlight) future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Lexes every file and collects the results.
+     *
+     * @param files The files to tokenize (UTF-8).
+     * @return One result per file, in completion order.
+     */
+    public List<Result> lexAll(Collection<Path> files) {
+        List<Result> results = new ArrayList<>(files.size());
+        lex(files, results::add);
+        return results;
+    }
+
+    private static Result take(CompletionService<Result> completion, Set<Future<Result>> inFlight) {
+        try {
+            Future<Result> done = completion.take();
+            inFlight.remove(done);
+            return done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while lexing", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Lexing task failed", e.getCause());
+        }
+    }
+
+    /**
+     * Reads and tokenizes one file, timing both phases.
+     */
+    private Result lexFile(Path file) {
+        long started = System.nanoTime();
+        String text;
+        try {
+            text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return new Result(file, null, e, System.nanoTime() - started, 0, 0);
+        }
+        long read = System.nanoTime();
+        try {
+            TokenStream tokens = tokenizer.tokenizeToStream(text);
+            return new Result(file, tokens, null, read - started, System.nanoTime() - read, text.length());
+        } catch (RuntimeException e) {
+            return new Result(file, null, e, read - started, System.nanoTime() - read, text.length());
+        }
+    }
+
+    /**
+     * Shuts down the executor if this lexer created it.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Outcome of lexing one file: its tokens or the error, plus timings.
+     */
+    public static final class Result {
+        private final Path path;
+        private final TokenStream tokens;
+        private final Exception error;
+        private final long readNanos;
+        private final long lexNanos;
+        private final int length;
+
+        Result(Path path, TokenStream tokens, Exception error, long readNanos, long lexNanos, int length) {
+            this.path = path;
+            this.tokens = tokens;
+            this.error = error;
+            this.readNanos = readNanos;
+            this.lexNanos = lexNanos;
+            this.length = length;
+        }
+
+        /**
+         * Returns the file that was lexed.
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * Checks if the file was read and tokenized without errors.
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * Returns the compact token stream, or null if lexing failed.
+         */
+        public TokenStream getTokenStream() {
+            return tokens;
+        }
+
+        /**
+         * Returns the tokens as a list view, or null if lexing failed.
+         */
+        public List<Token> getTokens() {
+            return tokens == null ? null : tokens.asList();
+        }
+
+        /**
+         * Returns the I/O or lexing error, or null on success.
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        /**
+         * Returns the time spent reading and decoding the file, in nanoseconds.
+         */
+        public long getReadNanos() {
+            return readNanos;
+        }
+
+        /**
+         * Returns the time spent tokenizing, in nanoseconds.
+         */
+        public long getLexNanos() {
+            return lexNanos;
+        }
+
+        /**
+         * Returns the number of characters in the file (0 if it could not be read).
+         */
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{path=" + path + ", tokens=" + (tokens == null ? "-" : tokens.size())
+                + ", error=" + error + ", readNanos=" + readNanos + ", lexNanos=" + lexNanos + "}";
+        }
+    }
+}
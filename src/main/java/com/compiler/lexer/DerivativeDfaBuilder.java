@@ -0,0 +1,334 @@
+package com.compiler.lexer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.dfa.DfaState;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.regex.CharSet;
+import com.compiler.lexer.regex.RegexTerm;
+
+/**
+ * DerivativeDfaBuilder
+ * --------------------
+ * Builds a lexer DFA with Brzozowski derivatives: every DFA state is the
+ * vector of the remaining terms ({@link RegexTerm}) of all rules, and the
+ * transition on a character is the derivative of each term. Because terms
+ * are kept in canonical form, states reached by equivalent terms are
+ * merged on the fly and the DFA is usually minimal or close to it without
+ * running a minimizer.
+ * <p>
+ * Derivatives are computed once per character class of the rules (see
+ * {@link AlphabetPartition}) and memoized by (term, class), so subterms
+ * shared by many states are derived only once. Unlike the NFA-based
+ * constructions, rules may use intersection and complement.
+ * <p>
+ * Rules get IDs in declaration order; the first rule whose term is
+ * nullable wins, as in {@link LexerSpec}.
+ *
+ * Example usage:
+ * <pre>
+ *     RegexTerm keyword = RegexTerm.parse("if|else");
+ *     DFA dfa = new DerivativeDfaBuilder()
+ *         .rule("KEYWORD", keyword)
+ *         .rule("IDENTIFIER", RegexTerm.and(RegexTerm.parse("[a-z]+"), RegexTerm.not(keyword)))
+ *         .skip("WHITESPACE", RegexTerm.parse(" +"))
+ *         .toDfa(alphabet);
+ * </pre>
+ */
+public final class DerivativeDfaBuilder {
+
+    private final List<String> types = new ArrayList<>();
+    private final List<RegexTerm> terms = new ArrayList<>();
+    private final List<Boolean> skips = new ArrayList<>();
+    // Derivatives of the build in progress, by term and class
+    private Map<RegexTerm, RegexTerm[]> cache;
+    private int classCount;
+    private int derivativeCount;
+
+    /**
+     * Creates a builder with the rules of a specification.
+     */
+    public static DerivativeDfaBuilder from(LexerSpec spec) {
+        DerivativeDfaBuilder builder = new DerivativeDfaBuilder();
+        for (LexerSpec.Rule rule : spec.getRules()) {
+            builder.rule(rule.getType(), RegexTerm.parse(rule.getRegex()), rule.isSkip());
+        }
+        return builder;
+    }
+
+    /**
+     * Adds a rule producing tokens.
+     */
+    public DerivativeDfaBuilder rule(String type, RegexTerm term) {
+        return rule(type, term, false);
+    }
+
+    /**
+     * Adds a rule producing tokens from a regular expression.
+     */
+    public DerivativeDfaBuilder rule(String type, String regex) {
+        return rule(type, RegexTerm.parse(regex), false);
+    }
+
+    /**
+     * Adds a rule whose tokens are skipped.
+     */
+    public DerivativeDfaBuilder skip(String type, RegexTerm term) {
+        return rule(type, term, true);
+    }
+
+    /**
+     * Adds a rule.
+     *
+     * @param type The token type.
+     * @param term The strings matched by the rule.
+     * @param skip Whether the tokens are discarded.
+     * @return This builder.
+     */
+    public DerivativeDfaBuilder rule(String type, RegexTerm term, boolean skip) {
+        if (type == null || term == null) {
+            throw new IllegalArgumentException("Rule type and term must not be null");
+        }
+        types.add(type);
+        terms.add(term);
+        skips.add(skip);
+        return this;
+    }
+
+    /**
+     * Builds the DFA of the rules over an alphabet.
+     *
+     * @param alphabet The input alphabet.
+     * @return The DFA, not minimized.
+     */
+    public DFA toDfa(Set<Character> alphabet) {
+        AlphabetPartition classes = classes(alphabet);
+        List<List<RegexTerm>> states = new ArrayList<>();
+        int[] next = explore(classes, states);
+        int k = classes.getClassCount();
+
+        List<DfaState> dfaStates = new ArrayList<>();
+        for (List<RegexTerm> state : states) {
+            DfaState dfaState = new DfaState(new HashSet<>());
+            Token token = selectToken(state);
+            dfaState.setFinal(token != null);
+            if (token != null) dfaState.setToken(token);
+            dfaStates.add(dfaState);
+        }
+        for (int s = 0; s < states.size(); s++) {
+            for (int cls = 0; cls < k; cls++) {
+                int target = next[s * k + cls];
+                if (target == PackedDfa.DEAD) continue;
+                for (char member : classes.getMembers(cls)) {
+                    dfaStates.get(s).addTransition(member, dfaStates.get(target));
+                }
+            }
+        }
+        return new DFA(dfaStates.get(0), dfaStates);
+    }
+
+    /**
+     * Builds the DFA of the rules in packed form, over every character.
+     *
+     * @return The packed DFA, not minimized.
+     */
+    public PackedDfa toPacked() {
+        AlphabetPartition classes = classes(null);
+        List<List<RegexTerm>> states = new ArrayList<>();
+        int[] next = explore(classes, states);
+        int n = states.size();
+        boolean[] accepting = new boolean[n];
+        Token[] tokens = new Token[n];
+        for (int s = 0; s < n; s++) {
+            tokens[s] = selectToken(states.get(s));
+            accepting[s] = tokens[s] != null;
+        }
+        return PackedDfa.fromTables(classes, n, 0, next, accepting, tokens);
+    }
+
+    /**
+     * Returns the number of derivatives computed by the last build; each
+     * (term, class) pair is derived at most once.
+     */
+    public int getDerivativeCount() {
+        return derivativeCount;
+    }
+
+    /**
+     * Character classes of the rules. A complement can match characters
+     * outside every set of the rules, so these get a class of their own.
+     */
+    private AlphabetPartition classes(Set<Character> alphabet) {
+        List<CharSet> sets = new ArrayList<>();
+        boolean complement = false;
+        for (RegexTerm term : terms) {
+            term.collectCharSets(sets);
+            complement |= term.hasComplement();
+        }
+        if (complement) sets.add(CharSet.ALL);
+        int count = 0;
+        for (CharSet set : sets) count += set.getRangeCount();
+        char[] lo = new char[count];
+        char[] hi = new char[count];
+        int i = 0;
+        for (CharSet set : sets) {
+            for (int r = 0; r < set.getRangeCount(); r++, i++) {
+                lo[i] = set.getLo(r);
+                hi[i] = set.getHi(r);
+            }
+        }
+        return AlphabetPartition.fromRanges(lo, hi, alphabet);
+    }
+
+    /**
+     * Explores the term vectors reachable from the rules.
+     *
+     * @param classes The character classes to derive each state by.
+     * @param states  Receives the term vector of every DFA state (index 0 is the start).
+     * @return The transition table {@code next[state * classCount + class]}, or {@link PackedDfa#DEAD}.
+     */
+    private int[] explore(AlphabetPartition classes, List<List<RegexTerm>> states) {
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("At least one rule is required");
+        }
+        int k = classes.getClassCount();
+        cache = new HashMap<>();
+        classCount = k;
+        derivativeCount = 0;
+
+        Map<List<RegexTerm>, Integer> index = new HashMap<>();
+        List<RegexTerm> start = List.copyOf(terms);
+        states.add(start);
+        index.put(start, 0);
+        int[] next = new int[Math.max(1, 16 * k)];
+        for (int current = 0; current < states.size(); current++) {
+            if ((current + 1) * k > next.length) {
+                next = Arrays.copyOf(next, next.length * 2);
+            }
+            List<RegexTerm> state = states.get(current);
+            for (int cls = 0; cls < k; cls++) {
+                List<RegexTerm> target = new ArrayList<>(state.size());
+                boolean dead = true;
+                for (RegexTerm term : state) {
+                    RegexTerm derivative = derive(term, cls, classes.getRepresentative(cls));
+                    dead &= derivative.getKind() == RegexTerm.Kind.NOTHING;
+                    target.add(derivative);
+                }
+                if (dead) {
+                    next[current * k + cls] = PackedDfa.DEAD;
+                    continue;
+                }
+                Integer existing = index.get(target);
+                if (existing == null) {
+                    existing = states.size();
+                    index.put(target, existing);
+                    states.add(target);
+                }
+                next[current * k + cls] = existing;
+            }
+        }
+        cache = null;
+        return next;
+    }
+
+    /**
+     * Returns the derivative of a term by a character class, memoized.
+     * The derivatives of the subterms are computed first, from an explicit
+     * stack: the terms of counted repetitions nest thousands of levels deep.
+     *
+     * @param rep A character of the class; every member gives the same derivative.
+     */
+    private RegexTerm derive(RegexTerm term, int cls, char rep) {
+        RegexTerm known = derived(term, cls);
+        if (known != null) return known;
+        Deque<RegexTerm> pending = new ArrayDeque<>();
+        pending.push(term);
+        while (!pending.isEmpty()) {
+            RegexTerm top = pending.peek();
+            if (derived(top, cls) != null) {
+                pending.pop();
+                continue;
+            }
+            int waiting = pending.size();
+            List<RegexTerm> children = top.getChildren();
+            for (int i = 0; i < children.size(); i++) {
+                // d(rs) only needs d(s) if r is nullable
+                boolean needed = top.getKind() != RegexTerm.Kind.CONCAT || i == 0 || children.get(0).isNullable();
+                if (needed && derived(children.get(i), cls) == null) pending.push(children.get(i));
+            }
+            if (pending.size() == waiting) {
+                pending.pop();
+                cache.computeIfAbsent(top, t -> new RegexTerm[classCount])[cls] = deriveNode(top, cls, rep);
+                derivativeCount++;
+            }
+        }
+        return derived(term, cls);
+    }
+
+    /**
+     * Returns the memoized derivative of a term, or null.
+     */
+    private RegexTerm derived(RegexTerm term, int cls) {
+        RegexTerm[] known = cache.get(term);
+        return known == null ? null : known[cls];
+    }
+
+    /**
+     * Derives a term whose needed subterms are already derived.
+     */
+    private RegexTerm deriveNode(RegexTerm term, int cls, char rep) {
+        List<RegexTerm> children = term.getChildren();
+        switch (term.getKind()) {
+            case NOTHING:
+            case EPSILON:
+                return RegexTerm.nothing();
+            case CHARS:
+                return term.getChars().contains(rep) ? RegexTerm.epsilon() : RegexTerm.nothing();
+            case CONCAT: {
+                // d(rs) = d(r)s | d(s) if r is nullable
+                RegexTerm first = children.get(0);
+                RegexTerm rest = children.get(1);
+                RegexTerm derivative = RegexTerm.concat(derived(first, cls), rest);
+                if (first.isNullable()) derivative = RegexTerm.or(derivative, derived(rest, cls));
+                return derivative;
+            }
+            case STAR:
+                return RegexTerm.concat(derived(children.get(0), cls), term);
+            case OR: {
+                RegexTerm derivative = RegexTerm.nothing();
+                for (RegexTerm child : children) derivative = RegexTerm.or(derivative, derived(child, cls));
+                return derivative;
+            }
+            case AND: {
+                RegexTerm derivative = RegexTerm.anything();
+                for (RegexTerm child : children) derivative = RegexTerm.and(derivative, derived(child, cls));
+                return derivative;
+            }
+            case NOT:
+                return RegexTerm.not(derived(children.get(0), cls));
+            default:
+                throw new IllegalStateException("Unknown kind " + term.getKind());
+        }
+    }
+
+    /**
+     * Selects the token of the first rule whose term is nullable, if any.
+     */
+    private Token selectToken(List<RegexTerm> state) {
+        for (int rule = 0; rule < state.size(); rule++) {
+            if (state.get(rule).isNullable()) {
+                return NfaToDfaConverter.tokenOf(types.get(rule), rule, skips.get(rule));
+            }
+        }
+        return null;
+    }
+}
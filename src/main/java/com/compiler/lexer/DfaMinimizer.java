@@ -23,6 +23,37 @@ public class DfaMinimizer {
             // No initialization needed
         }
 
+    /**
+     * Minimization algorithms available through {@link #minimizeDfa(DFA, Set, Algorithm)}.
+     */
+    public enum Algorithm {
+        /**
+         * Quadratic table-filling algorithm over every pair of states.
+         */
+        TABLE_FILLING,
+
+        /**
+         * Hopcroft's O(n log n) partition refinement, splitting by accepted token.
+         */
+        HOPCROFT
+    }
+
+    /**
+     * Minimizes a given DFA with the selected algorithm.
+     *
+     * @param originalDfa The original DFA to be minimized.
+     * @param alphabet The set of input symbols.
+     * @param algorithm The minimization algorithm to use.
+     * @return A minimized DFA equivalent to the original.
+     */
+    public static DFA minimizeDfa(DFA originalDfa, Set<Character> alphabet, Algorithm algorithm) {
+        switch (algorithm) {
+            case HOPCROFT: return HopcroftMinimizer.minimizeDfa(originalDfa, alphabet);
+            case TABLE_FILLING: return minimizeDfa(originalDfa, alphabet);
+            default: throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+    }
+
     /**
      * Minimizes a given DFA using the table-filling algorithm.
      *
@@ -33,6 +64,13 @@ public class DfaMinimizer {
     public static DFA minimizeDfa(DFA originalDfa, Set<Character> alphabet) {
         List<DfaState> states = originalDfa.allStates;
 
+        // Equivalent characters behave identically, so one representative per class suffices
+        AlphabetPartition classes = AlphabetPartition.fromDfa(originalDfa, alphabet);
+        char[] symbols = new char[classes.getClassCount()];
+        for (int cls = 0; cls < symbols.length; cls++) {
+            symbols[cls] = classes.getRepresentative(cls);
+        }
+
         // Table of distinguishability between state pairs
         Map<Pair, Boolean> table = new java.util.HashMap<>();
 
@@ -55,7 +93,7 @@ public class DfaMinimizer {
                     Pair pair = new Pair(states.get(i), states.get(j));
                     if (Boolean.TRUE.equals(table.get(pair))) continue;
 
-                    for (char symbol : alphabet) {
+                    for (char symbol : symbols) {
                         DfaState t1 = states.get(i).getTransition(symbol);
                         DfaState t2 = states.get(j).getTransition(symbol);
 
@@ -0,0 +1,360 @@
+package com.compiler.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.compiler.lexer.dfa.DfaMatcher;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.dfa.TransitionTable;
+import com.compiler.lexer.regex.RegexNode;
+import com.compiler.lexer.regex.RegexSimplifier;
+
+/**
+ * DfaSearcher
+ * -----------
+ * Finds matches of an automaton inside a larger text (leftmost, then
+ * longest, non-empty and non-overlapping), as opposed to the whole-string
+ * acceptance of {@link DfaSimulator}. Before running the automaton it
+ * jumps to candidate positions using literals that every match must
+ * contain:
+ * <ul>
+ *   <li>a required prefix, read off the DFA (the chain of non-accepting
+ *       states with a single outgoing character): candidates are exactly
+ *       the occurrences of the prefix;</li>
+ *   <li>a required substring, extracted from the regex syntax tree: if it
+ *       does not occur in the rest of the text, the search stops at once,
+ *       and for matches of bounded length, start positions too far before
+ *       its next occurrence are skipped;</li>
+ *   <li>otherwise, only positions whose character leaves the start state
+ *       are tried.</li>
+ * </ul>
+ * Literals are located with {@link String#indexOf(String, int)} on strings
+ * and with Boyer-Moore-Horspool on other character sequences.
+ *
+ * Example usage:
+ * <pre>
+ *     DfaSearcher searcher = new DfaSearcher("ERROR [0-9]+");
+ *     for (DfaSearcher.Match match : searcher.findAll(log)) print(match.getText(log));
+ * </pre>
+ */
+public final class DfaSearcher {
+    // Longest literal taken from the DFA, to bound the prefix walk
+    private static final int MAX_PREFIX = 64;
+
+    private final TransitionTable table;
+    private final String prefix;
+    private final String required;
+    private final int maxLength; // -1 if unbounded or unknown
+    private final int[] requiredShift;
+    private final int[] prefixShift;
+
+    /**
+     * Creates a searcher for a regex; the automaton comes from the shared
+     * {@link AutomatonCache}.
+     *
+     * @param regex The regular expression to search for.
+     */
+    public DfaSearcher(String regex) {
+        RegexNode tree = RegexSimplifier.simplify(RegexNode.parse(regex));
+        this.table = AutomatonCache.shared().compile(regex);
+        this.prefix = requiredPrefix((PackedDfa) table);
+        this.required = requiredLiteral(tree);
+        this.maxLength = maxLength(tree);
+        this.requiredShift = horspoolShifts(required);
+        this.prefixShift = horspoolShifts(prefix);
+    }
+
+    /**
+     * Creates a searcher for a packed DFA. Without a syntax tree, only the
+     * required prefix is used.
+     *
+     * @param table The automaton to search with.
+     */
+    public DfaSearcher(PackedDfa table) {
+        this(table, table);
+    }
+
+    /**
+     * Creates a searcher driving a compiled or otherwise specialized table,
+     * whose literals are read from its packed form.
+     *
+     * @param table  The automaton to run at candidate positions.
+     * @param packed The packed form of the same automaton.
+     */
+    public DfaSearcher(TransitionTable table, PackedDfa packed) {
+        this.table = table;
+        this.prefix = requiredPrefix(packed);
+        this.required = "";
+        this.maxLength = -1;
+        this.requiredShift = horspoolShifts(required);
+        this.prefixShift = horspoolShifts(prefix);
+    }
+
+    /**
+     * Returns the literal every match starts with (possibly empty).
+     */
+    public String getRequiredPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns the longest literal every match contains (possibly empty).
+     */
+    public String getRequiredSubstring() {
+        return required.length() > prefix.length() ? required : prefix;
+    }
+
+    /**
+     * Finds the first match starting at or after a position.
+     *
+     * @param text The text to search.
+     * @param from The position to start searching at.
+     * @return The leftmost-longest match, or null if there is none.
+     */
+    public Match find(CharSequence text, int from) {
+        int length = text.length();
+        int start = Math.max(from, 0);
+        int nextRequired = -1; // next occurrence of the required substring at or after start
+        boolean useRequired = required.length() > prefix.length();
+        while (start < length) {
+            if (useRequired && nextRequired < start) {
+                nextRequired = indexOf(text, required, requiredShift, start);
+                if (nextRequired < 0) return null;
+                // A match of bounded length must reach that occurrence
+                if (maxLength >= 0) start = Math.max(start, nextRequired + required.length() - maxLength);
+            }
+
+            // Jump to the next candidate start
+            if (!prefix.isEmpty()) {
+                start = indexOf(text, prefix, prefixShift, start);
+                if (start < 0) return null;
+            } else {
+                int state = table.getStartState();
+                while (start < length && table.next(state, text.charAt(start)) == TransitionTable.DEAD) start++;
+                if (start >= length) return null;
+            }
+            if (useRequired && nextRequired < start) continue;
+
+            long match = longestMatch(text, start);
+            if (match != DfaMatcher.NO_MATCH) {
+                return new Match(start, DfaMatcher.endOf(match), DfaMatcher.tokenIdOf(match), table);
+            }
+            start++;
+        }
+        return null;
+    }
+
+    /**
+     * Finds every non-overlapping match, from left to right.
+     */
+    public List<Match> findAll(CharSequence text) {
+        List<Match> matches = new ArrayList<>();
+        for (Match match = find(text, 0); match != null; match = find(text, match.getEnd())) {
+            matches.add(match);
+        }
+        return matches;
+    }
+
+    /**
+     * Checks if the text contains a match.
+     */
+    public boolean containsMatch(CharSequence text) {
+        return find(text, 0) != null;
+    }
+
+    /**
+     * Runs the automaton at a position, as in the Tokenizer scan loop.
+     */
+    private long longestMatch(CharSequence text, int start) {
+        if (table instanceof DfaMatcher) return ((DfaMatcher) table).match(text, start);
+        int length = text.length();
+        long result = DfaMatcher.NO_MATCH;
+        int state = table.getStartState();
+        for (int pos = start; pos < length; pos++) {
+            state = table.next(state, text.charAt(pos));
+            if (state == TransitionTable.DEAD) break;
+            if (table.hasSelfLoop(state)) pos = table.skipSelfLoop(state, text, pos + 1, length) - 1;
+            if (table.isFinal(state)) result = DfaMatcher.result(pos + 1, table.getTokenId(state));
+        }
+        return result;
+    }
+
+    /**
+     * Finds a literal at or after a position.
+     */
+    private static int indexOf(CharSequence text, String literal, int[] shift, int from) {
+        if (text instanceof String) return ((String) text).indexOf(literal, from);
+
+        // Boyer-Moore-Horspool: compare right to left, shift by the last character of the window
+        int m = literal.length();
+        int last = m - 1;
+        for (int at = from; at + m <= text.length(); at += shift[text.charAt(at + last) & 0xFF]) {
+            int i = last;
+            while (i >= 0 && text.charAt(at + i) == literal.charAt(i)) i--;
+            if (i < 0) return at;
+        }
+        return -1;
+    }
+
+    /**
+     * Horspool shift table, indexed by the low byte of a character (so a
+     * shift may be shorter than possible, never longer).
+     */
+    private static int[] horspoolShifts(String literal) {
+        int m = literal.length();
+        int[] shift = new int[256];
+        Arrays.fill(shift, Math.max(m, 1));
+        for (int i = 0; i < m - 1; i++) shift[literal.charAt(i) & 0xFF] = m - 1 - i;
+        return shift;
+    }
+
+    /**
+     * Reads the required prefix off a DFA: follow non-accepting states with
+     * exactly one character leaving them.
+     */
+    private static String requiredPrefix(PackedDfa table) {
+        StringBuilder prefix = new StringBuilder();
+        int state = table.getStartState();
+        while (!table.isFinal(state) && prefix.length() < MAX_PREFIX) {
+            int single = -1;
+            int target = TransitionTable.DEAD;
+            for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+                int next = table.next(state, (char) c);
+                if (next == TransitionTable.DEAD) continue;
+                if (single >= 0) return prefix.toString();
+                single = c;
+                target = next;
+            }
+            if (single < 0) break;
+            prefix.append((char) single);
+            state = target;
+        }
+        return prefix.toString();
+    }
+
+    /**
+     * Longest literal that occurs in every string of the tree's language.
+     */
+    private static String requiredLiteral(RegexNode node) {
+        switch (node.getKind()) {
+            case CHARS:
+                return node.getChars().isSingleChar() ? String.valueOf(node.getChars().getLo(0)) : "";
+            case CONCAT: {
+                // Runs of single characters, and the literals required by each factor
+                String best = "";
+                StringBuilder run = new StringBuilder();
+                for (RegexNode child : node.getChildren()) {
+                    if (child.getKind() == RegexNode.Kind.CHARS && child.getChars().isSingleChar()) {
+                        run.append(child.getChars().getLo(0));
+                        continue;
+                    }
+                    best = longer(best, run.toString());
+                    run.setLength(0);
+                    best = longer(best, requiredLiteral(child));
+                }
+                return longer(best, run.toString());
+            }
+            case PLUS:
+                return requiredLiteral(node.getChild());
+            case REPEAT:
+                return node.getMin() > 0 ? requiredLiteral(node.getChild()) : "";
+            default:
+                return ""; // EMPTY, UNION, STAR, OPTIONAL
+        }
+    }
+
+    private static String longer(String a, String b) {
+        return b.length() > a.length() ? b : a;
+    }
+
+    /**
+     * Maximum length of the strings of a tree, or -1 if unbounded.
+     */
+    private static int maxLength(RegexNode node) {
+        switch (node.getKind()) {
+            case EMPTY:
+                return 0;
+            case CHARS:
+                return 1;
+            case CONCAT: {
+                long sum = 0;
+                for (RegexNode child : node.getChildren()) {
+                    int max = maxLength(child);
+                    if (max < 0) return -1;
+                    sum += max;
+                }
+                return sum > Integer.MAX_VALUE ? -1 : (int) sum;
+            }
+            case UNION: {
+                int best = 0;
+                for (RegexNode child : node.getChildren()) {
+                    int max = maxLength(child);
+                    if (max < 0) return -1;
+                    best = Math.max(best, max);
+                }
+                return best;
+            }
+            case OPTIONAL:
+                return maxLength(node.getChild());
+            case REPEAT: {
+                int max = maxLength(node.getChild());
+                if (node.getMax() < 0 && max != 0) return -1;
+                long total = (long) max * Math.max(node.getMax(), 0);
+                return max < 0 || total > Integer.MAX_VALUE ? -1 : (int) total;
+            }
+            default:
+                return maxLength(node.getChild()) == 0 ? 0 : -1; // STAR, PLUS
+        }
+    }
+
+    /**
+     * A match: the text in {@code [start, end)} and the token of its final state.
+     */
+    public static final class Match {
+        private final int start;
+        private final int end;
+        private final int tokenId;
+        private final TransitionTable table;
+
+        Match(int start, int end, int tokenId, TransitionTable table) {
+            this.start = start;
+            this.end = end;
+            this.tokenId = tokenId;
+            this.table = table;
+        }
+
+        /**
+         * Returns the position of the first character.
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the position after the last character.
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * Returns the token of the accepting state, or null.
+         */
+        public Token getToken() {
+            return tokenId == TransitionTable.NO_TOKEN ? null : table.getTokenById(tokenId);
+        }
+
+        /**
+         * Returns the matched text.
+         */
+        public String getText(CharSequence text) {
+            return text.subSequence(start, end).toString();
+        }
+
+        @Override
+        public String toString() {
+            return "Match{start=" + start + ", end=" + end + "}";
+        }
+    }
+}
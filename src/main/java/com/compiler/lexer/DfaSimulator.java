@@ -1,7 +1,9 @@
 package com.compiler.lexer;
 
 import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.dfa.DfaMatcher;
 import com.compiler.lexer.dfa.DfaState;
+import com.compiler.lexer.dfa.TransitionTable;
 
 /**
  * DfaSimulator
@@ -77,4 +79,55 @@ public class DfaSimulator {
             return null; // not a valid token
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Simulates an int-indexed transition table (packed or lazy DFA) on the given input string.
+     * Equivalent to {@link #simulate(DFA, String)} but driven by the table.
+     *
+     * @param table The transition table to simulate.
+     * @param input The input string to test.
+     * @return True if the input is accepted by the DFA, false otherwise.
+     */
+    public boolean simulate(TransitionTable table, String input) {
+        int currentState = table.getStartState();
+
+        for (int i = 0; i < input.length(); i++) {
+            currentState = table.next(currentState, input.charAt(i));
+            if (currentState == TransitionTable.DEAD) {
+                return false;
+            }
+        }
+
+        return table.isFinal(currentState);
+    }
+
+    /**
+     * Simulates an int-indexed transition table and returns the token type if accepted.
+     *
+     * @param table The transition table to simulate.
+     * @param input The input string.
+     * @return The token type if the input is accepted, null otherwise.
+     */
+    public Token recognizeToken(TransitionTable table, String input) {
+        if (table instanceof DfaMatcher && !input.isEmpty()) {
+            // Compiled matcher: accepted iff the longest match spans the whole input
+            long match = ((DfaMatcher) table).match(input, 0);
+            if (match == DfaMatcher.NO_MATCH || DfaMatcher.endOf(match) != input.length()) return null;
+            int id = DfaMatcher.tokenIdOf(match);
+            return id == TransitionTable.NO_TOKEN ? null : table.getTokenById(id);
+        }
+
+        int currentState = table.getStartState();
+
+        for (int i = 0; i < input.length(); i++) {
+            currentState = table.next(currentState, input.charAt(i));
+            if (currentState == TransitionTable.DEAD) {
+                return null; // Invalid transition → reject
+            }
+        }
+
+        if (!table.isFinal(currentState)) return null;
+        int id = table.refineToken(table.getTokenId(currentState), input, 0, input.length());
+        return id == TransitionTable.NO_TOKEN ? null : table.getTokenById(id);
+    }
+}
@@ -0,0 +1,365 @@
+package com.compiler.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.dfa.DfaState;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.regex.CharSet;
+import com.compiler.lexer.regex.RegexNode;
+import com.compiler.lexer.regex.RegexParser;
+import com.compiler.lexer.regex.RegexSimplifier;
+
+/**
+ * DirectDfaBuilder
+ * ----------------
+ * Builds a DFA directly from regex syntax trees with the followpos
+ * (Aho–Sethi–Ullman) construction, as an alternative to Thompson's NFA
+ * followed by {@link NfaToDfaConverter}. Every character-set leaf of the
+ * tree is a position; each rule is terminated by an end marker position
+ * that carries its token. A DFA state is a set of positions, so no
+ * epsilon transitions or epsilon-closures are ever built.
+ * <p>
+ * Token conflicts are resolved as in the subset construction: by rule ID
+ * for {@link LexerSpec} rules, otherwise KEYWORD > IDENTIFIER > NUMBER.
+ * Counted repetitions are expanded into copies of their positions, within
+ * {@link RegexParser#DEFAULT_STATE_BUDGET} positions per repetition.
+ *
+ * Example usage:
+ * <pre>
+ *     PackedDfa table = DirectDfaBuilder.buildPacked(spec);
+ * </pre>
+ */
+public final class DirectDfaBuilder {
+
+    // Positions: character-set leaves (markerType == null) and end markers
+    private final List<CharSet> chars = new ArrayList<>();
+    private final List<String> markerType = new ArrayList<>();
+    private final List<Integer> markerRule = new ArrayList<>();
+    private final List<Boolean> markerSkip = new ArrayList<>();
+    private final List<BitSet> followpos = new ArrayList<>();
+    private BitSet start;
+
+    private DirectDfaBuilder() {
+    }
+
+    /**
+     * Builds the DFA of a single regex.
+     *
+     * @param regex     The regular expression.
+     * @param tokenType The token type of the accepting states, or null.
+     * @param alphabet  The input alphabet.
+     * @return A DFA equivalent to {@code new RegexParser(tokenType).parse(regex)}.
+     */
+    public static DFA build(String regex, String tokenType, Set<Character> alphabet) {
+        DirectDfaBuilder builder = new DirectDfaBuilder();
+        Info root = builder.rule(RegexSimplifier.simplify(RegexNode.parse(regex)), tokenType, -1, false);
+        builder.start = root.first;
+        return builder.toDfa(alphabet);
+    }
+
+    /**
+     * Builds the combined DFA of every rule of a specification.
+     *
+     * @param spec     The lexer specification.
+     * @param alphabet The input alphabet.
+     * @return A DFA equivalent to the subset construction of {@link LexerSpec#toNfa()}.
+     */
+    public static DFA build(LexerSpec spec, Set<Character> alphabet) {
+        return of(spec).toDfa(alphabet);
+    }
+
+    /**
+     * Builds the combined DFA of every rule of a specification in packed
+     * form, over every character. The result is not minimized.
+     *
+     * @param spec The lexer specification.
+     * @return The packed DFA.
+     */
+    public static PackedDfa buildPacked(LexerSpec spec) {
+        DirectDfaBuilder builder = of(spec);
+        AlphabetPartition classes = builder.classes(null);
+        List<BitSet> states = new ArrayList<>();
+        int[] next = builder.explore(classes, states);
+        int n = states.size();
+        boolean[] accepting = new boolean[n];
+        Token[] tokens = new Token[n];
+        for (int s = 0; s < n; s++) {
+            accepting[s] = builder.containsMarker(states.get(s));
+            tokens[s] = builder.selectToken(states.get(s));
+        }
+        return PackedDfa.fromTables(classes, n, 0, next, accepting, tokens);
+    }
+
+    private static DirectDfaBuilder of(LexerSpec spec) {
+        DirectDfaBuilder builder = new DirectDfaBuilder();
+        builder.start = new BitSet();
+        for (LexerSpec.Rule rule : spec.getRules()) {
+            RegexNode tree = RegexSimplifier.simplify(RegexNode.parse(rule.getRegex()));
+            builder.start.or(builder.rule(tree, rule.getType(), rule.getId(), rule.isSkip()).first);
+        }
+        return builder;
+    }
+
+    /**
+     * Adds the positions of {@code tree #} for one rule.
+     */
+    private Info rule(RegexNode tree, String type, int rule, boolean skip) {
+        Info body = walk(tree);
+        int marker = addPosition(null);
+        markerType.set(marker, type);
+        markerRule.set(marker, rule);
+        markerSkip.set(marker, skip);
+        return concat(body, Info.leaf(marker));
+    }
+
+    private int addPosition(CharSet set) {
+        chars.add(set);
+        markerType.add(null);
+        markerRule.add(-1);
+        markerSkip.add(false);
+        followpos.add(new BitSet());
+        return chars.size() - 1;
+    }
+
+    /**
+     * Numbers the positions of a tree and computes nullable, firstpos,
+     * lastpos and the followpos contributions of its nodes.
+     */
+    private Info walk(RegexNode node) {
+        switch (node.getKind()) {
+            case EMPTY:
+                return Info.empty();
+            case CHARS:
+                return Info.leaf(addPosition(node.getChars()));
+            case CONCAT: {
+                Info info = Info.empty();
+                for (RegexNode child : node.getChildren()) info = concat(info, walk(child));
+                return info;
+            }
+            case UNION: {
+                Info info = new Info(false, new BitSet(), new BitSet());
+                for (RegexNode child : node.getChildren()) {
+                    Info alternative = walk(child);
+                    info.nullable |= alternative.nullable;
+                    info.first.or(alternative.first);
+                    info.last.or(alternative.last);
+                }
+                return info;
+            }
+            case STAR:
+                return loop(walk(node.getChild()), true);
+            case PLUS:
+                return loop(walk(node.getChild()), false);
+            case OPTIONAL: {
+                Info info = walk(node.getChild());
+                info.nullable = true;
+                return info;
+            }
+            case REPEAT:
+                return repeat(node.getChild(), node.getMin(), node.getMax());
+            default:
+                throw new IllegalStateException("Unknown kind " + node.getKind());
+        }
+    }
+
+    /**
+     * Expands {@code x{min,max}} into copies of the positions of x:
+     * min mandatory copies, then nested optional ones {@code (x(x)?)?},
+     * or a final {@code x+} / {@code x*} when unbounded.
+     */
+    private Info repeat(RegexNode child, int min, int max) {
+        int copies = max < 0 ? Math.max(min, 1) : max;
+        long positions = (long) copies * child.size();
+        if (positions > RegexParser.DEFAULT_STATE_BUDGET) {
+            throw new IllegalArgumentException("Repetition {" + min + "," + (max < 0 ? "" : max) + "} needs "
+                + positions + " positions, more than the budget of " + RegexParser.DEFAULT_STATE_BUDGET);
+        }
+        Info info = Info.empty();
+        int mandatory = max < 0 ? Math.max(min - 1, 0) : min;
+        for (int i = 0; i < mandatory; i++) info = concat(info, walk(child));
+        if (max < 0) {
+            return concat(info, loop(walk(child), min == 0));
+        }
+        Info optional = Info.empty();
+        for (int i = min; i < max; i++) {
+            Info copy = concat(walk(child), optional);
+            copy.nullable = true;
+            optional = copy;
+        }
+        return concat(info, optional);
+    }
+
+    private Info concat(Info a, Info b) {
+        for (int p = a.last.nextSetBit(0); p >= 0; p = a.last.nextSetBit(p + 1)) {
+            followpos.get(p).or(b.first);
+        }
+        BitSet first = (BitSet) a.first.clone();
+        if (a.nullable) first.or(b.first);
+        BitSet last = (BitSet) b.last.clone();
+        if (b.nullable) last.or(a.last);
+        return new Info(a.nullable && b.nullable, first, last);
+    }
+
+    private Info loop(Info a, boolean nullable) {
+        for (int p = a.last.nextSetBit(0); p >= 0; p = a.last.nextSetBit(p + 1)) {
+            followpos.get(p).or(a.first);
+        }
+        a.nullable |= nullable;
+        return a;
+    }
+
+    /**
+     * Character classes of the position sets.
+     */
+    private AlphabetPartition classes(Set<Character> alphabet) {
+        int count = 0;
+        for (CharSet set : chars) {
+            if (set != null) count += set.getRangeCount();
+        }
+        char[] lo = new char[count];
+        char[] hi = new char[count];
+        int i = 0;
+        for (CharSet set : chars) {
+            if (set == null) continue;
+            for (int r = 0; r < set.getRangeCount(); r++, i++) {
+                lo[i] = set.getLo(r);
+                hi[i] = set.getHi(r);
+            }
+        }
+        return AlphabetPartition.fromRanges(lo, hi, alphabet);
+    }
+
+    /**
+     * Explores the position sets reachable from the start set.
+     *
+     * @param classes The character classes to expand each state by.
+     * @param states  Receives the position set of every DFA state (index 0 is the start).
+     * @return The transition table {@code next[state * classCount + class]}, or -1 for none.
+     */
+    private int[] explore(AlphabetPartition classes, List<BitSet> states) {
+        int k = classes.getClassCount();
+        BitSet[] classPositions = new BitSet[k];
+        for (int cls = 0; cls < k; cls++) {
+            classPositions[cls] = new BitSet();
+            char rep = classes.getRepresentative(cls);
+            for (int p = 0; p < chars.size(); p++) {
+                if (chars.get(p) != null && chars.get(p).contains(rep)) classPositions[cls].set(p);
+            }
+        }
+
+        Map<BitSet, Integer> index = new HashMap<>();
+        states.add(start);
+        index.put(start, 0);
+        int[] next = new int[Math.max(1, 16 * k)];
+        for (int current = 0; current < states.size(); current++) {
+            if ((current + 1) * k > next.length) {
+                next = Arrays.copyOf(next, next.length * 2);
+            }
+            BitSet state = states.get(current);
+            for (int cls = 0; cls < k; cls++) {
+                BitSet target = new BitSet();
+                BitSet moving = (BitSet) state.clone();
+                moving.and(classPositions[cls]);
+                for (int p = moving.nextSetBit(0); p >= 0; p = moving.nextSetBit(p + 1)) {
+                    target.or(followpos.get(p));
+                }
+                if (target.isEmpty()) {
+                    next[current * k + cls] = PackedDfa.DEAD;
+                    continue;
+                }
+                Integer existing = index.get(target);
+                if (existing == null) {
+                    existing = states.size();
+                    index.put(target, existing);
+                    states.add(target);
+                }
+                next[current * k + cls] = existing;
+            }
+        }
+        return next;
+    }
+
+    private DFA toDfa(Set<Character> alphabet) {
+        AlphabetPartition classes = classes(alphabet);
+        List<BitSet> states = new ArrayList<>();
+        int[] next = explore(classes, states);
+        int k = classes.getClassCount();
+
+        List<DfaState> dfaStates = new ArrayList<>();
+        for (BitSet state : states) {
+            DfaState dfaState = new DfaState(new HashSet<>());
+            dfaState.setFinal(containsMarker(state));
+            Token token = selectToken(state);
+            if (token != null) dfaState.setToken(token);
+            dfaStates.add(dfaState);
+        }
+        for (int s = 0; s < states.size(); s++) {
+            for (int cls = 0; cls < k; cls++) {
+                int target = next[s * k + cls];
+                if (target == PackedDfa.DEAD) continue;
+                for (char member : classes.getMembers(cls)) {
+                    dfaStates.get(s).addTransition(member, dfaStates.get(target));
+                }
+            }
+        }
+        return new DFA(dfaStates.get(0), dfaStates);
+    }
+
+    private boolean containsMarker(BitSet state) {
+        for (int p = state.nextSetBit(0); p >= 0; p = state.nextSetBit(p + 1)) {
+            if (chars.get(p) == null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Selects the token of the end marker with the highest priority, if any.
+     */
+    private Token selectToken(BitSet state) {
+        int selected = -1;
+        int highestPriority = Integer.MAX_VALUE;
+        for (int p = state.nextSetBit(0); p >= 0; p = state.nextSetBit(p + 1)) {
+            if (chars.get(p) != null) continue;
+            int pr = NfaToDfaConverter.priorityOf(markerType.get(p), markerRule.get(p));
+            if (pr != -1 && pr < highestPriority) {
+                selected = p;
+                highestPriority = pr;
+            }
+        }
+        return selected < 0 ? null
+            : NfaToDfaConverter.tokenOf(markerType.get(selected), markerRule.get(selected), markerSkip.get(selected));
+    }
+
+    /**
+     * Nullable, firstpos and lastpos of a subtree.
+     */
+    private static final class Info {
+        boolean nullable;
+        final BitSet first;
+        final BitSet last;
+
+        Info(boolean nullable, BitSet first, BitSet last) {
+            this.nullable = nullable;
+            this.first = first;
+            this.last = last;
+        }
+
+        static Info empty() {
+            return new Info(true, new BitSet(), new BitSet());
+        }
+
+        static Info leaf(int position) {
+            BitSet set = new BitSet();
+            set.set(position);
+            return new Info(false, set, (BitSet) set.clone());
+        }
+    }
+}
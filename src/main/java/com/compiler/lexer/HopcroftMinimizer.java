@@ -0,0 +1,347 @@
+package com.compiler.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.dfa.DfaState;
+import com.compiler.lexer.dfa.PackedDfa;
+
+/**
+ * HopcroftMinimizer
+ * -----------------
+ * Minimizes DFAs with Hopcroft's partition-refinement algorithm in
+ * O(k n log n) time, where n is the number of states and k the number of
+ * character classes. States are int-indexed and the partition is kept in a
+ * refinable-partition structure, so no per-pair table is ever allocated.
+ * <p>
+ * The initial partition separates states by finality and by accepted token
+ * (type and priority), so two accepting states are only merged when they
+ * would produce the same token. Missing transitions are treated as going to
+ * an implicit dead state; states equivalent to it are removed.
+ */
+public final class HopcroftMinimizer {
+
+    private HopcroftMinimizer() {
+        // Utility class
+    }
+
+    /**
+     * Minimizes a DFA built from DfaState objects.
+     *
+     * @param originalDfa The DFA to be minimized.
+     * @param alphabet The set of input symbols, or null to use every symbol of the DFA.
+     * @return A minimized DFA equivalent to the original.
+     */
+    public static DFA minimizeDfa(DFA originalDfa, Set<Character> alphabet) {
+        // Step 1: Number the states and compress the alphabet
+        AlphabetPartition classes = AlphabetPartition.fromDfa(originalDfa, alphabet);
+        Map<DfaState, Integer> index = new IdentityHashMap<>();
+        List<DfaState> states = new ArrayList<>();
+        index.put(originalDfa.startState, 0);
+        states.add(originalDfa.startState);
+        for (int i = 0; i < states.size(); i++) {
+            for (DfaState target : states.get(i).getTransitions().values()) {
+                if (index.putIfAbsent(target, states.size()) == null) states.add(target);
+            }
+        }
+        int n = states.size();
+        int k = classes.getClassCount();
+
+        // Step 2: Flat transition table and initial keys (finality + token)
+        int[] delta = new int[n * k];
+        int[] keys = new int[n];
+        Map<String, Integer> keyIds = new HashMap<>();
+        keyIds.put("-", 0); // non-final states, like the dead state
+        for (int s = 0; s < n; s++) {
+            DfaState state = states.get(s);
+            for (int cls = 0; cls < k; cls++) {
+                DfaState target = state.getTransition(classes.getRepresentative(cls));
+                delta[s * k + cls] = target == null ? -1 : index.get(target);
+            }
+            keys[s] = keyIds.computeIfAbsent(tokenKey(state), x -> keyIds.size());
+        }
+
+        // Step 3: Refine and rebuild one state per block
+        int[] block = refine(n, k, delta, keys, 0);
+        int deadBlock = block[n];
+        int blockCount = 0;
+        for (int s = 0; s <= n; s++) blockCount = Math.max(blockCount, block[s] + 1);
+
+        DfaState[] representatives = new DfaState[blockCount];
+        List<DfaState> minimizedStates = new ArrayList<>();
+        for (int s = 0; s < n; s++) {
+            int b = block[s];
+            if (representatives[b] != null || (b == deadBlock && s != 0)) continue;
+            DfaState old = states.get(s);
+            DfaState rep = new DfaState(new java.util.HashSet<>());
+            rep.setFinal(old.isFinal());
+            if (old.getToken() != null) rep.setToken(old.getToken());
+            representatives[b] = rep;
+            minimizedStates.add(rep);
+        }
+        for (int s = 0; s < n; s++) {
+            int b = block[s];
+            DfaState rep = representatives[b];
+            if (rep == null || b == deadBlock || !rep.getTransitions().isEmpty()) continue;
+            for (Map.Entry<Character, DfaState> entry : states.get(s).getTransitions().entrySet()) {
+                if (classes.classOf(entry.getKey()) == AlphabetPartition.NO_CLASS) continue;
+                int target = block[index.get(entry.getValue())];
+                if (target != deadBlock) rep.addTransition(entry.getKey(), representatives[target]);
+            }
+        }
+
+        return new DFA(representatives[block[0]], minimizedStates);
+    }
+
+    /**
+     * Minimizes a packed DFA. The character classes are kept as they are.
+     *
+     * @param table The packed DFA to be minimized.
+     * @return A minimized packed DFA equivalent to the original.
+     */
+    public static PackedDfa minimize(PackedDfa table) {
+        int n = table.getStateCount();
+        int k = table.getClassCount();
+        int[] delta = new int[n * k];
+        int[] keys = new int[n];
+        for (int s = 0; s < n; s++) {
+            for (int cls = 0; cls < k; cls++) {
+                delta[s * k + cls] = table.nextByClass(s, cls);
+            }
+            // 0 = non-final, 1 = final without token, 2 + id = final with token
+            keys[s] = !table.isFinal(s) ? 0 : table.getTokenId(s) + 2;
+        }
+
+        int[] block = refine(n, k, delta, keys, 0);
+        int deadBlock = block[n];
+
+        // Renumber the surviving blocks so that the start state comes first
+        int[] newId = new int[n + 1];
+        Arrays.fill(newId, -1);
+        int count = 0;
+        int start = table.getStartState();
+        newId[block[start]] = count++;
+        for (int s = 0; s < n; s++) {
+            if (block[s] != deadBlock && newId[block[s]] == -1) newId[block[s]] = count++;
+        }
+
+        int[] next = new int[count * k];
+        boolean[] accepting = new boolean[count];
+        int[] tokenIds = new int[count];
+        boolean[] done = new boolean[count];
+        Arrays.fill(next, PackedDfa.DEAD);
+        for (int s = 0; s < n; s++) {
+            int id = newId[block[s]];
+            if (id == -1 || done[id]) continue;
+            done[id] = true;
+            accepting[id] = table.isFinal(s);
+            tokenIds[id] = table.getTokenId(s);
+            if (block[s] == deadBlock) continue; // empty language: start state without transitions
+            for (int cls = 0; cls < k; cls++) {
+                int target = delta[s * k + cls];
+                if (target != PackedDfa.DEAD && block[target] != deadBlock) {
+                    next[id * k + cls] = newId[block[target]];
+                }
+            }
+        }
+
+        int[] classMap = new int[Math.min(Character.MAX_VALUE + 1, maxMappedChar(table) + 1)];
+        for (int c = 0; c < classMap.length; c++) classMap[c] = table.classOf((char) c);
+        Token[] tokens = new Token[table.getTokenCount()];
+        boolean[] skipTokens = new boolean[tokens.length];
+        for (int id = 0; id < tokens.length; id++) {
+            tokens[id] = table.getTokenById(id);
+            skipTokens[id] = table.isSkipToken(id);
+        }
+        return new PackedDfa(count, k, 0, classMap, table.classOf(Character.MAX_VALUE),
+                             next, accepting, tokenIds, tokens, skipTokens);
+    }
+
+    /**
+     * Returns the highest character whose class differs from the class of the
+     * characters above it, so the class map can stay as small as the original.
+     */
+    private static int maxMappedChar(PackedDfa table) {
+        int high = table.classOf(Character.MAX_VALUE);
+        for (int c = Character.MAX_VALUE; c >= 0; c--) {
+            if (table.classOf((char) c) != high) return c;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the initial-partition key of a DFA state.
+     */
+    private static String tokenKey(DfaState state) {
+        if (!state.isFinal()) return "-";
+        Token token = state.getToken();
+        return token == null ? "F" : "T" + token.getPriority() + ":" + token.getType();
+    }
+
+    /**
+     * Runs Hopcroft's refinement on a partial DFA.
+     * An implicit dead state with index {@code n} is added; every missing
+     * transition ({@code -1}) goes to it.
+     *
+     * @param n       Number of states.
+     * @param k       Number of character classes.
+     * @param delta   Transition table of size {@code n * k}, {@code -1} for no transition.
+     * @param keys    Initial-partition key of each state.
+     * @param deadKey Key shared by the dead state (that of non-final states).
+     * @return Block number of every state, including the dead state at index {@code n}.
+     */
+    static int[] refine(int n, int k, int[] delta, int[] keys, int deadKey) {
+        int total = n + 1;
+
+        // Inverse transitions, grouped by (target, class)
+        int[] offsets = new int[total * k + 1];
+        for (int s = 0; s < total; s++) {
+            for (int c = 0; c < k; c++) {
+                offsets[target(delta, n, k, s, c) * k + c + 1]++;
+            }
+        }
+        for (int i = 1; i < offsets.length; i++) offsets[i] += offsets[i - 1];
+        int[] sources = new int[total * k];
+        int[] fill = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int s = 0; s < total; s++) {
+            for (int c = 0; c < k; c++) {
+                sources[fill[target(delta, n, k, s, c) * k + c]++] = s;
+            }
+        }
+
+        // Initial partition by key
+        Partition p = new Partition(total);
+        Integer[] order = new Integer[total];
+        for (int s = 0; s < total; s++) order[s] = s;
+        Arrays.sort(order, (a, b) -> Integer.compare(keyOf(keys, n, deadKey, a), keyOf(keys, n, deadKey, b)));
+        int blockStart = 0;
+        for (int i = 0; i < total; i++) {
+            p.elems[i] = order[i];
+            p.loc[order[i]] = i;
+            boolean last = i + 1 == total
+                || keyOf(keys, n, deadKey, order[i + 1]) != keyOf(keys, n, deadKey, order[i]);
+            if (last) {
+                p.addBlock(blockStart, i + 1);
+                blockStart = i + 1;
+            }
+        }
+
+        // Worklist of splitter blocks
+        int[] work = new int[total];
+        boolean[] inWork = new boolean[total];
+        int workSize = 0;
+        for (int b = 0; b < p.blocks; b++) {
+            work[workSize++] = b;
+            inWork[b] = true;
+        }
+
+        int[] splitter = new int[total];
+        while (workSize > 0) {
+            int b = work[--workSize];
+            inWork[b] = false;
+            int size = p.end[b] - p.first[b];
+            System.arraycopy(p.elems, p.first[b], splitter, 0, size);
+
+            for (int c = 0; c < k; c++) {
+                for (int i = 0; i < size; i++) {
+                    int bucket = splitter[i] * k + c;
+                    for (int j = offsets[bucket]; j < offsets[bucket + 1]; j++) {
+                        p.mark(sources[j]);
+                    }
+                }
+                for (int t = 0; t < p.touchedCount; t++) {
+                    int x = p.touched[t];
+                    int y = p.split(x);
+                    if (y == -1) continue;
+                    if (inWork[x]) {
+                        work[workSize++] = y;
+                        inWork[y] = true;
+                    } else {
+                        int smaller = p.end[y] - p.first[y] <= p.end[x] - p.first[x] ? y : x;
+                        work[workSize++] = smaller;
+                        inWork[smaller] = true;
+                    }
+                }
+                p.touchedCount = 0;
+            }
+        }
+        return p.blk;
+    }
+
+    private static int target(int[] delta, int n, int k, int s, int c) {
+        if (s == n) return n;
+        int t = delta[s * k + c];
+        return t < 0 ? n : t;
+    }
+
+    private static int keyOf(int[] keys, int n, int deadKey, int s) {
+        return s == n ? deadKey : keys[s];
+    }
+
+    /**
+     * Refinable partition: the elements of each block are contiguous in
+     * {@code elems}, and marked elements are moved to the front of their block.
+     */
+    private static final class Partition {
+        final int[] elems;
+        final int[] loc;
+        final int[] blk;
+        final int[] first;
+        final int[] end;
+        final int[] mid;
+        final int[] touched;
+        int blocks;
+        int touchedCount;
+
+        Partition(int size) {
+            elems = new int[size];
+            loc = new int[size];
+            blk = new int[size];
+            first = new int[size];
+            end = new int[size];
+            mid = new int[size];
+            touched = new int[size];
+        }
+
+        void addBlock(int from, int to) {
+            first[blocks] = from;
+            end[blocks] = to;
+            mid[blocks] = from;
+            for (int i = from; i < to; i++) blk[elems[i]] = blocks;
+            blocks++;
+        }
+
+        void mark(int s) {
+            int b = blk[s];
+            int i = loc[s];
+            int j = mid[b];
+            if (i < j) return; // already marked
+            elems[i] = elems[j];
+            loc[elems[i]] = i;
+            elems[j] = s;
+            loc[s] = j;
+            if (mid[b]++ == first[b]) touched[touchedCount++] = b;
+        }
+
+        /**
+         * Splits the marked part off block {@code b}.
+         * @return The new block, or -1 if the whole block was marked.
+         */
+        int split(int b) {
+            if (mid[b] == end[b]) {
+                mid[b] = first[b];
+                return -1;
+            }
+            int from = first[b];
+            first[b] = mid[b];
+            addBlock(from, mid[b]);
+            return blocks - 1;
+        }
+    }
+}
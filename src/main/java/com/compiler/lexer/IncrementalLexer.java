@@ -0,0 +1,519 @@
+package com.compiler.lexer;
+
+import java.util.Arrays;
+
+import com.compiler.lexer.dfa.TransitionTable;
+
+/**
+ * IncrementalLexer
+ * ----------------
+ * Token stream of an edited document that is kept up to date edit by edit
+ * instead of re-tokenizing the whole text. For an edit, lexing restarts at
+ * the first token whose scan read the edited position (its lexeme, or the
+ * characters read past it to find the longest match), and stops as soon as
+ * a new token starts where an old token after the edit started: from
+ * there on, the lexer reads the same characters as before, so the old
+ * tokens are kept. {@link #edit} returns the range of replaced tokens.
+ * <p>
+ * The text and the tokens are stored in gap buffers positioned at the last
+ * edit, and token offsets after the gap are stored relative to the end of
+ * the text, so they need no update when the text before them changes. A
+ * max segment tree over the furthest position read by each token before
+ * the gap finds the restart token in logarithmic time. The cost of an edit
+ * depends on the re-lexed tokens and on the distance to the previous edit,
+ * not on the size of the document.
+ * <p>
+ * Unlike {@link Tokenizer}, skipped tokens are kept (every character
+ * belongs to a token) and a character that starts no token becomes a
+ * one-character token without ID ({@link TransitionTable#NO_TOKEN}) rather
+ * than an error, since text being typed is often incomplete.
+ *
+ * Example usage:
+ * <pre>
+ *     IncrementalLexer lexer = new IncrementalLexer(table, document);
+ *     IncrementalLexer.Change change = lexer.edit(offset, 0, "x");
+ *     repaint(change.getFirstToken(), change.getInsertedCount());
+ * </pre>
+ */
+public final class IncrementalLexer {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final TransitionTable table;
+    private final GapText text;
+
+    // Tokens in a gap buffer: [0, gapStart) before the gap, [gapEnd, capacity) after it
+    private int[] tokenIds;
+    private int[] starts; // absolute before the gap, relative to the end of the text after it
+    private int[] lengths;
+    private int[] readAheads; // characters read past the end of the token (the end of the text counts as one)
+    private int gapStart;
+    private int gapEnd;
+    // Max segment tree over the furthest read position (exclusive) of the tokens before the gap;
+    // leaf i is reach[leaves + i], and slots at or after the gap hold Integer.MIN_VALUE
+    private int[] reach;
+    private int leaves;
+
+    // Result of the last call to lexAt
+    private int scannedId;
+    private int scannedEnd;
+    private int scannedRead;
+
+    /**
+     * Tokenizes a document.
+     *
+     * @param table The transition table recognizing all token patterns.
+     * @param text  The initial text.
+     */
+    public IncrementalLexer(TransitionTable table, CharSequence text) {
+        this.table = table;
+        this.text = new GapText(text);
+        int capacity = Math.max(INITIAL_CAPACITY, text.length() / 4);
+        this.tokenIds = new int[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.readAheads = new int[capacity];
+        this.gapEnd = capacity;
+        buildReach();
+        for (int position = 0; position < text.length(); position = scannedEnd) {
+            lexAt(position);
+            append(position);
+        }
+    }
+
+    /**
+     * Replaces a range of the text and re-lexes the affected tokens.
+     *
+     * @param offset   The position of the first replaced character.
+     * @param removed  The number of characters removed.
+     * @param inserted The text inserted at {@code offset}.
+     * @return The tokens replaced by the edit.
+     * @throws IndexOutOfBoundsException If the range is not inside the text.
+     */
+    public Change edit(int offset, int removed, CharSequence inserted) {
+        int length = text.length();
+        if (offset < 0 || removed < 0 || offset > length - removed) {
+            throw new IndexOutOfBoundsException("Edit [" + offset + ", " + (offset + removed) + ") outside text of length " + length);
+        }
+
+        // First token whose scan read the edited position; earlier tokens only read unchanged text.
+        // The token containing the offset always qualifies, so only the tokens up to it are searched.
+        int containing = tokenIndexAt(offset);
+        int first = 0;
+        if (containing >= 0) {
+            moveGap(containing + 1);
+            first = firstReaching(1, 0, leaves, containing + 1, offset);
+        }
+        int restart = first == 0 ? 0 : getEnd(first - 1);
+        moveGap(first);
+
+        // Old tokens starting before the end of the edit are replaced; the others move with the text end
+        int removedTokens = 0;
+        while (gapEnd < tokenIds.length && starts[gapEnd] + length < offset + removed) {
+            gapEnd++;
+            removedTokens++;
+        }
+        text.replace(offset, removed, inserted);
+
+        // Re-lex until a new token starts where an old one does
+        int insertedTokens = 0;
+        int position = restart;
+        int newLength = text.length();
+        while (true) {
+            while (gapEnd < tokenIds.length && starts[gapEnd] + newLength < position) {
+                gapEnd++;
+                removedTokens++;
+            }
+            if (gapEnd < tokenIds.length && starts[gapEnd] + newLength == position) break;
+            if (position >= newLength) break;
+            lexAt(position);
+            append(position);
+            insertedTokens++;
+            position = scannedEnd;
+        }
+        return new Change(first, removedTokens, insertedTokens, restart, position);
+    }
+
+    /**
+     * Scans the longest token at a position, recording how far the scan read.
+     */
+    private void lexAt(int from) {
+        int length = text.length();
+        int state = table.getStartState();
+        int pos = from;
+        int matchEnd = -1;
+        int tokenId = TransitionTable.NO_TOKEN;
+        while (true) {
+            if (pos == length) {
+                pos++; // reaching the end of the text is a read too: appending text can extend the token
+                break;
+            }
+            state = table.next(state, text.charAt(pos++));
+            if (state == TransitionTable.DEAD) break;
+            if (table.hasSelfLoop(state)) pos = table.skipSelfLoop(state, text, pos, length);
+            if (table.isFinal(state)) {
+                matchEnd = pos;
+                tokenId = table.getTokenId(state);
+            }
+        }
+        if (matchEnd == -1) {
+            // No token starts here: take one character and go on
+            matchEnd = from + 1;
+            tokenId = TransitionTable.NO_TOKEN;
+        } else {
+            tokenId = table.refineToken(tokenId, text, from, matchEnd);
+        }
+        scannedId = tokenId;
+        scannedEnd = matchEnd;
+        scannedRead = pos;
+    }
+
+    /**
+     * Appends the last scanned token before the gap.
+     */
+    private void append(int start) {
+        if (gapStart == gapEnd) grow();
+        tokenIds[gapStart] = scannedId;
+        starts[gapStart] = start;
+        lengths[gapStart] = scannedEnd - start;
+        readAheads[gapStart] = scannedRead - scannedEnd;
+        gapStart++;
+        updateReach(gapStart - 1);
+    }
+
+    /**
+     * Rebuilds the segment tree for the current capacity.
+     */
+    private void buildReach() {
+        leaves = Integer.highestOneBit(Math.max(1, tokenIds.length - 1)) * 2;
+        reach = new int[2 * leaves];
+        Arrays.fill(reach, Integer.MIN_VALUE);
+        for (int p = 0; p < gapStart; p++) reach[leaves + p] = starts[p] + lengths[p] + readAheads[p];
+        for (int node = leaves - 1; node > 0; node--) reach[node] = Math.max(reach[2 * node], reach[2 * node + 1]);
+    }
+
+    /**
+     * Refreshes the leaf of an array slot and its ancestors.
+     */
+    private void updateReach(int p) {
+        int node = leaves + p;
+        reach[node] = p < gapStart ? starts[p] + lengths[p] + readAheads[p] : Integer.MIN_VALUE;
+        for (node >>= 1; node > 0; node >>= 1) reach[node] = Math.max(reach[2 * node], reach[2 * node + 1]);
+    }
+
+    /**
+     * Finds the first slot below {@code limit} (before the gap) whose token
+     * read past {@code offset}, within the subtree of {@code node} covering
+     * slots {@code [lo, hi)}.
+     *
+     * @return The slot, or {@code limit} if there is none.
+     */
+    private int firstReaching(int node, int lo, int hi, int limit, int offset) {
+        if (lo >= limit || reach[node] <= offset) return limit;
+        if (hi - lo == 1) return lo;
+        int mid = (lo + hi) >>> 1;
+        int left = firstReaching(2 * node, lo, mid, limit, offset);
+        return left < limit ? left : firstReaching(2 * node + 1, mid, hi, limit, offset);
+    }
+
+    /**
+     * Doubles the capacity, keeping the tokens after the gap at the end.
+     */
+    private void grow() {
+        int capacity = tokenIds.length * 2;
+        int after = tokenIds.length - gapEnd;
+        tokenIds = regrow(tokenIds, capacity, after);
+        starts = regrow(starts, capacity, after);
+        lengths = regrow(lengths, capacity, after);
+        readAheads = regrow(readAheads, capacity, after);
+        gapEnd = capacity - after;
+        buildReach();
+    }
+
+    private int[] regrow(int[] array, int capacity, int after) {
+        int[] grown = Arrays.copyOf(array, capacity);
+        System.arraycopy(array, array.length - after, grown, capacity - after, after);
+        return grown;
+    }
+
+    /**
+     * Moves the gap so that it starts at token {@code index}.
+     */
+    private void moveGap(int index) {
+        int length = text.length();
+        while (gapStart > index) {
+            gapStart--;
+            gapEnd--;
+            move(gapStart, gapEnd);
+            starts[gapEnd] -= length;
+            updateReach(gapStart);
+        }
+        while (gapStart < index) {
+            move(gapEnd, gapStart);
+            starts[gapStart] += length;
+            gapStart++;
+            gapEnd++;
+            updateReach(gapStart - 1);
+        }
+    }
+
+    private void move(int from, int to) {
+        tokenIds[to] = tokenIds[from];
+        starts[to] = starts[from];
+        lengths[to] = lengths[from];
+        readAheads[to] = readAheads[from];
+    }
+
+    /**
+     * Returns the array index of the i-th token.
+     */
+    private int physical(int i) {
+        if (i < 0 || i >= getTokenCount()) throw new IndexOutOfBoundsException(i);
+        return i < gapStart ? i : i + gapEnd - gapStart;
+    }
+
+    /**
+     * Returns the index of the token containing a position, the last token
+     * for the end of the text, or -1 if the text is empty.
+     */
+    public int tokenIndexAt(int position) {
+        int lo = 0;
+        int hi = getTokenCount() - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getStart(mid) <= position) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the number of tokens, skipped ones included.
+     */
+    public int getTokenCount() {
+        return tokenIds.length - (gapEnd - gapStart);
+    }
+
+    /**
+     * Returns the token ID of the i-th token.
+     */
+    public int getTokenId(int i) {
+        return tokenIds[physical(i)];
+    }
+
+    /**
+     * Returns the type of the i-th token, or null if it has no token.
+     */
+    public String getType(int i) {
+        int id = getTokenId(i);
+        return id == TransitionTable.NO_TOKEN ? null : table.getTokenById(id).getType();
+    }
+
+    /**
+     * Returns the start offset of the i-th token.
+     */
+    public int getStart(int i) {
+        int p = physical(i);
+        return i < gapStart ? starts[p] : starts[p] + text.length();
+    }
+
+    /**
+     * Returns the length of the i-th token.
+     */
+    public int getLength(int i) {
+        return lengths[physical(i)];
+    }
+
+    /**
+     * Returns the end offset (exclusive) of the i-th token.
+     */
+    public int getEnd(int i) {
+        return getStart(i) + getLength(i);
+    }
+
+    /**
+     * Checks if the i-th token is one the Tokenizer would discard.
+     */
+    public boolean isSkipped(int i) {
+        int id = getTokenId(i);
+        return id == TransitionTable.NO_TOKEN || table.isSkipToken(id);
+    }
+
+    /**
+     * Extracts the lexeme of the i-th token.
+     */
+    public String getLexeme(int i) {
+        int start = getStart(i);
+        return text.subSequence(start, start + getLength(i)).toString();
+    }
+
+    /**
+     * Creates a Token object for the i-th token.
+     */
+    public Token getToken(int i) {
+        int id = getTokenId(i);
+        Token type = id == TransitionTable.NO_TOKEN ? null : table.getTokenById(id);
+        return new Token(type == null ? null : type.getType(), getLexeme(i), getStart(i),
+                         type == null ? null : type.getPattern());
+    }
+
+    /**
+     * Returns a live view of the current text.
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * Copies the non-skipped tokens into a {@link TokenStream} over a
+     * snapshot of the text, as {@link Tokenizer#tokenizeToStream} would
+     * produce it. This takes time proportional to the document.
+     */
+    public TokenStream toTokenStream() {
+        TokenStream stream = new TokenStream(text.toString(), table, getTokenCount());
+        for (int i = 0; i < getTokenCount(); i++) {
+            if (!isSkipped(i)) stream.add(getTokenId(i), getStart(i), getLength(i));
+        }
+        return stream;
+    }
+
+    @Override
+    public String toString() {
+        return "IncrementalLexer{length=" + text.length() + ", tokens=" + getTokenCount() + "}";
+    }
+
+    /**
+     * Tokens replaced by an edit: the old tokens
+     * {@code [firstToken, firstToken + removedCount)} became the new tokens
+     * {@code [firstToken, firstToken + insertedCount)}, covering the text
+     * {@code [start, end)}. Tokens before are unchanged; tokens after only moved.
+     */
+    public static final class Change {
+        private final int firstToken;
+        private final int removedCount;
+        private final int insertedCount;
+        private final int start;
+        private final int end;
+
+        Change(int firstToken, int removedCount, int insertedCount, int start, int end) {
+            this.firstToken = firstToken;
+            this.removedCount = removedCount;
+            this.insertedCount = insertedCount;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Returns the index of the first replaced token.
+         */
+        public int getFirstToken() {
+            return firstToken;
+        }
+
+        /**
+         * Returns the number of old tokens replaced.
+         */
+        public int getRemovedCount() {
+            return removedCount;
+        }
+
+        /**
+         * Returns the number of new tokens.
+         */
+        public int getInsertedCount() {
+            return insertedCount;
+        }
+
+        /**
+         * Returns the position where re-lexing started.
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the position where re-lexing stopped (the end of the new tokens).
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return "Change{firstToken=" + firstToken + ", removed=" + removedCount + ", inserted=" + insertedCount
+                + ", text=[" + start + ", " + end + ")}";
+        }
+    }
+
+    /**
+     * Text in a gap buffer, with the gap kept at the last edit.
+     */
+    private static final class GapText implements CharSequence {
+        private char[] chars;
+        private int gapStart;
+        private int gapEnd;
+
+        GapText(CharSequence initial) {
+            int length = initial.length();
+            chars = new char[Math.max(INITIAL_CAPACITY, length + length / 4)];
+            for (int i = 0; i < length; i++) chars[i] = initial.charAt(i);
+            gapStart = length;
+            gapEnd = chars.length;
+        }
+
+        void replace(int offset, int removed, CharSequence inserted) {
+            moveGap(offset);
+            gapEnd += removed;
+            int count = inserted.length();
+            if (gapEnd - gapStart < count) {
+                int after = chars.length - gapEnd;
+                int capacity = Math.max(chars.length * 2, gapStart + count + after + INITIAL_CAPACITY);
+                char[] grown = Arrays.copyOf(chars, capacity);
+                System.arraycopy(chars, gapEnd, grown, capacity - after, after);
+                chars = grown;
+                gapEnd = capacity - after;
+            }
+            for (int i = 0; i < count; i++) chars[gapStart++] = inserted.charAt(i);
+        }
+
+        private void moveGap(int offset) {
+            if (offset < gapStart) {
+                int count = gapStart - offset;
+                System.arraycopy(chars, offset, chars, gapEnd - count, count);
+                gapStart -= count;
+                gapEnd -= count;
+            } else if (offset > gapStart) {
+                int count = offset - gapStart;
+                System.arraycopy(chars, gapEnd, chars, gapStart, count);
+                gapStart += count;
+                gapEnd += count;
+            }
+        }
+
+        @Override
+        public int length() {
+            return chars.length - (gapEnd - gapStart);
+        }
+
+        @Override
+        public char charAt(int index) {
+            return index < gapStart ? chars[index] : chars[index + gapEnd - gapStart];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            StringBuilder sb = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) sb.append(charAt(i));
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
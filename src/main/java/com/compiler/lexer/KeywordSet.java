@@ -0,0 +1,195 @@
+package com.compiler.lexer;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * KeywordSet
+ * ----------
+ * Fixed set of keywords with a perfect hash, for classifying lexemes that
+ * the lexer DFA has already delimited (see {@link KeywordTable}). The hash
+ * multiplier is chosen when the set is built so that no two keywords share
+ * a slot: a lookup hashes the lexeme, reads one slot and compares at most
+ * one keyword, without allocating. Lexemes whose length is outside the
+ * range of the keywords are rejected without reading them.
+ * <p>
+ * Since whole lexemes are looked up, there is no need for a multi-pattern
+ * automaton such as Aho-Corasick, which finds keywords inside text.
+ *
+ * Example usage:
+ * <pre>
+ *     KeywordSet keywords = new KeywordSet("if", "else", "while");
+ *     boolean keyword = keywords.indexOf(input, start, end) >= 0;
+ * </pre>
+ */
+public final class KeywordSet {
+    /**
+     * Value returned by {@link #indexOf} for lexemes that are not keywords.
+     */
+    public static final int NOT_FOUND = -1;
+
+    // Multipliers tried in turn until the hash has no collision
+    private static final int MAX_ATTEMPTS = 10_000;
+
+    private final List<String> words;
+    private final char[][] chars;
+    private final int minLength;
+    private final int maxLength;
+    private final int multiplier;
+    private final int mask;
+    // Index of the keyword in each hash slot, or NOT_FOUND
+    private final int[] slots;
+
+    /**
+     * Creates a keyword set.
+     *
+     * @param words The keywords; duplicates are ignored.
+     * @throws IllegalArgumentException If there are no keywords or one is empty.
+     */
+    public KeywordSet(String... words) {
+        this(Arrays.asList(words));
+    }
+
+    /**
+     * Creates a keyword set.
+     *
+     * @param words The keywords; duplicates are ignored.
+     * @throws IllegalArgumentException If there are no keywords or one is empty.
+     */
+    public KeywordSet(Collection<String> words) {
+        if (words == null || words.isEmpty()) {
+            throw new IllegalArgumentException("A keyword set needs at least one keyword");
+        }
+        Set<String> unique = new LinkedHashSet<>();
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (String word : words) {
+            if (word == null || word.isEmpty()) {
+                throw new IllegalArgumentException("Keywords must not be empty");
+            }
+            unique.add(word);
+            min = Math.min(min, word.length());
+            max = Math.max(max, word.length());
+        }
+        this.words = List.copyOf(unique);
+        this.minLength = min;
+        this.maxLength = max;
+        this.chars = new char[this.words.size()][];
+        for (int i = 0; i < chars.length; i++) chars[i] = this.words.get(i).toCharArray();
+
+        // Grow the table until some multiplier spreads the keywords without collision
+        int size = Integer.highestOneBit(Math.max(1, chars.length * 2 - 1)) * 2;
+        Random random = new Random(size);
+        while (true) {
+            int[] table = new int[size];
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                int candidate = random.nextInt() | 1;
+                if (fill(table, candidate, size - 1)) {
+                    this.multiplier = candidate;
+                    this.mask = size - 1;
+                    this.slots = table;
+                    return;
+                }
+            }
+            size *= 2;
+        }
+    }
+
+    /**
+     * Places every keyword in the slot of its hash.
+     *
+     * @return False if two keywords collide.
+     */
+    private boolean fill(int[] table, int candidate, int tableMask) {
+        Arrays.fill(table, NOT_FOUND);
+        for (int i = 0; i < chars.length; i++) {
+            int slot = hash(chars[i], candidate) & tableMask;
+            if (table[slot] != NOT_FOUND) return false;
+            table[slot] = i;
+        }
+        return true;
+    }
+
+    private static int hash(char[] word, int multiplier) {
+        int h = word.length;
+        for (char c : word) h = h * multiplier + c;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Looks up the lexeme {@code input[start, end)}.
+     *
+     * @param input The text holding the lexeme.
+     * @param start The position of its first character.
+     * @param end   The position after its last character.
+     * @return The index of the keyword in {@link #getWords()}, or {@link #NOT_FOUND}.
+     */
+    public int indexOf(CharSequence input, int start, int end) {
+        int length = end - start;
+        if (length < minLength || length > maxLength) return NOT_FOUND;
+        int h = length;
+        for (int pos = start; pos < end; pos++) h = h * multiplier + input.charAt(pos);
+        int word = slots[(h ^ (h >>> 16)) & mask];
+        if (word == NOT_FOUND) return NOT_FOUND;
+        char[] keyword = chars[word];
+        if (keyword.length != length) return NOT_FOUND;
+        for (int i = 0; i < length; i++) {
+            if (keyword[i] != input.charAt(start + i)) return NOT_FOUND;
+        }
+        return word;
+    }
+
+    /**
+     * Checks if a whole string is a keyword.
+     */
+    public boolean contains(CharSequence word) {
+        return indexOf(word, 0, word.length()) != NOT_FOUND;
+    }
+
+    /**
+     * Returns the keywords, in the order they were first given.
+     */
+    public List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * Returns the number of keywords.
+     */
+    public int size() {
+        return words.size();
+    }
+
+    /**
+     * Returns the number of slots of the hash table.
+     */
+    public int getTableSize() {
+        return slots.length;
+    }
+
+    /**
+     * Returns a regex matching exactly the keywords: their union, with every
+     * character that is not a letter or digit escaped.
+     */
+    public String toRegex() {
+        StringBuilder regex = new StringBuilder();
+        for (String word : words) {
+            if (regex.length() > 0) regex.append('|');
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (!Character.isLetterOrDigit(c)) regex.append('\\');
+                regex.append(c);
+            }
+        }
+        return regex.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "KeywordSet" + words;
+    }
+}
@@ -0,0 +1,147 @@
+package com.compiler.lexer;
+
+import java.util.Arrays;
+
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.dfa.TransitionTable;
+
+/**
+ * KeywordTable
+ * ------------
+ * Transition table that recognizes keywords after the fact: the underlying
+ * DFA only knows the identifier rule, and every identifier lexeme is looked
+ * up in a {@link KeywordSet} through {@link #refineToken}. Keywords
+ * therefore add no states to the DFA, whereas unioning them into it
+ * duplicates the identifier states along every keyword prefix.
+ * <p>
+ * Keyword token IDs follow the token IDs of the underlying DFA (one per
+ * keyword set); every other method delegates to it.
+ *
+ * Example usage:
+ * <pre>
+ *     KeywordTable table = new KeywordTable(identifiers, "IDENTIFIER", "KEYWORD", new KeywordSet("if", "else"));
+ *     List&lt;Token&gt; tokens = new Tokenizer(table).tokenize(input);
+ * </pre>
+ */
+public final class KeywordTable implements TransitionTable {
+
+    private final PackedDfa base;
+    private final int baseTokens;
+    // Keyword set index of every base token ID, or -1 if the token is not reclassified
+    private final int[] setOf;
+    private final KeywordSet[] sets;
+    private final Token[] keywordTokens;
+
+    /**
+     * Creates a table reclassifying identifiers of one type as keywords.
+     *
+     * @param base           The DFA recognizing identifiers (and the other tokens).
+     * @param identifierType The token type of identifiers.
+     * @param keywordType    The token type given to keywords.
+     * @param keywords       The keywords.
+     * @throws IllegalArgumentException If the DFA has no token of the identifier type.
+     */
+    public KeywordTable(PackedDfa base, String identifierType, String keywordType, KeywordSet keywords) {
+        this(base, new String[] {identifierType}, new Token[] {new Token(keywordType, "", -1)}, new KeywordSet[] {keywords});
+    }
+
+    /**
+     * Creates a table with several keyword sets.
+     *
+     * @param base            The DFA recognizing identifiers (and the other tokens).
+     * @param identifierTypes The identifier type reclassified by each set.
+     * @param keywordTokens   The token given to the keywords of each set.
+     * @param sets            The keyword sets.
+     */
+    KeywordTable(PackedDfa base, String[] identifierTypes, Token[] keywordTokens, KeywordSet[] sets) {
+        this.base = base;
+        this.baseTokens = base.getTokenCount();
+        this.sets = sets.clone();
+        this.keywordTokens = keywordTokens.clone();
+        this.setOf = new int[baseTokens];
+        Arrays.fill(setOf, -1);
+        for (int set = 0; set < sets.length; set++) {
+            boolean found = false;
+            for (int id = 0; id < baseTokens; id++) {
+                if (base.getTokenById(id).getType().equals(identifierTypes[set])) {
+                    setOf[id] = set;
+                    found = true;
+                }
+            }
+            if (!found) {
+                throw new IllegalArgumentException("The DFA has no token of type " + identifierTypes[set]);
+            }
+        }
+    }
+
+    /**
+     * Returns the DFA without keywords.
+     */
+    public PackedDfa getBase() {
+        return base;
+    }
+
+    /**
+     * Returns the keyword token ID of a lexeme whose DFA token is an
+     * identifier and that is a keyword; otherwise, the token ID unchanged.
+     */
+    @Override
+    public int refineToken(int tokenId, CharSequence input, int start, int end) {
+        if (tokenId < 0 || tokenId >= baseTokens) return tokenId;
+        int set = setOf[tokenId];
+        if (set < 0 || sets[set].indexOf(input, start, end) == KeywordSet.NOT_FOUND) return tokenId;
+        return baseTokens + set;
+    }
+
+    @Override
+    public int getStartState() {
+        return base.getStartState();
+    }
+
+    @Override
+    public int next(int state, char symbol) {
+        return base.next(state, symbol);
+    }
+
+    @Override
+    public boolean isFinal(int state) {
+        return base.isFinal(state);
+    }
+
+    @Override
+    public int getTokenId(int state) {
+        return base.getTokenId(state);
+    }
+
+    @Override
+    public Token getTokenById(int id) {
+        return id < baseTokens ? base.getTokenById(id) : keywordTokens[id - baseTokens];
+    }
+
+    @Override
+    public boolean isSkipToken(int id) {
+        return id < baseTokens && base.isSkipToken(id);
+    }
+
+    @Override
+    public boolean hasSelfLoop(int state) {
+        return base.hasSelfLoop(state);
+    }
+
+    @Override
+    public int skipSelfLoop(int state, CharSequence input, int from, int to) {
+        return base.skipSelfLoop(state, input, from, to);
+    }
+
+    /**
+     * Returns the number of states of the underlying DFA.
+     */
+    public int getStateCount() {
+        return base.getStateCount();
+    }
+
+    @Override
+    public String toString() {
+        return "KeywordTable{states=" + base.getStateCount() + ", keywords=" + Arrays.toString(sets) + "}";
+    }
+}
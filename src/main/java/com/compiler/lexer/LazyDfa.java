@@ -0,0 +1,232 @@
+package com.compiler.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.compiler.lexer.dfa.TransitionTable;
+import com.compiler.lexer.nfa.FlatNfa;
+import com.compiler.lexer.nfa.NFA;
+
+/**
+ * LazyDfa
+ * -------
+ * DFA built on demand from an NFA. Instead of running the whole subset
+ * construction up front, a DFA state and each of its transitions are
+ * materialized the first time the Tokenizer or the DfaSimulator asks for
+ * them; subsets the input never reaches are never built.
+ * <p>
+ * The number of cached states is bounded. When a new state would exceed the
+ * limit, the whole cache is flushed and construction restarts from the
+ * state being entered, so memory stays bounded even for regexes whose full
+ * DFA would explode. State numbers are therefore only valid until the next
+ * call to {@link #next}; callers must keep just the latest state, as the
+ * Tokenizer and DfaSimulator do.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * Example usage:
+ * <pre>
+ *     LazyDfa dfa = new LazyDfa(nfa, 4096);
+ *     List&lt;Token&gt; tokens = new Tokenizer(dfa).tokenize(input);
+ * </pre>
+ */
+public class LazyDfa implements TransitionTable {
+    /**
+     * Default maximum number of cached DFA states.
+     */
+    public static final int DEFAULT_MAX_STATES = 10_000;
+
+    // Transition not computed yet
+    private static final int UNKNOWN = -2;
+
+    private final FlatNfa nfa;
+    private final int maxStates;
+    private final int[] classMap;
+    private final int classCount;
+
+    // State cache
+    private final Map<NfaToDfaConverter.SubsetKey, Integer> index = new HashMap<>();
+    private int[][] subsets;
+    private int[] transitions;
+    private boolean[] accepting;
+    private int[] tokenIds;
+    private int stateCount;
+    private int flushCount;
+
+    // Token table, kept across flushes
+    private final Map<String, Integer> tokenIndex = new HashMap<>();
+    private final List<Token> tokens = new ArrayList<>();
+    private final List<Boolean> skipTokens = new ArrayList<>();
+
+    // Scratch sets reused by every transition computation
+    private final BitSet from;
+    private final BitSet to;
+
+    /**
+     * Constructs a lazy DFA with the default state limit.
+     *
+     * @param nfa The NFA recognizing all token patterns.
+     */
+    public LazyDfa(NFA nfa) {
+        this(nfa, DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Constructs a lazy DFA.
+     *
+     * @param nfa       The NFA recognizing all token patterns.
+     * @param maxStates Maximum number of cached DFA states (at least 2).
+     */
+    public LazyDfa(NFA nfa, int maxStates) {
+        if (maxStates < 2) {
+            throw new IllegalArgumentException("maxStates must be at least 2");
+        }
+        this.nfa = nfa.flatten();
+        this.maxStates = maxStates;
+
+        AlphabetPartition classes = AlphabetPartition.fromNfa(this.nfa, null);
+        this.classCount = classes.getClassCount();
+        this.classMap = new int[classes.getMaxChar() + 1];
+        for (int c = 0; c < classMap.length; c++) {
+            classMap[c] = classes.classOf((char) c);
+        }
+
+        this.from = new BitSet(this.nfa.size());
+        this.to = new BitSet(this.nfa.size());
+        int initial = Math.min(maxStates, 64);
+        this.subsets = new int[initial][];
+        this.transitions = new int[initial * classCount];
+        this.accepting = new boolean[initial];
+        this.tokenIds = new int[initial];
+        addStartState();
+    }
+
+    @Override
+    public int getStartState() {
+        return 0;
+    }
+
+    @Override
+    public int next(int state, char symbol) {
+        int cls = symbol < classMap.length ? classMap[symbol] : AlphabetPartition.NO_CLASS;
+        if (cls == AlphabetPartition.NO_CLASS) return DEAD;
+        int cached = transitions[state * classCount + cls];
+        if (cached != UNKNOWN) return cached;
+
+        // Materialize the transition: move + epsilon-closure from the state's subset
+        from.clear();
+        for (int s : subsets[state]) from.set(s);
+        nfa.step(from, symbol, to);
+        if (to.isEmpty()) {
+            transitions[state * classCount + cls] = DEAD;
+            return DEAD;
+        }
+
+        int[] subset = to.stream().toArray();
+        NfaToDfaConverter.SubsetKey key = new NfaToDfaConverter.SubsetKey(subset);
+        Integer existing = index.get(key);
+        if (existing != null) {
+            transitions[state * classCount + cls] = existing;
+            return existing;
+        }
+        if (stateCount >= maxStates) {
+            // Cache full: drop every state and keep going from the one being entered
+            flush();
+            return addState(key, subset);
+        }
+        int target = addState(key, subset);
+        transitions[state * classCount + cls] = target;
+        return target;
+    }
+
+    @Override
+    public boolean isFinal(int state) {
+        return accepting[state];
+    }
+
+    @Override
+    public int getTokenId(int state) {
+        return tokenIds[state];
+    }
+
+    @Override
+    public Token getTokenById(int id) {
+        return tokens.get(id);
+    }
+
+    @Override
+    public boolean isSkipToken(int id) {
+        return skipTokens.get(id);
+    }
+
+    /**
+     * Returns the number of DFA states currently cached.
+     */
+    public int getCachedStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Returns how many times the state cache has been flushed.
+     */
+    public int getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Discards every cached state except the start state.
+     */
+    private void flush() {
+        flushCount++;
+        index.clear();
+        stateCount = 0;
+        addStartState();
+    }
+
+    private void addStartState() {
+        int[] start = nfa.closure(nfa.getStartState());
+        addState(new NfaToDfaConverter.SubsetKey(start), start);
+    }
+
+    private int addState(NfaToDfaConverter.SubsetKey key, int[] subset) {
+        int id = stateCount++;
+        if (id == subsets.length) {
+            int capacity = Math.min(maxStates, subsets.length * 2);
+            subsets = Arrays.copyOf(subsets, capacity);
+            transitions = Arrays.copyOf(transitions, capacity * classCount);
+            accepting = Arrays.copyOf(accepting, capacity);
+            tokenIds = Arrays.copyOf(tokenIds, capacity);
+        }
+        subsets[id] = subset;
+        Arrays.fill(transitions, id * classCount, (id + 1) * classCount, UNKNOWN);
+        index.put(key, id);
+
+        from.clear();
+        for (int s : subset) from.set(s);
+        accepting[id] = NfaToDfaConverter.containsFinal(nfa, from);
+        Token token = accepting[id] ? NfaToDfaConverter.selectToken(nfa, from) : null;
+        tokenIds[id] = token == null ? NO_TOKEN : internToken(token);
+        return id;
+    }
+
+    private int internToken(Token token) {
+        String key = token.getType() + '\u0000' + token.getRule();
+        Integer id = tokenIndex.get(key);
+        if (id == null) {
+            id = tokens.size();
+            tokenIndex.put(key, id);
+            tokens.add(token);
+            skipTokens.add(token.isSkip());
+        }
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyDfa{cachedStates=" + stateCount + ", maxStates=" + maxStates + ", flushes=" + flushCount + "}";
+    }
+}
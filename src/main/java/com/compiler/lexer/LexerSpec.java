@@ -0,0 +1,428 @@
+package com.compiler.lexer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.dfa.PackedDfaFile;
+import com.compiler.lexer.dfa.TransitionTable;
+import com.compiler.lexer.nfa.NFA;
+import com.compiler.lexer.nfa.State;
+import com.compiler.lexer.nfa.Transition;
+import com.compiler.lexer.regex.RegexParser;
+
+/**
+ * LexerSpec
+ * ---------
+ * Ordered list of lexer rules (token type, regex, skip flag) compiled into
+ * one combined automaton. Every rule gets an int ID in declaration order;
+ * when several rules accept the same lexeme, the rule declared first wins
+ * (after the longest match). Skipped rules are matched but their tokens are
+ * discarded by the Tokenizer, like WHITESPACE and COMMENT in the legacy
+ * priority scheme.
+ * <p>
+ * Keywords can be declared as a {@link KeywordSet} over an identifier rule.
+ * With {@link KeywordStrategy#IN_DFA} they are compiled into the DFA like
+ * any other rule; with {@link KeywordStrategy#POST_CHECK}, {@link #toTable()}
+ * leaves them out of the DFA and looks identifier lexemes up in the set
+ * instead (see {@link KeywordTable}), which keeps the DFA small.
+ *
+ * Example usage:
+ * <pre>
+ *     LexerSpec spec = LexerSpec.builder()
+ *         .rule("KEYWORD", "if|else")
+ *         .rule("IDENTIFIER", "(a|b|c)(a|b|c|0|1)*")
+ *         .skip("WHITESPACE", " +")
+ *         .build();
+ *     List&lt;Token&gt; tokens = new Tokenizer(spec.compile()).tokenize(input);
+ * </pre>
+ */
+public final class LexerSpec {
+
+    /**
+     * How keyword sets are recognized by {@link #toTable()}.
+     */
+    public enum KeywordStrategy {
+        /** Keywords are rules of the DFA, winning over identifiers by priority. */
+        IN_DFA,
+        /** The DFA only matches identifiers, which are then looked up in the keyword set. */
+        POST_CHECK
+    }
+
+    private final List<Rule> rules;
+    private final KeywordStrategy keywordStrategy;
+
+    private LexerSpec(List<Rule> rules, KeywordStrategy keywordStrategy) {
+        this.rules = Collections.unmodifiableList(rules);
+        this.keywordStrategy = keywordStrategy;
+    }
+
+    /**
+     * Creates an empty specification builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the rules in declaration (priority) order.
+     */
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the keyword strategy used by {@link #toTable()}.
+     */
+    public KeywordStrategy getKeywordStrategy() {
+        return keywordStrategy;
+    }
+
+    /**
+     * Builds the combined NFA: a fresh start state with an epsilon transition
+     * to the NFA of every rule, whose final state carries the rule ID.
+     * Every rule keeps its own final state; the returned end state is the
+     * one of the last rule. A new NFA is built on every call.
+     *
+     * @return The NFA recognizing the tokens of every rule.
+     */
+    public NFA toNfa() {
+        return toNfa(true);
+    }
+
+    /**
+     * Builds the combined NFA, optionally leaving out the keyword rules.
+     */
+    private NFA toNfa(boolean withKeywords) {
+        State start = new State();
+        State end = null;
+        for (Rule rule : rules) {
+            if (!withKeywords && rule.isKeywordSet()) continue;
+            NFA nfa = new RegexParser(rule.getType()).parse(rule.getRegex());
+            nfa.endState.setRule(rule.getId(), rule.isSkip());
+            start.transitions.add(new Transition(null, nfa.startState));
+            end = nfa.endState;
+        }
+        return new NFA(start, end);
+    }
+
+    /**
+     * Builds the minimized DFA of the specification over an alphabet.
+     *
+     * @param alphabet The input alphabet.
+     * @return The minimized DFA.
+     */
+    public DFA toDfa(Set<Character> alphabet) {
+        DFA dfa = NfaToDfaConverter.convertNfaToDfa(toNfa(), alphabet);
+        return HopcroftMinimizer.minimizeDfa(dfa, alphabet);
+    }
+
+    /**
+     * Compiles the specification into a minimized packed DFA, over every character.
+     *
+     * @return The transition table of the lexer.
+     */
+    public PackedDfa compile() {
+        return HopcroftMinimizer.minimize(NfaToDfaConverter.convertToPacked(toNfa()));
+    }
+
+    /**
+     * Compiles the specification into the table to tokenize with, following
+     * the keyword strategy: with {@link KeywordStrategy#POST_CHECK}, a
+     * {@link KeywordTable} over the DFA of the rules other than keywords;
+     * otherwise, the table of {@link #compile()}.
+     *
+     * @return The transition table of the lexer.
+     * @throws IllegalArgumentException If a keyword would not be lexed as an identifier without the keyword rule.
+     */
+    public TransitionTable toTable() {
+        List<Rule> keywordRules = new ArrayList<>();
+        for (Rule rule : rules) {
+            if (rule.isKeywordSet()) keywordRules.add(rule);
+        }
+        if (keywordStrategy == KeywordStrategy.IN_DFA || keywordRules.isEmpty()) return compile();
+
+        PackedDfa base = HopcroftMinimizer.minimize(NfaToDfaConverter.convertToPacked(toNfa(false)));
+        int n = keywordRules.size();
+        String[] identifierTypes = new String[n];
+        Token[] keywordTokens = new Token[n];
+        KeywordSet[] sets = new KeywordSet[n];
+        DfaSimulator simulator = new DfaSimulator();
+        for (int i = 0; i < n; i++) {
+            Rule rule = keywordRules.get(i);
+            identifierTypes[i] = rule.getIdentifierType();
+            keywordTokens[i] = NfaToDfaConverter.tokenOf(rule.getType(), rule.getId(), false);
+            sets[i] = rule.getKeywords();
+            // A rule between the keywords and the identifiers could claim a keyword first
+            for (String word : sets[i].getWords()) {
+                Token token = simulator.recognizeToken(base, word);
+                if (token == null || !token.getType().equals(rule.getIdentifierType())) {
+                    throw new IllegalArgumentException("Keyword '" + word + "' of rule " + rule + " is not lexed as "
+                        + rule.getIdentifierType() + " but as " + (token == null ? "nothing" : token.getType()));
+                }
+            }
+        }
+        return new KeywordTable(base, identifierTypes, keywordTokens, sets);
+    }
+
+    /**
+     * Compiles the specification like {@link #compile()}, but builds the DFA
+     * directly from the regex syntax trees ({@link DirectDfaBuilder}) instead
+     * of through Thompson's NFA and the subset construction.
+     *
+     * @return The transition table of the lexer.
+     */
+    public PackedDfa compileDirect() {
+        return HopcroftMinimizer.minimize(DirectDfaBuilder.buildPacked(this));
+    }
+
+    /**
+     * Loads the compiled table from a cache file, compiling and writing it
+     * only if the file was built from another specification.
+     *
+     * @param cacheFile The file holding the serialized table.
+     * @return The transition table of the lexer.
+     * @throws IOException If a rebuilt table cannot be written.
+     */
+    public PackedDfa compile(Path cacheFile) throws IOException {
+        return PackedDfaFile.loadOrBuild(cacheFile, getFingerprint(), this::compile);
+    }
+
+    /**
+     * Returns a textual form of the rules that identifies this specification,
+     * suitable as the key of {@link PackedDfaFile}.
+     */
+    public String getFingerprint() {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Rule rule : rules) {
+            fingerprint.append(rule.getType()).append('\u0000')
+                       .append(rule.getRegex()).append('\u0000')
+                       .append(rule.isSkip()).append('\n');
+        }
+        return fingerprint.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "LexerSpec{rules=" + rules + "}";
+    }
+
+    /**
+     * One lexer rule: the token type produced for lexemes matching a regex.
+     */
+    public static final class Rule {
+        private final int id;
+        private final String type;
+        private final String regex;
+        private final boolean skip;
+        private final KeywordSet keywords;
+        private final String identifierType;
+
+        Rule(int id, String type, String regex, boolean skip) {
+            this(id, type, regex, skip, null, null);
+        }
+
+        Rule(int id, String type, String regex, boolean skip, KeywordSet keywords, String identifierType) {
+            this.id = id;
+            this.type = type;
+            this.regex = regex;
+            this.skip = skip;
+            this.keywords = keywords;
+            this.identifierType = identifierType;
+        }
+
+        /**
+         * Returns the rule ID: its position in the specification, and its priority.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the token type produced by the rule.
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Returns the regex of the rule.
+         */
+        public String getRegex() {
+            return regex;
+        }
+
+        /**
+         * Checks if tokens of this rule are discarded by the tokenizer.
+         */
+        public boolean isSkip() {
+            return skip;
+        }
+
+        /**
+         * Checks if the rule is a keyword set; its regex is then the union of the keywords.
+         */
+        public boolean isKeywordSet() {
+            return keywords != null;
+        }
+
+        /**
+         * Returns the keywords of a keyword set rule, or null.
+         */
+        public KeywordSet getKeywords() {
+            return keywords;
+        }
+
+        /**
+         * Returns the identifier type a keyword set rule reclassifies, or null.
+         */
+        public String getIdentifierType() {
+            return identifierType;
+        }
+
+        @Override
+        public String toString() {
+            return id + ":" + type + (skip ? "(skip)" : "") + "=" + regex;
+        }
+    }
+
+    /**
+     * Builder collecting rules in priority order.
+     */
+    public static final class Builder {
+        private final List<Rule> rules = new ArrayList<>();
+        private KeywordStrategy keywordStrategy = KeywordStrategy.IN_DFA;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a rule whose tokens are kept.
+         *
+         * @param type  The token type.
+         * @param regex The regex matching the tokens.
+         * @return This builder.
+         */
+        public Builder rule(String type, String regex) {
+            return rule(type, regex, false);
+        }
+
+        /**
+         * Adds a rule whose tokens are matched but discarded (e.g. whitespace).
+         *
+         * @param type  The token type.
+         * @param regex The regex matching the tokens.
+         * @return This builder.
+         */
+        public Builder skip(String type, String regex) {
+            return rule(type, regex, true);
+        }
+
+        /**
+         * Adds a rule. Rules added earlier win conflicts.
+         *
+         * @param type  The token type.
+         * @param regex The regex matching the tokens.
+         * @param skip  Whether the tokens are discarded.
+         * @return This builder.
+         */
+        public Builder rule(String type, String regex, boolean skip) {
+            if (type == null || type.isEmpty()) {
+                throw new IllegalArgumentException("Token type must not be empty");
+            }
+            if (regex == null || regex.isEmpty()) {
+                throw new IllegalArgumentException("Regex of rule " + type + " must not be empty");
+            }
+            rules.add(new Rule(rules.size(), type, regex, skip));
+            return this;
+        }
+
+        /**
+         * Adds a keyword set: a rule matching exactly the given words, which
+         * are also identifiers. It must be declared before the identifier
+         * rule, which it wins over.
+         *
+         * @param type           The token type of keywords.
+         * @param identifierType The token type of the identifier rule.
+         * @param words          The keywords.
+         * @return This builder.
+         */
+        public Builder keywords(String type, String identifierType, String... words) {
+            return keywords(type, identifierType, Arrays.asList(words));
+        }
+
+        /**
+         * Adds a keyword set (see {@link #keywords(String, String, String...)}).
+         */
+        public Builder keywords(String type, String identifierType, Collection<String> words) {
+            if (type == null || type.isEmpty() || identifierType == null || identifierType.isEmpty()) {
+                throw new IllegalArgumentException("Token type must not be empty");
+            }
+            KeywordSet keywords = new KeywordSet(words);
+            rules.add(new Rule(rules.size(), type, keywords.toRegex(), false, keywords, identifierType));
+            return this;
+        }
+
+        /**
+         * Sets how keyword sets are recognized (by default {@link KeywordStrategy#IN_DFA}).
+         */
+        public Builder keywordStrategy(KeywordStrategy strategy) {
+            if (strategy == null) {
+                throw new IllegalArgumentException("Keyword strategy must not be null");
+            }
+            this.keywordStrategy = strategy;
+            return this;
+        }
+
+        /**
+         * Builds the specification. Every regex is parsed once to report
+         * syntax errors here rather than at compile time.
+         *
+         * @return The specification.
+         * @throws IllegalArgumentException If there are no rules, a regex is invalid,
+         *         or a keyword set has no later identifier rule matching its keywords.
+         */
+        public LexerSpec build() {
+            if (rules.isEmpty()) {
+                throw new IllegalArgumentException("A lexer specification needs at least one rule");
+            }
+            for (Rule rule : rules) {
+                try {
+                    new RegexParser(rule.getType()).parse(rule.getRegex());
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Invalid regex for rule " + rule, e);
+                }
+                if (rule.isKeywordSet()) checkKeywords(rule);
+            }
+            return new LexerSpec(new ArrayList<>(rules), keywordStrategy);
+        }
+
+        /**
+         * Checks that a keyword set is followed by its identifier rule and
+         * that every keyword is an identifier.
+         */
+        private void checkKeywords(Rule keywordRule) {
+            for (Rule rule : rules.subList(keywordRule.getId() + 1, rules.size())) {
+                if (!rule.getType().equals(keywordRule.getIdentifierType()) || rule.isKeywordSet()) continue;
+                if (rule.isSkip()) {
+                    throw new IllegalArgumentException("Identifier rule of " + keywordRule + " must not be skipped");
+                }
+                for (String word : keywordRule.getKeywords().getWords()) {
+                    if (!AutomatonCache.shared().matches(rule.getRegex(), word)) {
+                        throw new IllegalArgumentException("Keyword '" + word + "' is not matched by " + rule);
+                    }
+                }
+                return;
+            }
+            throw new IllegalArgumentException(
+                "Keyword set " + keywordRule + " needs a later rule of type " + keywordRule.getIdentifierType());
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.compiler.lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.compiler.lexer.dfa.TransitionTable;
+
+/**
+ * MappedFileTokenizer
+ * -------------------
+ * Tokenizes a file by memory-mapping it ({@link FileChannel#map}) and running
+ * the DFA directly over its bytes. ASCII bytes are fed to the DFA as they
+ * are; multi-byte UTF-8 sequences are decoded in place (characters outside
+ * the BMP are fed as their surrogate pair, invalid sequences as U+FFFD).
+ * <p>
+ * The file is never copied into a String: the produced {@link MappedToken}s
+ * reference byte offsets and lengths in the mapped buffer and decode their
+ * lexeme only when asked. Token positions are byte offsets. Files larger
+ * than 2 GB are not supported.
+ *
+ * Example usage:
+ * <pre>
+ *     List&lt;Token&gt; tokens = new MappedFileTokenizer(table).tokenize(path);
+ * </pre>
+ */
+public class MappedFileTokenizer {
+
+    private final TransitionTable table;
+
+    /**
+     * Constructs a tokenizer for memory-mapped files.
+     *
+     * @param table The transition table recognizing all token patterns.
+     */
+    public MappedFileTokenizer(TransitionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Maps a file read-only and tokenizes it.
+     *
+     * @param file The UTF-8 (or ASCII) file to tokenize.
+     * @return A list of tokens referencing the mapped file.
+     * @throws IOException If the file cannot be mapped.
+     * @throws RuntimeException If an invalid sequence is found.
+     */
+    public List<Token> tokenize(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File too large to map: " + file + " (" + size + " bytes)");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        return tokenize(buffer);
+    }
+
+    /**
+     * Tokenizes the bytes of a buffer, from index 0 to its limit.
+     *
+     * @param input The UTF-8 encoded input; it is never modified.
+     * @return A list of tokens referencing the buffer.
+     * @throws RuntimeException If an invalid sequence is found.
+     */
+    public List<Token> tokenize(ByteBuffer input) {
+        List<Token> tokens = new ArrayList<>();
+        AsciiSlice lexeme = new AsciiSlice();
+        int length = input.limit();
+        int position = 0;
+
+        while (position < length) {
+            int lastMatchEnd = -1;
+            int lastTokenId = TransitionTable.NO_TOKEN;
+            int state = table.getStartState();
+            int current = position;
+            boolean ascii = true;
+
+            // Traverse the DFA as far as possible (longest match)
+            while (current < length && state != TransitionTable.DEAD) {
+                int b = input.get(current);
+                if (b >= 0) {
+                    // ASCII fast path: the byte is the character
+                    state = table.next(state, (char) b);
+                    current++;
+                } else {
+                    ascii = false;
+                    int codePoint = decode(input, current, length);
+                    current += sequenceLength(input, current, length);
+                    if (Character.isBmpCodePoint(codePoint)) {
+                        state = table.next(state, (char) codePoint);
+                    } else {
+                        state = table.next(state, Character.highSurrogate(codePoint));
+                        if (state != TransitionTable.DEAD) {
+                            state = table.next(state, Character.lowSurrogate(codePoint));
+                        }
+                    }
+                }
+                if (state != TransitionTable.DEAD && table.isFinal(state)) {
+                    lastMatchEnd = current;
+                    lastTokenId = table.getTokenId(state);
+                }
+            }
+
+            if (lastMatchEnd == -1) {
+                int codePoint = input.get(position) >= 0 ? input.get(position) : decode(input, position, length);
+                throw new RuntimeException(
+                    "Unexpected character at position " + position + ": '" + new String(Character.toChars(codePoint)) + "'"
+                );
+            }
+
+            // Only add the token if it should not be ignored
+            if (lastTokenId != TransitionTable.NO_TOKEN && !table.isSkipToken(lastTokenId)) {
+                // Keyword tables look at the lexeme: ASCII bytes are its characters, anything else is decoded
+                lexeme.reset(input, position, lastMatchEnd);
+                CharSequence text = ascii ? lexeme : lexeme.decode();
+                lastTokenId = table.refineToken(lastTokenId, text, 0, text.length());
+                Token matched = table.getTokenById(lastTokenId);
+                tokens.add(new MappedToken(matched.getType(), input, position, lastMatchEnd - position, matched.getPattern()));
+            }
+
+            // Move to the next position after the matched lexeme
+            position = lastMatchEnd;
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Returns the number of bytes of the (possibly invalid) UTF-8 sequence at {@code index}.
+     */
+    private static int sequenceLength(ByteBuffer input, int index, int length) {
+        int lead = input.get(index) & 0xFF;
+        int expected = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        int n = 1;
+        while (n < expected && index + n < length && (input.get(index + n) & 0xC0) == 0x80) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Decodes the UTF-8 sequence at {@code index}, or U+FFFD if it is invalid.
+     */
+    private static int decode(ByteBuffer input, int index, int length) {
+        int lead = input.get(index) & 0xFF;
+        int n = sequenceLength(input, index, length);
+        int expected = lead >= 0xF8 ? 0 : lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 0;
+        if (n != expected) return 0xFFFD;
+        int codePoint = lead & (0x7F >> n);
+        for (int i = 1; i < n; i++) {
+            codePoint = (codePoint << 6) | (input.get(index + i) & 0x3F);
+        }
+        boolean overlong = (n == 2 && codePoint < 0x80) || (n == 3 && codePoint < 0x800) || (n == 4 && codePoint < 0x10000);
+        if (overlong || codePoint > Character.MAX_CODE_POINT || Character.isSurrogate((char) codePoint) && codePoint < 0x10000) {
+            return 0xFFFD;
+        }
+        return codePoint;
+    }
+
+    /**
+     * Reusable view of a lexeme in a byte buffer, one character per byte
+     * when the lexeme is ASCII.
+     */
+    private static final class AsciiSlice implements CharSequence {
+        private ByteBuffer source;
+        private int start;
+        private int end;
+
+        void reset(ByteBuffer source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) source.get(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes(), StandardCharsets.US_ASCII);
+        }
+
+        String decode() {
+            return new String(bytes(), StandardCharsets.UTF_8);
+        }
+
+        private byte[] bytes() {
+            byte[] bytes = new byte[end - start];
+            source.get(start, bytes);
+            return bytes;
+        }
+    }
+}
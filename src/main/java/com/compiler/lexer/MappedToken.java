@@ -0,0 +1,60 @@
+package com.compiler.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MappedToken
+ * -----------
+ * Token whose lexeme lives in a (memory-mapped) UTF-8 byte buffer.
+ * It only stores the byte offset and length of the lexeme; the String is
+ * decoded the first time {@link #getLexeme()} is called.
+ * {@link #getPosition()} returns the byte offset of the lexeme.
+ */
+public class MappedToken extends Token {
+    private final ByteBuffer source;
+    private final int length;
+    private String lexeme;
+
+    /**
+     * Constructs a token referencing a slice of a byte buffer.
+     *
+     * @param type    The type of the token.
+     * @param source  The buffer holding the input; it is never modified.
+     * @param offset  The byte offset of the lexeme.
+     * @param length  The length of the lexeme in bytes.
+     * @param pattern Optional pattern/regex that produced this token.
+     */
+    public MappedToken(String type, ByteBuffer source, int offset, int length, String pattern) {
+        super(type, null, offset, pattern);
+        this.source = source;
+        this.length = length;
+    }
+
+    /**
+     * Returns the byte offset of the lexeme (same as {@link #getPosition()}).
+     */
+    public int getOffset() {
+        return getPosition();
+    }
+
+    /**
+     * Returns the length of the lexeme in bytes.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Decodes the lexeme from the underlying buffer on first access.
+     */
+    @Override
+    public String getLexeme() {
+        if (lexeme == null) {
+            byte[] bytes = new byte[length];
+            source.get(getPosition(), bytes);
+            lexeme = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return lexeme;
+    }
+}
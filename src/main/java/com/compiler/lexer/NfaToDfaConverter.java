@@ -1,10 +1,14 @@
 package com.compiler.lexer;
 
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.compiler.lexer.dfa.DFA;
 import com.compiler.lexer.dfa.DfaState;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.nfa.FlatNfa;
 import com.compiler.lexer.nfa.NFA;
 import com.compiler.lexer.nfa.State;
 
@@ -13,9 +17,17 @@ import com.compiler.lexer.nfa.State;
  * -----------------
  * Converts a given NFA into an equivalent DFA
  * using the subset construction algorithm.
+ * The alphabet is first compressed into character classes
+ * ({@link AlphabetPartition}), so each DFA state is expanded
+ * once per class instead of once per character.
  */
 public class NfaToDfaConverter {
 
+    /**
+     * Token priority for final states (highest to lowest).
+     */
+    private static final List<String> PRIORITY = java.util.Arrays.asList("KEYWORD", "IDENTIFIER", "NUMBER");
+
     /**
      * Default constructor.
      * No initialization is required since all methods are static.
@@ -32,68 +44,71 @@ public class NfaToDfaConverter {
      * @return A DFA equivalent to the given NFA.
      */
     public static DFA convertNfaToDfa(NFA nfa, Set<Character> alphabet) {
-        // List of DFA states
-        List<DfaState> dfaStates = new java.util.ArrayList<>();
+        // Dense, array-based view of the NFA with cached epsilon-closures
+        FlatNfa flat = nfa.flatten();
 
-        // Define token priority for final states (highest to lowest)
-        String[] priority = {"KEYWORD", "IDENTIFIER", "NUMBER"};
+        // List of DFA states and the NFA subset each one stands for
+        List<DfaState> dfaStates = new java.util.ArrayList<>();
+        List<BitSet> subsets = new java.util.ArrayList<>();
 
         // Initial DFA state: epsilon-closure of the NFA start state
-        Set<State> startClosure = epsilonClosure(java.util.Collections.singleton(nfa.startState));
-        DfaState startDfaState = new DfaState(startClosure);
+        BitSet startClosure = new BitSet(flat.size());
+        flat.addClosure(flat.getStartState(), startClosure);
+        DfaState startDfaState = new DfaState(toStateSet(flat, startClosure));
         dfaStates.add(startDfaState);
+        subsets.add(startClosure);
+
+        // Index of DFA states (by position) keyed on their canonical subset
+        Map<SubsetKey, Integer> subsetIndex = new java.util.HashMap<>();
+        subsetIndex.put(SubsetKey.of(startClosure), 0);
 
-        // Queue for processing unmarked DFA states
-        java.util.Queue<DfaState> queue = new java.util.LinkedList<>();
-        queue.add(startDfaState);
+        // Characters that no transition can tell apart are processed together
+        AlphabetPartition classes = AlphabetPartition.fromNfa(flat, alphabet);
+        char[][] members = new char[classes.getClassCount()][];
+        for (int cls = 0; cls < members.length; cls++) {
+            members[cls] = classes.getMembers(cls);
+        }
 
-        while (!queue.isEmpty()) {
-            DfaState currentDfa = queue.poll();
+        // Unmarked DFA states are processed in creation order
+        BitSet target = new BitSet(flat.size());
+        for (int current = 0; current < dfaStates.size(); current++) {
+            DfaState currentDfa = dfaStates.get(current);
 
-            // Process each symbol in the alphabet
-            for (char symbol : alphabet) {
-                Set<State> moveResult = move(currentDfa.getNfaStates(), symbol);
-                Set<State> closureResult = epsilonClosure(moveResult);
+            // Process each character class of the alphabet
+            for (int cls = 0; cls < members.length; cls++) {
+                flat.step(subsets.get(current), classes.getRepresentative(cls), target);
 
-                if (closureResult.isEmpty()) continue;
+                if (target.isEmpty()) continue;
 
                 // Check if this set of NFA states already corresponds to an existing DFA state
-                DfaState existing = findDfaState(dfaStates, closureResult);
+                SubsetKey key = SubsetKey.of(target);
+                Integer existing = subsetIndex.get(key);
                 if (existing == null) {
-                    DfaState newDfa = new DfaState(closureResult);
-                    dfaStates.add(newDfa);
-                    queue.add(newDfa);
-                    existing = newDfa;
+                    BitSet subset = (BitSet) target.clone();
+                    existing = dfaStates.size();
+                    subsetIndex.put(key, existing);
+                    dfaStates.add(new DfaState(toStateSet(flat, subset)));
+                    subsets.add(subset);
                 }
 
-                // Add DFA transition
-                currentDfa.addTransition(symbol, existing);
+                // Add DFA transitions for every character of the class
+                DfaState next = dfaStates.get(existing);
+                for (char member : members[cls]) {
+                    currentDfa.addTransition(member, next);
+                }
             }
         }
 
         // Mark DFA states as final if any of their NFA states are final
-        for (DfaState dfa : dfaStates) {
-            boolean anyFinal = false;
-            Token selectedToken = null;
-            int highestPriority = priority.length;
-
-            for (State nfaState : dfa.getNfaStates()) {
-                if (nfaState.isFinal()) {
-                    anyFinal = true;
-
-                    // Optional token selection by priority
-                    String type = nfaState.getTokenType(); // assumed available
-                    int pr = java.util.Arrays.asList(priority).indexOf(type);
-                    if (pr != -1 && pr < highestPriority) {
-                        selectedToken = new Token(type, "", -1);
-                        highestPriority = pr;
-                    }
-                }
-            }
+        for (int i = 0; i < dfaStates.size(); i++) {
+            DfaState dfa = dfaStates.get(i);
+            BitSet subset = subsets.get(i);
 
             //Always mark end if there is a final NFA, even if no token is selected.
+            boolean anyFinal = containsFinal(flat, subset);
             dfa.setFinal(anyFinal);
-            if (anyFinal && selectedToken != null) {
+            Token selectedToken = anyFinal ? selectToken(flat, subset) : null;
+            if (selectedToken != null) {
                 dfa.setToken(selectedToken);
             }
         }
@@ -101,58 +116,169 @@ public class NfaToDfaConverter {
     }
 
     /**
-     * Computes the epsilon-closure of a set of NFA states.
+     * Converts an NFA directly into a {@link PackedDfa}, without building
+     * DfaState objects or restricting the alphabet. Each state is expanded
+     * once per character class, so large ranges cost no more than a single
+     * character. The result is not minimized.
      *
-     * @param states The initial set of NFA states.
-     * @return The epsilon-closure including all states reachable via epsilon transitions.
+     * @param nfa The NFA to be converted.
+     * @return A packed DFA equivalent to the given NFA.
      */
-    private static Set<State> epsilonClosure(Set<State> states) {
-        Set<State> closure = new java.util.HashSet<>(states);
-        java.util.Stack<State> stack = new java.util.Stack<>();
-        for (State s : states) stack.push(s);
-
-        while (!stack.isEmpty()) {
-            State state = stack.pop();
-            for (State target : state.getEpsilonTransitions()) {
-                if (!closure.contains(target)) {
-                    closure.add(target);
-                    stack.push(target);
+    public static PackedDfa convertToPacked(NFA nfa) {
+        FlatNfa flat = nfa.flatten();
+        AlphabetPartition classes = AlphabetPartition.fromNfa(flat, null);
+        int k = classes.getClassCount();
+
+        List<BitSet> subsets = new java.util.ArrayList<>();
+        Map<SubsetKey, Integer> subsetIndex = new java.util.HashMap<>();
+        BitSet startClosure = new BitSet(flat.size());
+        flat.addClosure(flat.getStartState(), startClosure);
+        subsets.add(startClosure);
+        subsetIndex.put(SubsetKey.of(startClosure), 0);
+
+        // Subset construction, one representative character per class
+        int[] next = new int[Math.max(1, 16 * k)];
+        BitSet target = new BitSet(flat.size());
+        for (int current = 0; current < subsets.size(); current++) {
+            if ((current + 1) * k > next.length) {
+                next = java.util.Arrays.copyOf(next, next.length * 2);
+            }
+            for (int cls = 0; cls < k; cls++) {
+                flat.step(subsets.get(current), classes.getRepresentative(cls), target);
+                if (target.isEmpty()) {
+                    next[current * k + cls] = PackedDfa.DEAD;
+                    continue;
+                }
+                SubsetKey key = SubsetKey.of(target);
+                Integer existing = subsetIndex.get(key);
+                if (existing == null) {
+                    existing = subsets.size();
+                    subsetIndex.put(key, existing);
+                    subsets.add((BitSet) target.clone());
                 }
+                next[current * k + cls] = existing;
             }
         }
-        return closure;
+
+        // Final states and their tokens
+        int n = subsets.size();
+        boolean[] accepting = new boolean[n];
+        Token[] tokens = new Token[n];
+        for (int s = 0; s < n; s++) {
+            accepting[s] = containsFinal(flat, subsets.get(s));
+            tokens[s] = accepting[s] ? selectToken(flat, subsets.get(s)) : null;
+        }
+        return PackedDfa.fromTables(classes, n, 0, next, accepting, tokens);
     }
 
     /**
-     * Computes the set of NFA states reachable from a given set of states
-     * on a specific input symbol.
+     * Checks if a set of NFA states contains a final state.
      *
-     * @param states The current set of NFA states.
-     * @param symbol The input symbol to process.
-     * @return The set of reachable NFA states.
+     * @param flat The flat view of the NFA.
+     * @param subset The set of NFA states (dense IDs).
+     * @return True if any of the states is final.
      */
-    private static Set<State> move(Set<State> states, char symbol) {
-        Set<State> result = new java.util.HashSet<>();
-        for (State state : states) {
-            for (State target : state.getTransitions(symbol)) {
-                result.add(target);
-            }
+    static boolean containsFinal(FlatNfa flat, BitSet subset) {
+        for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+            if (flat.isFinal(s)) return true;
         }
-        return result;
+        return false;
     }
 
     /**
-     * Searches for an existing DFA state that corresponds to
-     * the given set of NFA states.
+     * Selects the token of a set of NFA states by priority: the lowest rule
+     * ID for states of a {@link LexerSpec}, otherwise KEYWORD > IDENTIFIER > NUMBER.
      *
-     * @param dfaStates The list of DFA states created so far.
-     * @param targetNfaStates The set of NFA states to search for.
-     * @return The matching DFA state if found, otherwise {@code null}.
+     * @param flat The flat view of the NFA.
+     * @param subset The set of NFA states (dense IDs).
+     * @return The token of highest priority, or null if no final state has a known token type.
      */
-    private static DfaState findDfaState(List<DfaState> dfaStates, Set<State> targetNfaStates) {
-        for (DfaState dfa : dfaStates) {
-            if (dfa.getNfaStates().equals(targetNfaStates)) return dfa;
+    static Token selectToken(FlatNfa flat, BitSet subset) {
+        State selectedState = null;
+        int highestPriority = Integer.MAX_VALUE;
+
+        for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+            State nfaState = flat.getState(s);
+            if (nfaState.isFinal()) {
+                // Optional token selection by priority
+                int pr = priorityOf(nfaState.getTokenType(), nfaState.getRule());
+                if (pr != -1 && pr < highestPriority) {
+                    selectedState = nfaState;
+                    highestPriority = pr;
+                }
+            }
+        }
+        if (selectedState == null) return null;
+        return tokenOf(selectedState.getTokenType(), selectedState.getRule(), selectedState.isSkip());
+    }
+
+    /**
+     * Returns the priority of an accepting position (lower wins): the rule
+     * ID if there is one, otherwise the legacy type priority, or -1 if the
+     * type yields no token.
+     */
+    static int priorityOf(String type, int rule) {
+        return rule >= 0 ? rule : PRIORITY.indexOf(type);
+    }
+
+    /**
+     * Creates the token stored in a DFA state for an accepting type and rule.
+     */
+    static Token tokenOf(String type, int rule, boolean skip) {
+        return rule >= 0 ? new Token(type, "", -1, null, rule, skip) : new Token(type, "", -1);
+    }
+
+    /**
+     * Materializes a set of dense IDs as the set of NFA states used by DfaState.
+     */
+    private static Set<State> toStateSet(FlatNfa flat, BitSet subset) {
+        Set<State> states = new java.util.HashSet<>();
+        for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+            states.add(flat.getState(s));
+        }
+        return states;
+    }
+
+    /**
+     * Canonical key for a set of NFA states: the sorted dense state IDs
+     * with a precomputed hash, so each lookup costs O(|set|) instead
+     * of comparing against every DFA state created so far.
+     */
+    static final class SubsetKey {
+        private final int[] ids;
+        private final int hash;
+
+        /**
+         * Builds the key of a set given as sorted dense IDs.
+         *
+         * @param ids The sorted dense IDs; the array is kept, not copied.
+         */
+        SubsetKey(int[] ids) {
+            this.ids = ids;
+            this.hash = java.util.Arrays.hashCode(ids);
+        }
+
+        /**
+         * Builds the key of a set of NFA states.
+         *
+         * @param states The set of NFA states (dense IDs).
+         * @return The canonical key of the set.
+         */
+        static SubsetKey of(BitSet states) {
+            return new SubsetKey(states.stream().toArray());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SubsetKey)) return false;
+            SubsetKey other = (SubsetKey) o;
+            return hash == other.hash && java.util.Arrays.equals(ids, other.ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
         }
-        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,233 @@
+package com.compiler.lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.compiler.lexer.dfa.TransitionTable;
+
+/**
+ * ParallelTokenizer
+ * -----------------
+ * Tokenizes large inputs on several cores. The input is cut into chunks at
+ * line starts and every chunk is lexed speculatively on a ForkJoinPool, as
+ * if a token began at the chunk start. The chunks are then stitched in
+ * order: since the longest-match scan from a given position never depends
+ * on what came before, the sequential scan and a speculative scan agree
+ * from the first token start they share onward. When the true scan enters a
+ * chunk at a position that is not one of its speculative token starts, it
+ * re-lexes sequentially until it lands on one (or leaves the chunk).
+ * <p>
+ * The result is identical to {@link Tokenizer#tokenize(String)}, including
+ * the exception thrown for an unexpected character. Only
+ * {@link com.compiler.lexer.dfa.PackedDfa} (or any other thread-safe
+ * table) may be shared between threads; a {@link LazyDfa} may not.
+ *
+ * Example usage:
+ * <pre>
+ *     TokenStream tokens = new ParallelTokenizer(table).tokenizeToStream(input);
+ * </pre>
+ */
+public class ParallelTokenizer {
+    /**
+     * Default minimum chunk size in characters.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final Tokenizer tokenizer;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Constructs a parallel tokenizer on the common ForkJoinPool.
+     *
+     * @param table A thread-safe transition table recognizing all token patterns.
+     */
+    public ParallelTokenizer(TransitionTable table) {
+        this(table, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a parallel tokenizer.
+     *
+     * @param table     A thread-safe transition table recognizing all token patterns.
+     * @param pool      The pool that lexes the chunks.
+     * @param chunkSize Minimum number of characters per chunk.
+     */
+    public ParallelTokenizer(TransitionTable table, ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.tokenizer = new Tokenizer(table);
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Tokenizes the input string in parallel.
+     *
+     * @param input The input string to tokenize.
+     * @return A list of tokens, identical to the sequential result.
+     * @throws RuntimeException If an invalid sequence is found.
+     */
+    public List<Token> tokenize(String input) {
+        return new ArrayList<>(tokenizeToStream(input).asList());
+    }
+
+    /**
+     * Tokenizes the input in parallel into a compact {@link TokenStream}.
+     *
+     * @param input The input text to tokenize.
+     * @return The stream of (non-skipped) tokens, identical to the sequential result.
+     * @throws RuntimeException If an invalid sequence is found.
+     */
+    public TokenStream tokenizeToStream(CharSequence input) {
+        int[] bounds = chunkBounds(input);
+        int chunks = bounds.length - 1;
+        if (chunks == 1) {
+            return tokenizer.tokenizeToStream(input);
+        }
+
+        // Step 1: Speculative lexing of every chunk, keeping skipped tokens as boundaries
+        Chunk[] results = new Chunk[chunks];
+        pool.invoke(new LexChunks(tokenizer, input, bounds, results, 0, chunks));
+
+        // Step 2: Stitch the chunks following the true token boundaries
+        TokenStream out = new TokenStream(input, tokenizer.getTable(), Math.max(16, input.length() / 8));
+        TokenStream repair = new TokenStream(input, tokenizer.getTable());
+        int position = 0;
+        for (Chunk chunk : results) {
+            if (position >= chunk.end) continue; // a previous token covered the whole chunk
+            int first = chunk.indexOfStart(position);
+            while (first < 0 && position < chunk.end) {
+                // Misaligned entry: re-lex one token at a time until we land on a speculative start
+                repair.truncate(0);
+                position = tokenizer.scan(input, position, position + 1, repair, true);
+                copy(repair, 0, repair.size(), out);
+                first = chunk.indexOfStart(position);
+            }
+            if (first < 0) continue;
+            copy(chunk.tokens, first, chunk.tokens.size(), out);
+            position = chunk.scanEnd;
+            if (chunk.error != null) {
+                throw chunk.error; // the true scan reaches the failing position too
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Splits the input into chunks, preferring to start each one right after
+     * a newline (a likely token start). Any cut point is correct, a newline
+     * only makes it more likely that no repair is needed.
+     */
+    private int[] chunkBounds(CharSequence input) {
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        int length = input.length();
+        int next = chunkSize;
+        while (next < length) {
+            int cut = next;
+            int window = Math.min(length, next + Math.max(1, chunkSize / 16));
+            while (cut < window && input.charAt(cut - 1) != '\n') cut++;
+            if (cut == window) cut = next; // no newline nearby: cut anyway
+            if (cut >= length) break;
+            bounds.add(cut);
+            next = cut + chunkSize;
+        }
+        bounds.add(length);
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Copies the non-skipped tokens {@code [start, end)} of a stream.
+     */
+    private static void copy(TokenStream from, int start, int end, TokenStream to) {
+        for (int i = start; i < end; i++) {
+            if (!from.isSkipped(i)) {
+                to.add(from.getTokenId(i), from.getStart(i), from.getLength(i));
+            }
+        }
+    }
+
+    /**
+     * Speculative result of one chunk: every token (skipped ones included)
+     * starting in the chunk, from its first character up to an error if any.
+     */
+    private static final class Chunk {
+        final int end;
+        final TokenStream tokens;
+        int scanEnd;
+        RuntimeException error;
+
+        Chunk(int end, TokenStream tokens) {
+            this.end = end;
+            this.tokens = tokens;
+        }
+
+        /**
+         * Returns the index of the speculative token starting at a position,
+         * the token count if the position is where the scan stopped, or -1.
+         */
+        int indexOfStart(int position) {
+            int lo = 0;
+            int hi = tokens.size() - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int start = tokens.getStart(mid);
+                if (start < position) lo = mid + 1;
+                else if (start > position) hi = mid - 1;
+                else return mid;
+            }
+            return position == scanEnd ? tokens.size() : -1;
+        }
+    }
+
+    /**
+     * Fork/join task that lexes a range of chunks.
+     */
+    private static final class LexChunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Tokenizer tokenizer;
+        private final transient CharSequence input;
+        private final int[] bounds;
+        private final transient Chunk[] results;
+        private final int from;
+        private final int to;
+
+        LexChunks(Tokenizer tokenizer, CharSequence input, int[] bounds, Chunk[] results, int from, int to) {
+            this.tokenizer = tokenizer;
+            this.input = input;
+            this.bounds = bounds;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LexChunks(tokenizer, input, bounds, results, from, mid),
+                          new LexChunks(tokenizer, input, bounds, results, mid, to));
+                return;
+            }
+            int start = bounds[from];
+            int end = bounds[from + 1];
+            Chunk chunk = new Chunk(end, new TokenStream(input, tokenizer.getTable(), Math.max(16, (end - start) / 4)));
+            chunk.scanEnd = start;
+            try {
+                chunk.scanEnd = tokenizer.scan(input, start, end, chunk.tokens, true);
+            } catch (RuntimeException e) {
+                // Keep what was lexed; the error only matters if the true scan gets there
+                chunk.error = e;
+                chunk.scanEnd = chunk.tokens.size() == 0
+                    ? start
+                    : chunk.tokens.getEnd(chunk.tokens.size() - 1);
+            }
+            results[from] = chunk;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.compiler.lexer;
+
+import com.compiler.lexer.nfa.FlatNfa;
+import com.compiler.lexer.nfa.NFA;
+
+/**
+ * PikeVmSimulator
+ * ---------------
+ * Thompson-style NFA simulator in the manner of a Pike VM: the current and
+ * next state lists are sparse sets over the dense state IDs of a
+ * {@link FlatNfa}, allocated once and reused for every step. A state is
+ * added together with its epsilon-closure by an explicit-stack depth-first
+ * search that stops at states already in the list, so every state is
+ * visited at most once per step, there is no recursion and no allocation
+ * per input character. Matching a string of length n on an NFA with m
+ * states and e transitions costs O(n·(m + e)). The precomputed closures of
+ * {@link FlatNfa} are not used here: adding whole closures would revisit
+ * the states they share, up to O(m²) per character.
+ * <p>
+ * An instance is bound to one NFA and is not thread-safe; use one simulator
+ * per thread. The NFA must not gain new transitions after construction.
+ *
+ * Example usage:
+ * <pre>
+ *     PikeVmSimulator vm = new PikeVmSimulator(nfa);
+ *     boolean accepted = vm.matches("inputString");
+ * </pre>
+ */
+public class PikeVmSimulator {
+
+    private final FlatNfa nfa;
+    private SparseSet current;
+    private SparseSet next;
+    private final int[] stack;
+
+    /**
+     * Constructs a simulator for the given NFA.
+     *
+     * @param nfa The NFA to simulate.
+     */
+    public PikeVmSimulator(NFA nfa) {
+        this(nfa.flatten());
+    }
+
+    /**
+     * Constructs a simulator for an already flattened NFA.
+     *
+     * @param nfa The flat view of the NFA to simulate.
+     */
+    public PikeVmSimulator(FlatNfa nfa) {
+        this.nfa = nfa;
+        this.current = new SparseSet(nfa.size());
+        this.next = new SparseSet(nfa.size());
+        this.stack = new int[nfa.size()];
+    }
+
+    /**
+     * Checks if the whole input is accepted by the NFA.
+     *
+     * @param input The input to test.
+     * @return True if the input is accepted, false otherwise.
+     */
+    public boolean matches(CharSequence input) {
+        start();
+        for (int i = 0; i < input.length() && current.size > 0; i++) {
+            step(input.charAt(i));
+        }
+        return containsFinal();
+    }
+
+    /**
+     * Finds the longest prefix of {@code input[start..]} accepted by the NFA.
+     *
+     * @param input The input text.
+     * @param start The position where the match must begin.
+     * @return The end (exclusive) of the longest match ({@code start} for an
+     *         empty match), or -1 if no prefix matches.
+     */
+    public int longestMatch(CharSequence input, int start) {
+        if (start < 0 || start > input.length()) throw new IndexOutOfBoundsException(start);
+        start();
+        int lastMatchEnd = containsFinal() ? start : -1;
+        for (int i = start; i < input.length() && current.size > 0; i++) {
+            step(input.charAt(i));
+            if (containsFinal()) {
+                lastMatchEnd = i + 1;
+            }
+        }
+        return lastMatchEnd;
+    }
+
+    /**
+     * Resets the current list to the epsilon-closure of the start state.
+     */
+    private void start() {
+        current.clear();
+        addThread(current, nfa.getStartState());
+    }
+
+    /**
+     * Advances every thread of the current list over one character.
+     */
+    private void step(char symbol) {
+        next.clear();
+        for (int i = 0; i < current.size; i++) {
+            int s = current.dense[i];
+            for (int e = nfa.symbolEdgesFrom(s); e < nfa.symbolEdgesTo(s); e++) {
+                if (nfa.edgeLo(e) <= symbol && symbol <= nfa.edgeHi(e)) {
+                    addThread(next, nfa.edgeTarget(e));
+                }
+            }
+        }
+        SparseSet swap = current;
+        current = next;
+        next = swap;
+    }
+
+    /**
+     * Adds a state and the states reachable from it through epsilon
+     * transitions, without revisiting states already in the list.
+     */
+    private void addThread(SparseSet list, int state) {
+        if (list.contains(state)) return;
+        list.add(state);
+        int top = 0;
+        stack[top++] = state;
+        while (top > 0) {
+            int s = stack[--top];
+            for (int e = nfa.epsilonEdgesFrom(s); e < nfa.epsilonEdgesTo(s); e++) {
+                int target = nfa.epsilonTarget(e);
+                if (!list.contains(target)) {
+                    list.add(target);
+                    stack[top++] = target;
+                }
+            }
+        }
+    }
+
+    private boolean containsFinal() {
+        for (int i = 0; i < current.size; i++) {
+            if (nfa.isFinal(current.dense[i])) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sparse set over 0..capacity-1 with O(1) add, membership test and clear
+     * (Briggs and Torczon); iteration follows insertion order.
+     */
+    private static final class SparseSet {
+        final int[] dense;
+        final int[] sparse;
+        int size;
+
+        SparseSet(int capacity) {
+            dense = new int[capacity];
+            sparse = new int[capacity];
+        }
+
+        boolean contains(int value) {
+            int i = sparse[value];
+            return i < size && dense[i] == value;
+        }
+
+        void add(int value) {
+            if (contains(value)) return;
+            dense[size] = value;
+            sparse[value] = size++;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.compiler.lexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.compiler.lexer.dfa.TransitionTable;
+
+/**
+ * StreamingTokenizer
+ * ------------------
+ * Pull-based tokenizer over a {@link Reader} or NIO channel. Characters are
+ * read into a sliding buffer: consumed input is discarded as tokens are
+ * produced, and the buffer only grows when a single lexeme (plus the
+ * lookahead needed for the longest match) does not fit. Peak memory is
+ * therefore proportional to the buffer size, not to the input size.
+ * <p>
+ * Produces the same tokens as {@link Tokenizer#tokenize(String)}, in order,
+ * through {@link #nextToken()}, the {@link Iterator} interface or
+ * {@link #stream()}. I/O errors are rethrown as {@link UncheckedIOException}.
+ *
+ * Example usage:
+ * <pre>
+ *     try (StreamingTokenizer tokens = new StreamingTokenizer(table, reader)) {
+ *         while (tokens.hasNext()) process(tokens.next());
+ *     }
+ * </pre>
+ */
+public class StreamingTokenizer implements Iterator<Token>, Closeable {
+    /**
+     * Default size of the character buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final TransitionTable table;
+    private final Reader reader;
+
+    private char[] buffer;
+    private int bufferOffset; // position in the input of buffer[0]
+    private int start;        // buffer index of the next token
+    private int limit;        // number of valid characters in the buffer
+    private boolean eof;
+    private Token pending;
+
+    /**
+     * Constructs a streaming tokenizer with the default buffer size.
+     *
+     * @param table  The transition table recognizing all token patterns.
+     * @param reader The source of characters.
+     */
+    public StreamingTokenizer(TransitionTable table, Reader reader) {
+        this(table, reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a streaming tokenizer.
+     *
+     * @param table      The transition table recognizing all token patterns.
+     * @param reader     The source of characters.
+     * @param bufferSize Initial size of the character buffer.
+     */
+    public StreamingTokenizer(TransitionTable table, Reader reader, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.table = table;
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Constructs a streaming tokenizer that decodes bytes from a channel.
+     *
+     * @param table   The transition table recognizing all token patterns.
+     * @param channel The source of bytes.
+     * @param charset The charset of the input.
+     * @return A tokenizer reading from the channel.
+     */
+    public static StreamingTokenizer fromChannel(TransitionTable table, ReadableByteChannel channel, Charset charset) {
+        return new StreamingTokenizer(table, Channels.newReader(channel, charset.newDecoder(), -1));
+    }
+
+    /**
+     * Returns the next token, or null at the end of the input.
+     *
+     * @return The next (non-skipped) token.
+     * @throws RuntimeException If an invalid sequence is found.
+     */
+    public Token nextToken() {
+        if (pending != null) {
+            Token token = pending;
+            pending = null;
+            return token;
+        }
+        while (true) {
+            if (start == limit && !fill()) {
+                return null;
+            }
+
+            int lastMatchEnd = -1;
+            int lastTokenId = TransitionTable.NO_TOKEN;
+            int state = table.getStartState();
+            int i = start;
+
+            // Traverse the DFA as far as possible (longest match), refilling as needed
+            while (true) {
+                if (i == limit) {
+                    int before = start;
+                    boolean more = fill();
+                    int shift = before - start; // compaction moves the token to index 0
+                    i -= shift;
+                    if (lastMatchEnd != -1) lastMatchEnd -= shift;
+                    if (!more) break;
+                }
+                state = table.next(state, buffer[i]);
+                if (state == TransitionTable.DEAD) break;
+                i++;
+                if (table.isFinal(state)) {
+                    lastMatchEnd = i;
+                    lastTokenId = table.getTokenId(state);
+                }
+            }
+
+            if (lastMatchEnd == -1) {
+                throw new RuntimeException(
+                    "Unexpected character at position " + (bufferOffset + start) + ": '" + buffer[start] + "'"
+                );
+            }
+
+            int tokenStart = start;
+            start = lastMatchEnd;
+            if (lastTokenId != TransitionTable.NO_TOKEN && !table.isSkipToken(lastTokenId)) {
+                String lexeme = new String(buffer, tokenStart, lastMatchEnd - tokenStart);
+                Token matched = table.getTokenById(table.refineToken(lastTokenId, lexeme, 0, lexeme.length()));
+                return new Token(matched.getType(), lexeme, bufferOffset + tokenStart, matched.getPattern());
+            }
+        }
+    }
+
+    /**
+     * Reads more characters. Consumed characters (before the current token)
+     * are dropped first; the buffer grows only if it is full of pending input.
+     *
+     * @return False if the end of the input was reached and nothing was read.
+     */
+    private boolean fill() {
+        if (eof) return false;
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            bufferOffset += start;
+            limit -= start;
+            start = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        try {
+            int read;
+            do {
+                read = reader.read(buffer, limit, buffer.length - limit);
+            } while (read == 0);
+            if (read < 0) {
+                eof = true;
+                return false;
+            }
+            limit += read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (pending == null) {
+            pending = nextToken();
+        }
+        return pending != null;
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Token token = pending;
+        pending = null;
+        return token;
+    }
+
+    /**
+     * Returns the remaining tokens as a sequential, ordered stream.
+     * Closing the stream closes the underlying reader.
+     */
+    public Stream<Token> stream() {
+        Spliterator<Token> spliterator = Spliterators.spliteratorUnknownSize(
+            this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Returns the current capacity of the character buffer.
+     */
+    public int getBufferCapacity() {
+        return buffer.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
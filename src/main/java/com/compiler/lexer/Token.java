@@ -9,12 +9,16 @@ package com.compiler.lexer;
  *   - The lexeme (the exact substring from the input)
  *   - The position (index in the input string for error reporting)
  *   - Optional pattern info (useful for debugging or optional parts)
+ *   - For tokens defined by a {@link LexerSpec} rule: the rule ID (its
+ *     priority) and whether the tokenizer discards it
  */
 public class Token {
     private final String type;
     private final String lexeme;
     private final int position; // index in the input string
     private final String pattern; // optional: pattern/regex that generated this token
+    private final int rule; // LexerSpec rule ID, or -1
+    private final boolean skip; // only meaningful for rule tokens
 
     /**
      * Constructs a new Token with type, lexeme, and position.
@@ -36,10 +40,26 @@ public class Token {
      * @param pattern  Optional pattern/regex that produced this token.
      */
     public Token(String type, String lexeme, int position, String pattern) {
+        this(type, lexeme, position, pattern, -1, false);
+    }
+
+    /**
+     * Constructs a new Token produced by a lexer specification rule.
+     *
+     * @param type     The type of the token.
+     * @param lexeme   The exact substring matched.
+     * @param position The starting index in the input string.
+     * @param pattern  Optional pattern/regex that produced this token.
+     * @param rule     The rule ID (lower wins conflicts), or -1 for none.
+     * @param skip     Whether the tokenizer discards tokens of this rule.
+     */
+    public Token(String type, String lexeme, int position, String pattern, int rule, boolean skip) {
         this.type = type;
         this.lexeme = lexeme;
         this.position = position;
         this.pattern = pattern;
+        this.rule = rule;
+        this.skip = skip;
     }
 
     /**
@@ -70,11 +90,29 @@ public class Token {
         return pattern;
     }
 
+    /**
+     * Returns the ID of the rule that defines this token, or -1 if it does
+     * not come from a {@link LexerSpec}.
+     */
+    public int getRule() {
+        return rule;
+    }
+
+    /**
+     * Checks if the tokenizer discards tokens of this kind. Rule tokens use
+     * the rule's flag; other tokens are skipped if they are WHITESPACE or COMMENT.
+     */
+    public boolean isSkip() {
+        return rule >= 0 ? skip : "WHITESPACE".equals(type) || "COMMENT".equals(type);
+    }
+
     /**
      * Returns the priority of the token for DFA state resolution.
-     * Lower number = higher priority (KEYWORD > IDENTIFIER > NUMBER).
+     * Lower number = higher priority: the rule ID for rule tokens,
+     * otherwise KEYWORD > IDENTIFIER > NUMBER.
      */
     public int getPriority() {
+        if (rule >= 0) return rule;
         switch (type) {
             case "KEYWORD": return 0;
             case "IDENTIFIER": return 1;
@@ -85,7 +123,7 @@ public class Token {
 
     @Override
     public String toString() {
-        return "Token(type=" + type + ", lexeme=\"" + lexeme + "\", position=" + position +
+        return "Token(type=" + type + ", lexeme=\"" + getLexeme() + "\", position=" + position +
                (pattern != null ? ", pattern=\"" + pattern + "\"" : "") + ")";
     }
 }
\ No newline at end of file
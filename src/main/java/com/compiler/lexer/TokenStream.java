@@ -0,0 +1,205 @@
+package com.compiler.lexer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.compiler.lexer.dfa.TransitionTable;
+
+/**
+ * TokenStream
+ * -----------
+ * Compact, struct-of-arrays sequence of tokens. Each token is stored as a
+ * token ID, a start offset and a length in three growable {@code int[]}
+ * arrays (12 bytes per token) instead of a Token object plus a substring.
+ * Token types and patterns are looked up in the transition table that
+ * produced the stream, and lexemes are only extracted from the source when
+ * requested.
+ * <p>
+ * {@link #asList()} adapts the stream to callers that expect a
+ * {@code List<Token>}; its tokens are created on access.
+ */
+public class TokenStream {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final CharSequence source;
+    private final TransitionTable table;
+    private int[] tokenIds;
+    private int[] starts;
+    private int[] lengths;
+    private int size;
+
+    /**
+     * Constructs an empty token stream over a source text.
+     *
+     * @param source The text the tokens refer to.
+     * @param table  The transition table whose token IDs are stored.
+     */
+    public TokenStream(CharSequence source, TransitionTable table) {
+        this(source, table, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty token stream with an initial capacity.
+     *
+     * @param source   The text the tokens refer to.
+     * @param table    The transition table whose token IDs are stored.
+     * @param capacity The initial number of tokens that fit without growing.
+     */
+    public TokenStream(CharSequence source, TransitionTable table, int capacity) {
+        this.source = source;
+        this.table = table;
+        int initial = Math.max(1, capacity);
+        this.tokenIds = new int[initial];
+        this.starts = new int[initial];
+        this.lengths = new int[initial];
+    }
+
+    /**
+     * Appends a token.
+     *
+     * @param tokenId The token ID in the transition table ({@link TransitionTable#NO_TOKEN} allowed).
+     * @param start   The start offset of the lexeme in the source.
+     * @param length  The length of the lexeme.
+     */
+    public void add(int tokenId, int start, int length) {
+        if (size == tokenIds.length) {
+            int capacity = size * 2;
+            tokenIds = Arrays.copyOf(tokenIds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        tokenIds[size] = tokenId;
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    /**
+     * Removes every token from index {@code from} onwards.
+     */
+    public void truncate(int from) {
+        if (from < 0 || from > size) throw new IndexOutOfBoundsException(from);
+        size = from;
+    }
+
+    /**
+     * Returns the number of tokens.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the source text.
+     */
+    public CharSequence getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the transition table that defines the token IDs.
+     */
+    public TransitionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the token ID of the i-th token.
+     */
+    public int getTokenId(int i) {
+        checkIndex(i);
+        return tokenIds[i];
+    }
+
+    /**
+     * Returns the type of the i-th token, or null if it has no token.
+     */
+    public String getType(int i) {
+        int id = getTokenId(i);
+        return id == TransitionTable.NO_TOKEN ? null : table.getTokenById(id).getType();
+    }
+
+    /**
+     * Returns the start offset of the i-th token.
+     */
+    public int getStart(int i) {
+        checkIndex(i);
+        return starts[i];
+    }
+
+    /**
+     * Returns the length of the i-th token.
+     */
+    public int getLength(int i) {
+        checkIndex(i);
+        return lengths[i];
+    }
+
+    /**
+     * Returns the end offset (exclusive) of the i-th token.
+     */
+    public int getEnd(int i) {
+        checkIndex(i);
+        return starts[i] + lengths[i];
+    }
+
+    /**
+     * Checks if the i-th token is one the Tokenizer would discard.
+     */
+    public boolean isSkipped(int i) {
+        int id = getTokenId(i);
+        return id == TransitionTable.NO_TOKEN || table.isSkipToken(id);
+    }
+
+    /**
+     * Extracts the lexeme of the i-th token from the source.
+     */
+    public String getLexeme(int i) {
+        checkIndex(i);
+        return source.subSequence(starts[i], starts[i] + lengths[i]).toString();
+    }
+
+    /**
+     * Creates a Token object for the i-th token.
+     */
+    public Token getToken(int i) {
+        int id = getTokenId(i);
+        Token type = id == TransitionTable.NO_TOKEN ? null : table.getTokenById(id);
+        return new Token(type == null ? null : type.getType(), getLexeme(i), starts[i],
+                         type == null ? null : type.getPattern());
+    }
+
+    /**
+     * Returns a read-only {@code List<Token>} view of the stream.
+     * Tokens are created on every access; the view reflects later additions.
+     */
+    public List<Token> asList() {
+        return new TokenListView();
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+    }
+
+    @Override
+    public String toString() {
+        return "TokenStream{size=" + size + "}";
+    }
+
+    /**
+     * Adapter for legacy {@code List<Token>} callers.
+     */
+    private final class TokenListView extends AbstractList<Token> implements RandomAccess {
+        @Override
+        public Token get(int index) {
+            return getToken(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.compiler.lexer;
 
 import com.compiler.lexer.dfa.DFA;
-import com.compiler.lexer.dfa.DfaState;
+import com.compiler.lexer.dfa.DfaMatcher;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.dfa.TransitionTable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,18 +13,43 @@ import java.util.List;
  * ----------
  * Uses a DFA to tokenize an input string.
  * Applies the "longest match" rule to produce a list of tokens
- * from the input string, skipping unrecognized characters.
+ * from the input string, dropping the tokens the table marks as skipped
+ * ({@link TransitionTable#isSkipToken}): skip rules of a {@link LexerSpec},
+ * or WHITESPACE and COMMENT in the legacy priority scheme.
+ * The DFA is driven through its packed form ({@link PackedDfa}),
+ * so the scan loop only performs array lookups. Tables that compile their
+ * own matching loop ({@link DfaMatcher}, e.g. a
+ * {@link com.compiler.lexer.dfa.CompiledDfa}) are matched through it.
  */
 public class Tokenizer {
 
-    private final DFA dfa;
+    private final TransitionTable table;
+    private final DfaMatcher matcher;
 
     /**
      * Constructs a tokenizer using the given DFA.
+     * The DFA is compiled once into its packed (table-driven) form.
      * @param dfa The DFA recognizing all token patterns.
      */
     public Tokenizer(DFA dfa) {
-        this.dfa = dfa;
+        this(PackedDfa.compile(dfa));
+    }
+
+    /**
+     * Constructs a tokenizer using an int-indexed transition table,
+     * such as a {@link PackedDfa} or a {@link LazyDfa}.
+     * @param table The transition table recognizing all token patterns.
+     */
+    public Tokenizer(TransitionTable table) {
+        this.table = table;
+        this.matcher = table instanceof DfaMatcher ? (DfaMatcher) table : null;
+    }
+
+    /**
+     * Returns the transition table driving this tokenizer.
+     */
+    public TransitionTable getTable() {
+        return table;
     }
 
     /**
@@ -32,30 +59,74 @@ public class Tokenizer {
      * @throws RuntimeException If an invalid sequence is found.
      */
     public List<Token> tokenize(String input) {
-        List<Token> tokens = new ArrayList<>();
-        int position = 0;
-
-        while (position < input.length()) {
-            int lastMatchPos = -1;
-            Token lastMatchedToken = null;
-            DfaState currentState = dfa.startState;
-            int currentPos = position;
-
-            // Traverse the DFA as far as possible (longest match)
-            while (currentPos < input.length()) {
-                char symbol = input.charAt(currentPos);
-                DfaState nextState = currentState.getTransition(symbol);
+        return new ArrayList<>(tokenizeToStream(input).asList());
+    }
 
-                if (nextState == null) break; // No further transition
+    /**
+     * Tokenizes the input into a compact {@link TokenStream}.
+     * No Token objects or substrings are created while scanning.
+     * @param input The input text to tokenize.
+     * @return The stream of (non-skipped) tokens.
+     * @throws RuntimeException If an invalid sequence is found.
+     */
+    public TokenStream tokenizeToStream(CharSequence input) {
+        TokenStream tokens = new TokenStream(input, table, Math.max(16, input.length() / 8));
+        scan(input, 0, input.length(), tokens, false);
+        return tokens;
+    }
 
-                currentState = nextState;
+    /**
+     * Core longest-match loop. Tokenizes every token that starts in
+     * {@code [from, stopAt)}; the last one may extend past {@code stopAt}.
+     * @param input The input text.
+     * @param from Position of the first token.
+     * @param stopAt No token starting at or after this position is scanned.
+     * @param out Receives the tokens.
+     * @param keepSkipped Whether skipped tokens are also added to {@code out}.
+     * @return The position right after the last scanned token.
+     * @throws RuntimeException If an invalid sequence is found.
+     */
+    int scan(CharSequence input, int from, int stopAt, TokenStream out, boolean keepSkipped) {
+        int length = input.length();
+        int position = from;
 
-                if (currentState.isFinal()) {
-                    lastMatchPos = currentPos;
-                    lastMatchedToken = currentState.getToken();
+        while (position < stopAt) {
+            int lastMatchPos = -1;
+            int lastTokenId = TransitionTable.NO_TOKEN;
+
+            if (matcher != null) {
+                // Compiled longest-match loop
+                long match = matcher.match(input, position);
+                if (match != DfaMatcher.NO_MATCH) {
+                    lastMatchPos = DfaMatcher.endOf(match) - 1;
+                    lastTokenId = DfaMatcher.tokenIdOf(match);
+                }
+            } else {
+                int currentState = table.getStartState();
+                int currentPos = position;
+
+                // Traverse the DFA as far as possible (longest match)
+                while (currentPos < length) {
+                    currentState = table.next(currentState, input.charAt(currentPos));
+
+                    if (currentState == TransitionTable.DEAD) break; // No further transition
+
+                    if (table.isFinal(currentState)) {
+                        lastMatchPos = currentPos;
+                        lastTokenId = table.getTokenId(currentState);
+                    }
+
+                    // Runs that stay in the same state (indentation, comment bodies) are skipped at once
+                    if (table.hasSelfLoop(currentState)) {
+                        int runEnd = table.skipSelfLoop(currentState, input, currentPos + 1, length);
+                        if (runEnd > currentPos + 1) {
+                            currentPos = runEnd - 1;
+                            if (table.isFinal(currentState)) lastMatchPos = currentPos;
+                        }
+                    }
+
+                    currentPos++;
                 }
-
-                currentPos++;
             }
 
             if (lastMatchPos == -1) {
@@ -64,22 +135,17 @@ public class Tokenizer {
                 );
             }
 
-            String lexeme = input.substring(position, lastMatchPos + 1);
+            lastTokenId = table.refineToken(lastTokenId, input, position, lastMatchPos + 1);
 
             // Only add the token if it should not be ignored
-            if (lastMatchedToken != null &&
-                !lastMatchedToken.getType().equals("WHITESPACE") &&
-                !lastMatchedToken.getType().equals("COMMENT")) {
-
-                // Use pattern from lastMatchedToken if available
-                String pattern = lastMatchedToken.getPattern();
-                tokens.add(new Token(lastMatchedToken.getType(), lexeme, position, pattern));
+            if (keepSkipped || (lastTokenId != TransitionTable.NO_TOKEN && !table.isSkipToken(lastTokenId))) {
+                out.add(lastTokenId, position, lastMatchPos + 1 - position);
             }
 
             // Move to the next position after the matched lexeme
             position = lastMatchPos + 1;
         }
 
-        return tokens;
+        return position;
     }
-}
\ No newline at end of file
+}
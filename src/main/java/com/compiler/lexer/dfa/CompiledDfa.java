@@ -0,0 +1,576 @@
+package com.compiler.lexer.dfa;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.compiler.lexer.Token;
+
+/**
+ * CompiledDfa
+ * -----------
+ * Transition table whose longest-match loop is compiled to JVM bytecode.
+ * The states of a {@link PackedDfa} become code blocks of one generated
+ * method, {@link DfaMatcher#match}: each block reads a character and jumps
+ * straight to the block of the next state through a {@code tableswitch}
+ * (dense transitions) or a binary search over character ranges, and the
+ * last accepting position and token are kept in locals. The scan loop
+ * therefore performs no table lookups and no calls per character besides
+ * {@code charAt}.
+ * <p>
+ * The class file is written by hand (version 49, which needs no stack map
+ * frames) and defined as a hidden class, so it is unloaded with the
+ * CompiledDfa. A method body is limited in size; {@link #compile} rejects
+ * larger automata and {@link #compileOrKeep} falls back to the table.
+ * Queries other than {@link #match} are answered by the packed table.
+ *
+ * Example usage:
+ * <pre>
+ *     TransitionTable table = CompiledDfa.compileOrKeep(spec.compile());
+ *     List&lt;Token&gt; tokens = new Tokenizer(table).tokenize(input);
+ * </pre>
+ */
+public final class CompiledDfa implements TransitionTable, DfaMatcher {
+    /**
+     * Largest generated method body, in bytes. Beyond it, the 16-bit jump
+     * offsets of the JVM could overflow.
+     */
+    public static final int MAX_CODE_SIZE = 32767;
+
+    private final PackedDfa table;
+    private final DfaMatcher matcher;
+
+    private CompiledDfa(PackedDfa table, DfaMatcher matcher) {
+        this.table = table;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Compiles the matching loop of a packed DFA to bytecode.
+     *
+     * @param table The packed DFA.
+     * @return The compiled DFA.
+     * @throws IllegalArgumentException If the DFA is too large for one method.
+     */
+    public static CompiledDfa compile(PackedDfa table) {
+        byte[] classFile = new Emitter(table).emit();
+        DfaMatcher matcher;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            matcher = (DfaMatcher) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                                         .invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot define the generated matcher", e);
+        }
+        return new CompiledDfa(table, matcher);
+    }
+
+    /**
+     * Compiles a packed DFA if it fits in one method, otherwise returns the
+     * table itself, which is matched by the interpretive loop.
+     */
+    public static TransitionTable compileOrKeep(PackedDfa table) {
+        try {
+            return compile(table);
+        } catch (IllegalArgumentException e) {
+            return table;
+        }
+    }
+
+    /**
+     * Returns the packed table this matcher was compiled from.
+     */
+    public PackedDfa getTable() {
+        return table;
+    }
+
+    @Override
+    public long match(CharSequence input, int from) {
+        return matcher.match(input, from);
+    }
+
+    @Override
+    public int getStartState() {
+        return table.getStartState();
+    }
+
+    @Override
+    public int next(int state, char symbol) {
+        return table.next(state, symbol);
+    }
+
+    @Override
+    public boolean isFinal(int state) {
+        return table.isFinal(state);
+    }
+
+    @Override
+    public int getTokenId(int state) {
+        return table.getTokenId(state);
+    }
+
+    @Override
+    public Token getTokenById(int id) {
+        return table.getTokenById(id);
+    }
+
+    @Override
+    public boolean isSkipToken(int id) {
+        return table.isSkipToken(id);
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledDfa{states=" + table.getStateCount() + ", classes=" + table.getClassCount() + "}";
+    }
+
+    /**
+     * Writes the class file of the matcher:
+     * <pre>
+     *     public final class CompiledDfa$Matcher implements DfaMatcher {
+     *         public long match(CharSequence input, int from) {
+     *             int length = input.length(), pos = from, lastEnd = -1, lastToken = -1;
+     *             // state blocks: [lastEnd = pos; lastToken = id;] if (pos >= length) goto done;
+     *             //               c = input.charAt(pos++); switch (c) { ... goto next state }
+     *             done: return lastEnd < 0 ? NO_MATCH : (long) lastEnd << 32 | (lastToken &amp; 0xFFFFFFFFL);
+     *         }
+     *     }
+     * </pre>
+     */
+    private static final class Emitter {
+        // Locals of match()
+        private static final int INPUT = 1;
+        private static final int FROM = 2;
+        private static final int LENGTH = 3;
+        private static final int POS = 4;
+        private static final int LAST_END = 5;
+        private static final int LAST_TOKEN = 6;
+        private static final int CHAR = 7;
+
+        // Ranges wider than this are dispatched by binary search instead of tableswitch
+        private static final int MAX_SWITCH_SPAN = 512;
+
+        private final PackedDfa table;
+        private final ConstantPool pool = new ConstantPool();
+        private final Code code = new Code(pool);
+
+        Emitter(PackedDfa table) {
+            this.table = table;
+        }
+
+        byte[] emit() {
+            int thisClass = pool.classRef("com/compiler/lexer/dfa/CompiledDfa$Matcher");
+            int objectClass = pool.classRef("java/lang/Object");
+            int matcherInterface = pool.classRef("com/compiler/lexer/dfa/DfaMatcher");
+            int objectInit = pool.methodRef(objectClass, "<init>", "()V");
+            byte[] matchCode = emitMatch();
+            if (matchCode.length > MAX_CODE_SIZE) {
+                throw new IllegalArgumentException("DFA too large to compile: " + matchCode.length
+                    + " bytes of code for " + table.getStateCount() + " states");
+            }
+
+            Bytes out = new Bytes();
+            out.u4(0xCAFEBABE);
+            out.u2(0);
+            out.u2(49);
+            int initName = pool.utf8("<init>");
+            int initType = pool.utf8("()V");
+            int matchName = pool.utf8("match");
+            int matchType = pool.utf8("(Ljava/lang/CharSequence;I)J");
+            int codeName = pool.utf8("Code");
+            pool.writeTo(out);
+            out.u2(0x0031); // public final super
+            out.u2(thisClass);
+            out.u2(objectClass);
+            out.u2(1);
+            out.u2(matcherInterface);
+            out.u2(0); // fields
+            out.u2(2); // methods
+
+            byte[] initCode = {0x2A, (byte) 0xB7, (byte) (objectInit >> 8), (byte) objectInit, (byte) 0xB1};
+            writeMethod(out, 0x0001, initName, initType, codeName, 1, 1, initCode);
+            writeMethod(out, 0x0011, matchName, matchType, codeName, 6, 8, matchCode);
+            out.u2(0); // attributes
+            return out.toByteArray();
+        }
+
+        private static void writeMethod(Bytes out, int access, int name, int type, int codeName,
+                                        int maxStack, int maxLocals, byte[] body) {
+            out.u2(access);
+            out.u2(name);
+            out.u2(type);
+            out.u2(1);
+            out.u2(codeName);
+            out.u4(12 + body.length);
+            out.u2(maxStack);
+            out.u2(maxLocals);
+            out.u4(body.length);
+            out.bytes(body);
+            out.u2(0); // exception table
+            out.u2(0); // attributes
+        }
+
+        private byte[] emitMatch() {
+            int charSequence = pool.classRef("java/lang/CharSequence");
+            int length = pool.interfaceMethodRef(charSequence, "length", "()I");
+            int charAt = pool.interfaceMethodRef(charSequence, "charAt", "(I)C");
+            int n = table.getStateCount();
+            int[] accept = new int[n];
+            int[] body = new int[n];
+            for (int s = 0; s < n; s++) {
+                accept[s] = code.newLabel();
+                body[s] = code.newLabel();
+            }
+            int done = code.newLabel();
+            int none = code.newLabel();
+
+            // int length = input.length(); pos = from; lastEnd = lastToken = -1;
+            code.aload(INPUT);
+            code.op(0xB9).u2(length).u1(1).u1(0);
+            code.istore(LENGTH);
+            code.iload(FROM);
+            code.istore(POS);
+            code.pushInt(-1);
+            code.istore(LAST_END);
+            code.pushInt(-1);
+            code.istore(LAST_TOKEN);
+            code.jump(0xA7, body[table.getStartState()]);
+
+            int[][] runs = classRuns();
+            for (int s = 0; s < n; s++) {
+                code.place(accept[s]);
+                if (table.isFinal(s)) {
+                    code.iload(POS);
+                    code.istore(LAST_END);
+                    code.pushInt(table.getTokenId(s));
+                    code.istore(LAST_TOKEN);
+                }
+                code.place(body[s]);
+                List<int[]> ranges = ranges(s, runs);
+                boolean live = false;
+                for (int[] range : ranges) live |= range[2] != DEAD;
+                if (!live) {
+                    code.jump(0xA7, done);
+                    continue;
+                }
+                // if (pos >= length) goto done; c = input.charAt(pos++);
+                code.iload(POS);
+                code.iload(LENGTH);
+                code.jump(0xA2, done);
+                code.aload(INPUT);
+                code.iload(POS);
+                code.op(0xB9).u2(charAt).u1(2).u1(0);
+                code.istore(CHAR);
+                code.op(0x84).u1(POS).u1(1);
+                int[] targets = new int[ranges.size()];
+                for (int r = 0; r < targets.length; r++) {
+                    int target = ranges.get(r)[2];
+                    targets[r] = target == DEAD ? done : table.isFinal(target) ? accept[target] : body[target];
+                }
+                dispatch(ranges, targets, done);
+            }
+
+            // done: return lastEnd < 0 ? -1L : (long) lastEnd << 32 | (lastToken & 0xFFFFFFFFL);
+            code.place(done);
+            code.iload(LAST_END);
+            code.jump(0x9B, none);
+            code.iload(LAST_END);
+            code.op(0x85);
+            code.pushInt(32);
+            code.op(0x79);
+            code.iload(LAST_TOKEN);
+            code.op(0x85);
+            code.op(0x14).u2(pool.longConstant(0xFFFFFFFFL));
+            code.op(0x7F);
+            code.op(0x81);
+            code.op(0xAD);
+            code.place(none);
+            code.pushInt(-1);
+            code.op(0x85);
+            code.op(0xAD);
+            return code.toByteArray();
+        }
+
+        /**
+         * Jumps on the character to the target of its range: a tableswitch
+         * when the live ranges are dense, otherwise a binary search.
+         */
+        private void dispatch(List<int[]> ranges, int[] targets, int done) {
+            int lo = Character.MAX_VALUE;
+            int hi = 0;
+            int live = 0;
+            for (int[] range : ranges) {
+                if (range[2] == DEAD) continue;
+                lo = Math.min(lo, range[0]);
+                hi = Math.max(hi, range[1]);
+                live++;
+            }
+            if (live >= 3 && hi - lo < MAX_SWITCH_SPAN) {
+                int[] labels = new int[hi - lo + 1];
+                for (int r = 0; r < targets.length; r++) {
+                    int[] range = ranges.get(r);
+                    for (int c = Math.max(range[0], lo); c <= Math.min(range[1], hi); c++) labels[c - lo] = targets[r];
+                }
+                code.iload(CHAR);
+                code.tableSwitch(lo, labels, done);
+            } else {
+                search(ranges, targets, 0, ranges.size() - 1);
+            }
+        }
+
+        private void search(List<int[]> ranges, int[] targets, int first, int last) {
+            if (first == last) {
+                code.jump(0xA7, targets[first]);
+                return;
+            }
+            int mid = (first + last + 1) / 2;
+            int left = code.newLabel();
+            code.iload(CHAR);
+            code.pushInt(ranges.get(mid)[0]);
+            code.jump(0xA1, left); // if (c < ranges[mid].lo)
+            search(ranges, targets, mid, last);
+            code.place(left);
+            search(ranges, targets, first, mid - 1);
+        }
+
+        /**
+         * Runs {lo, hi, class} of consecutive characters with the same class.
+         */
+        private int[][] classRuns() {
+            int[] classMap = table.getClassMap();
+            List<int[]> runs = new ArrayList<>();
+            for (int c = 0; c < classMap.length; c++) {
+                int[] last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+                if (last != null && last[2] == classMap[c]) {
+                    last[1] = c;
+                } else {
+                    runs.add(new int[] {c, c, classMap[c]});
+                }
+            }
+            if (classMap.length <= Character.MAX_VALUE) {
+                runs.add(new int[] {classMap.length, Character.MAX_VALUE, table.getHighClass()});
+            }
+            return runs.toArray(new int[0][]);
+        }
+
+        /**
+         * Ranges {lo, hi, target} covering every character for one state,
+         * with adjacent ranges of the same target merged.
+         */
+        private List<int[]> ranges(int state, int[][] runs) {
+            int[] next = table.getTransitions();
+            int k = table.getClassCount();
+            List<int[]> ranges = new ArrayList<>();
+            for (int[] run : runs) {
+                int target = next[state * k + run[2]];
+                int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+                if (last != null && last[2] == target) {
+                    last[1] = run[1];
+                } else {
+                    ranges.add(new int[] {run[0], run[1], target});
+                }
+            }
+            return ranges;
+        }
+    }
+
+    /**
+     * Constant pool under construction, with deduplicated entries.
+     */
+    private static final class ConstantPool {
+        private final Bytes entries = new Bytes();
+        private final Map<String, Integer> index = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            return entry("U" + value, 1, () -> {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                entries.u2(bytes.length);
+                entries.bytes(bytes);
+            });
+        }
+
+        int classRef(String name) {
+            int nameIndex = utf8(name);
+            return entry("C" + name, 7, () -> entries.u2(nameIndex));
+        }
+
+        int methodRef(int owner, String name, String type) {
+            return memberRef(10, owner, name, type);
+        }
+
+        int interfaceMethodRef(int owner, String name, String type) {
+            return memberRef(11, owner, name, type);
+        }
+
+        private int memberRef(int tag, int owner, String name, String type) {
+            int nameIndex = utf8(name);
+            int typeIndex = utf8(type);
+            int nameAndType = entry("N" + name + ' ' + type, 12, () -> {
+                entries.u2(nameIndex);
+                entries.u2(typeIndex);
+            });
+            return entry("M" + tag + ' ' + owner + ' ' + name + ' ' + type, tag, () -> {
+                entries.u2(owner);
+                entries.u2(nameAndType);
+            });
+        }
+
+        int intConstant(int value) {
+            return entry("I" + value, 3, () -> entries.u4(value));
+        }
+
+        int longConstant(long value) {
+            int at = entry("J" + value, 5, () -> {
+                entries.u4((int) (value >>> 32));
+                entries.u4((int) value);
+            });
+            if (at == count - 1) count++; // longs take two slots
+            return at;
+        }
+
+        private int entry(String key, int tag, Runnable body) {
+            Integer existing = index.get(key);
+            if (existing != null) return existing;
+            entries.u1(tag);
+            body.run();
+            index.put(key, count);
+            return count++;
+        }
+
+        void writeTo(Bytes out) {
+            out.u2(count);
+            out.bytes(entries.toByteArray());
+        }
+    }
+
+    /**
+     * Bytecode of one method, with forward jumps to labels patched at the end.
+     */
+    private static final class Code extends Bytes {
+        private final ConstantPool pool;
+        private final List<Integer> labels = new ArrayList<>();
+        // {opcode position, operand position, label, operand width}
+        private final List<int[]> fixups = new ArrayList<>();
+
+        Code(ConstantPool pool) {
+            this.pool = pool;
+        }
+
+        Bytes op(int opcode) {
+            return u1(opcode);
+        }
+
+        void iload(int local) {
+            u1(0x15).u1(local);
+        }
+
+        void aload(int local) {
+            u1(0x19).u1(local);
+        }
+
+        void istore(int local) {
+            u1(0x36).u1(local);
+        }
+
+        void pushInt(int value) {
+            if (value >= -1 && value <= 5) {
+                u1(0x03 + value); // iconst_m1 .. iconst_5
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                u1(0x10).u1(value); // bipush
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                u1(0x11).u2(value); // sipush
+            } else {
+                u1(0x13).u2(pool.intConstant(value)); // ldc_w
+            }
+        }
+
+        int newLabel() {
+            labels.add(-1);
+            return labels.size() - 1;
+        }
+
+        void place(int label) {
+            labels.set(label, size());
+        }
+
+        /**
+         * Emits a goto or conditional jump with a 16-bit offset.
+         */
+        void jump(int opcode, int label) {
+            int at = size();
+            u1(opcode);
+            fixups.add(new int[] {at, size(), label, 2});
+            u2(0);
+        }
+
+        /**
+         * Emits a tableswitch over {@code [lo, lo + targets.length)}.
+         */
+        void tableSwitch(int lo, int[] targets, int defaultLabel) {
+            int at = size();
+            u1(0xAA);
+            while (size() % 4 != 0) u1(0);
+            fixups.add(new int[] {at, size(), defaultLabel, 4});
+            u4(0);
+            u4(lo);
+            u4(lo + targets.length - 1);
+            for (int target : targets) {
+                fixups.add(new int[] {at, size(), target, 4});
+                u4(0);
+            }
+        }
+
+        @Override
+        byte[] toByteArray() {
+            for (int[] fixup : fixups) {
+                int offset = labels.get(fixup[2]) - fixup[0];
+                for (int i = fixup[3] - 1, at = fixup[1]; i >= 0; i--, at++) set(at, offset >> (8 * i));
+            }
+            return super.toByteArray();
+        }
+    }
+
+    /**
+     * Growable big-endian byte buffer.
+     */
+    private static class Bytes {
+        private byte[] data = new byte[256];
+        private int size;
+
+        Bytes u1(int value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = (byte) value;
+            return this;
+        }
+
+        Bytes u2(int value) {
+            return u1(value >> 8).u1(value);
+        }
+
+        Bytes u4(int value) {
+            return u2(value >> 16).u2(value);
+        }
+
+        void bytes(byte[] values) {
+            for (byte value : values) u1(value);
+        }
+
+        int size() {
+            return size;
+        }
+
+        void set(int at, int value) {
+            data[at] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
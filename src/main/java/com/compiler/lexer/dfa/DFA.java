@@ -1,6 +1,10 @@
 package com.compiler.lexer.dfa;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DFA
@@ -54,6 +58,45 @@ public class DFA {
         return null;
     }
 
+    /**
+     * Returns a deep copy of the DFA: new states with the same finality,
+     * tokens and NFA state sets, linked by the same transitions. States
+     * reachable from the start state but missing from the list are
+     * copied too and appended.
+     *
+     * @return A DFA sharing no mutable state with this one.
+     */
+    public DFA copy() {
+        Map<DfaState, DfaState> copies = new IdentityHashMap<>();
+        List<DfaState> originals = new ArrayList<>();
+        List<DfaState> copiedStates = new ArrayList<>();
+        for (DfaState state : allStates) copyState(state, copies, originals, copiedStates);
+        DfaState start = copyState(startState, copies, originals, copiedStates);
+        // Originals grows while targets outside the list are found
+        for (int i = 0; i < originals.size(); i++) {
+            DfaState state = originals.get(i);
+            for (Map.Entry<Character, DfaState> transition : state.transitions.entrySet()) {
+                DfaState target = copyState(transition.getValue(), copies, originals, copiedStates);
+                copies.get(state).addTransition(transition.getKey(), target);
+            }
+        }
+        return new DFA(start, copiedStates);
+    }
+
+    private static DfaState copyState(DfaState state, Map<DfaState, DfaState> copies,
+                                      List<DfaState> originals, List<DfaState> copiedStates) {
+        DfaState copy = copies.get(state);
+        if (copy == null) {
+            copy = new DfaState(new HashSet<>(state.nfaStates));
+            if (state.getToken() != null) copy.setToken(state.getToken());
+            copy.isFinal = state.isFinal;
+            copies.put(state, copy);
+            originals.add(state);
+            copiedStates.add(copy);
+        }
+        return copy;
+    }
+
     /**
      * Returns a string representation of the DFA,
      * showing the start state and all states.
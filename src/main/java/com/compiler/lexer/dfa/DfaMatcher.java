@@ -0,0 +1,49 @@
+package com.compiler.lexer.dfa;
+
+/**
+ * DfaMatcher
+ * ----------
+ * Longest-match step of a lexer, i.e. the inner loop of the Tokenizer:
+ * starting at a position, follow the automaton as far as possible and
+ * report the end and token ID of the last accepting state. The result is
+ * packed into a long so that no object is allocated per token.
+ * <p>
+ * Transition tables that also implement this interface (such as
+ * {@link CompiledDfa}) are driven through it by the Tokenizer.
+ */
+public interface DfaMatcher {
+    /**
+     * Value returned by {@link #match} when no prefix is accepted.
+     */
+    long NO_MATCH = -1L;
+
+    /**
+     * Finds the longest non-empty accepted prefix of {@code input} at {@code from}.
+     *
+     * @param input The input text.
+     * @param from  The start position, below {@code input.length()}.
+     * @return {@link #result}{@code (end, tokenId)} of the longest match, or {@link #NO_MATCH}.
+     */
+    long match(CharSequence input, int from);
+
+    /**
+     * Packs a match: the exclusive end position and the token ID.
+     */
+    static long result(int end, int tokenId) {
+        return ((long) end << 32) | (tokenId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the exclusive end position of a match.
+     */
+    static int endOf(long result) {
+        return (int) (result >> 32);
+    }
+
+    /**
+     * Returns the token ID of a match ({@link TransitionTable#NO_TOKEN} if none).
+     */
+    static int tokenIdOf(long result) {
+        return (int) result;
+    }
+}
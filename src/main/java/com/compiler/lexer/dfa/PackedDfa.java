@@ -0,0 +1,353 @@
+package com.compiler.lexer.dfa;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.compiler.lexer.AlphabetPartition;
+import com.compiler.lexer.Token;
+
+/**
+ * PackedDfa
+ * ---------
+ * Immutable, table-driven form of a DFA intended for the scanning hot loop.
+ * States are numbered 0..n-1, input characters are first mapped to an
+ * equivalence class and the next state is read from a flat
+ * {@code int[state * classCount + class]} table, so a transition costs
+ * two array loads and never allocates.
+ * <p>
+ * Class 0 is reserved for characters that have no transition in any state,
+ * and a next-state value of {@code -1} means "no transition" (dead).
+ * Accepting states carry a token ID that indexes the token table.
+ *
+ * Example usage:
+ * <pre>
+ *     PackedDfa table = PackedDfa.compile(minimizedDfa);
+ *     List&lt;Token&gt; tokens = new Tokenizer(table).tokenize(input);
+ * </pre>
+ */
+public final class PackedDfa implements TransitionTable {
+    private final int stateCount;
+    private final int classCount;
+    private final int startState;
+    private final int[] classMap;
+    private final int highClass;
+    private final int[] next;
+    private final boolean[] accepting;
+    private final int[] tokenIds;
+    private final Token[] tokens;
+    private final boolean[] skipTokens;
+    // Per state: ASCII characters looping on it (two 64-bit words), and whether any character does
+    private final long[] loopMasks;
+    private final boolean[] selfLoops;
+
+    /**
+     * Constructs a packed DFA from already built tables.
+     * The arrays are used as-is and must not be modified afterwards.
+     *
+     * @param stateCount Number of states.
+     * @param classCount Number of character classes, including the dead class 0.
+     * @param startState Index of the start state.
+     * @param classMap   Class of every character below {@code classMap.length}.
+     * @param highClass  Class of every character at or above {@code classMap.length}.
+     * @param next       Flat transition table of size {@code stateCount * classCount}.
+     * @param accepting  Finality of each state.
+     * @param tokenIds   Token ID of each state, or {@link #NO_TOKEN}.
+     * @param tokens     Token table indexed by token ID.
+     * @param skipTokens Whether each token ID is discarded by the tokenizer.
+     */
+    public PackedDfa(int stateCount, int classCount, int startState, int[] classMap, int highClass,
+                     int[] next, boolean[] accepting, int[] tokenIds, Token[] tokens, boolean[] skipTokens) {
+        if (next.length != stateCount * classCount) {
+            throw new IllegalArgumentException("Transition table size does not match states * classes");
+        }
+        this.stateCount = stateCount;
+        this.classCount = classCount;
+        this.startState = startState;
+        this.classMap = classMap;
+        this.highClass = highClass;
+        this.next = next;
+        this.accepting = accepting;
+        this.tokenIds = tokenIds;
+        this.tokens = tokens;
+        this.skipTokens = skipTokens;
+
+        // Self-looping states, with a bit mask of their ASCII loop characters
+        this.loopMasks = new long[2 * stateCount];
+        this.selfLoops = new boolean[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            for (int cls = 1; cls < classCount; cls++) {
+                selfLoops[s] |= next[s * classCount + cls] == s;
+            }
+            if (!selfLoops[s]) continue;
+            for (char c = 0; c < 128; c++) {
+                if (next(s, c) == s) loopMasks[2 * s + (c >> 6)] |= 1L << c;
+            }
+        }
+    }
+
+    /**
+     * Compiles a DFA (minimized or not) into its packed form.
+     * Only the states reachable from the start state are kept; the start state
+     * always receives index 0. Tokens of type WHITESPACE and COMMENT (or of
+     * skipped {@link com.compiler.lexer.LexerSpec} rules) are marked as
+     * skipped, matching the behavior of the Tokenizer.
+     *
+     * @param dfa The DFA to compile.
+     * @return The packed equivalent of the DFA.
+     */
+    public static PackedDfa compile(DFA dfa) {
+        // Step 1: Number the reachable states (BFS from the start state)
+        Map<DfaState, Integer> index = new IdentityHashMap<>();
+        List<DfaState> states = new ArrayList<>();
+        ArrayDeque<DfaState> queue = new ArrayDeque<>();
+        index.put(dfa.startState, 0);
+        states.add(dfa.startState);
+        queue.add(dfa.startState);
+        while (!queue.isEmpty()) {
+            DfaState state = queue.poll();
+            for (DfaState target : state.getTransitions().values()) {
+                if (!index.containsKey(target)) {
+                    index.put(target, states.size());
+                    states.add(target);
+                    queue.add(target);
+                }
+            }
+        }
+        int n = states.size();
+
+        // Step 2: Flatten the transition table, reading one representative per class
+        AlphabetPartition classes = AlphabetPartition.fromDfa(dfa, null);
+        int k = classes.getClassCount();
+        int[] next = new int[n * k];
+        boolean[] accepting = new boolean[n];
+        Token[] stateTokens = new Token[n];
+        for (int s = 0; s < n; s++) {
+            DfaState state = states.get(s);
+            for (int cls = 0; cls < k; cls++) {
+                DfaState target = state.getTransition(classes.getRepresentative(cls));
+                next[s * k + cls] = target == null ? DEAD : index.get(target);
+            }
+            accepting[s] = state.isFinal();
+            stateTokens[s] = state.getToken();
+        }
+        return fromTables(classes, n, 0, next, accepting, stateTokens);
+    }
+
+    /**
+     * Builds a packed DFA from transition tables indexed by the classes of
+     * an {@link AlphabetPartition} (without the reserved dead class).
+     * Tokens are interned into the token table; tokens for which
+     * {@link Token#isSkip()} holds are marked as skipped.
+     *
+     * @param classes     The character classes of the transitions.
+     * @param stateCount  Number of states.
+     * @param startState  Index of the start state.
+     * @param transitions Next state of {@code state * classCount + class}, or {@link #DEAD}.
+     * @param accepting   Finality of each state; the array is kept, not copied.
+     * @param stateTokens Token of each state, or null.
+     * @return The packed DFA.
+     */
+    public static PackedDfa fromTables(AlphabetPartition classes, int stateCount, int startState,
+                                       int[] transitions, boolean[] accepting, Token[] stateTokens) {
+        // Character classes (class 0 is reserved for "no transition")
+        int n = stateCount;
+        int k = classes.getClassCount() + 1;
+        int[] classMap = new int[classes.getMaxChar() + 1];
+        for (int c = 0; c < classMap.length; c++) {
+            classMap[c] = classes.classOf((char) c) + 1;
+        }
+        int[] next = new int[n * k];
+        for (int s = 0; s < n; s++) {
+            next[s * k] = DEAD;
+            System.arraycopy(transitions, s * (k - 1), next, s * k + 1, k - 1);
+        }
+
+        // Token table
+        int[] tokenIds = new int[n];
+        Map<String, Integer> tokenIndex = new HashMap<>();
+        List<Token> tokenTable = new ArrayList<>();
+        for (int s = 0; s < n; s++) {
+            tokenIds[s] = NO_TOKEN;
+            Token token = stateTokens[s];
+            if (token == null) continue;
+            String key = token.getType() + '\u0000' + token.getPattern() + '\u0000' + token.getRule();
+            Integer id = tokenIndex.get(key);
+            if (id == null) {
+                id = tokenTable.size();
+                tokenIndex.put(key, id);
+                tokenTable.add(token);
+            }
+            tokenIds[s] = id;
+        }
+        Token[] tokens = tokenTable.toArray(new Token[0]);
+        boolean[] skipTokens = new boolean[tokens.length];
+        for (int id = 0; id < tokens.length; id++) {
+            skipTokens[id] = tokens[id].isSkip();
+        }
+
+        return new PackedDfa(n, k, startState, classMap, 0, next, accepting, tokenIds, tokens, skipTokens);
+    }
+
+    /**
+     * Returns the index of the start state.
+     */
+    @Override
+    public int getStartState() {
+        return startState;
+    }
+
+    /**
+     * Returns the number of states.
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Returns the number of character classes, including the dead class 0.
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * Returns the equivalence class of a character.
+     *
+     * @param symbol The input character.
+     * @return The class of the character (0 if it never has a transition).
+     */
+    public int classOf(char symbol) {
+        return symbol < classMap.length ? classMap[symbol] : highClass;
+    }
+
+    /**
+     * Returns the next state for a given state and input character.
+     *
+     * @param state  The current state index.
+     * @param symbol The input character.
+     * @return The next state index, or {@link #DEAD} if there is no transition.
+     */
+    @Override
+    public int next(int state, char symbol) {
+        int cls = symbol < classMap.length ? classMap[symbol] : highClass;
+        return next[state * classCount + cls];
+    }
+
+    /**
+     * Returns the next state for a given state and character class.
+     *
+     * @param state The current state index.
+     * @param cls   The character class.
+     * @return The next state index, or {@link #DEAD} if there is no transition.
+     */
+    public int nextByClass(int state, int cls) {
+        return next[state * classCount + cls];
+    }
+
+    @Override
+    public boolean hasSelfLoop(int state) {
+        return selfLoops[state];
+    }
+
+    /**
+     * Advances through a run of characters that loop on a state. ASCII
+     * characters are tested against a precomputed bit mask, others through
+     * the class map.
+     */
+    @Override
+    public int skipSelfLoop(int state, CharSequence input, int from, int to) {
+        long low = loopMasks[2 * state];
+        long high = loopMasks[2 * state + 1];
+        int pos = from;
+        while (pos < to) {
+            char c = input.charAt(pos);
+            if (c < 64) {
+                if ((low & (1L << c)) == 0) break;
+            } else if (c < 128) {
+                if ((high & (1L << c)) == 0) break; // shift count is taken modulo 64
+            } else if (next(state, c) != state) {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Checks if a state is final (accepting).
+     */
+    @Override
+    public boolean isFinal(int state) {
+        return accepting[state];
+    }
+
+    /**
+     * Returns the token ID of a state, or {@link #NO_TOKEN} if it has none.
+     */
+    @Override
+    public int getTokenId(int state) {
+        return tokenIds[state];
+    }
+
+    /**
+     * Returns the token recognized by a state, or null if it has none.
+     */
+    @Override
+    public Token getToken(int state) {
+        int id = tokenIds[state];
+        return id == NO_TOKEN ? null : tokens[id];
+    }
+
+    /**
+     * Returns the number of distinct tokens in the token table.
+     */
+    public int getTokenCount() {
+        return tokens.length;
+    }
+
+    /**
+     * Returns the token with the given ID.
+     */
+    @Override
+    public Token getTokenById(int id) {
+        return tokens[id];
+    }
+
+    /**
+     * Checks if tokens with the given ID are discarded by the tokenizer.
+     */
+    @Override
+    public boolean isSkipToken(int id) {
+        return skipTokens[id];
+    }
+
+    /**
+     * Returns the class map (characters below its length), for serialization.
+     */
+    int[] getClassMap() {
+        return classMap;
+    }
+
+    /**
+     * Returns the class of characters beyond the class map, for serialization.
+     */
+    int getHighClass() {
+        return highClass;
+    }
+
+    /**
+     * Returns the flat transition table, for serialization.
+     */
+    int[] getTransitions() {
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return "PackedDfa{states=" + stateCount + ", classes=" + classCount + ", tokens=" + tokens.length + "}";
+    }
+}
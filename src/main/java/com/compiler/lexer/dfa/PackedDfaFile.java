@@ -0,0 +1,296 @@
+package com.compiler.lexer.dfa;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import com.compiler.lexer.Token;
+
+/**
+ * PackedDfaFile
+ * -------------
+ * Binary on-disk format for a {@link PackedDfa}, so a lexer can start by
+ * reading one file instead of rebuilding its automata from the regexes.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ *     int     magic ("PDFA"), int version
+ *     byte[32] SHA-256 of the lexer specification
+ *     int     stateCount, classCount, startState, highClass, classMapLength, tokenCount
+ *     int[]   classMap, transitions (stateCount * classCount), tokenIds (stateCount)
+ *     byte[]  accepting (stateCount)
+ *     tokens  tokenCount x (byte skip, int rule, string type, string pattern)
+ * </pre>
+ * Strings are an int byte length (-1 for null) followed by UTF-8 bytes.
+ * <p>
+ * The file is mapped, and each int array is copied into the heap arrays of
+ * the {@link PackedDfa} in one bulk read through an aligned {@link IntBuffer}
+ * view (the header is 64 bytes); the table does not keep the mapping.
+ * Every count is checked against the bytes left before anything is
+ * allocated, so a truncated or corrupt file fails with an
+ * IllegalArgumentException instead of exhausting memory.
+ * <p>
+ * {@link #loadOrBuild} keys the file on the specification hash: a missing,
+ * corrupt, outdated or foreign file is rebuilt and rewritten automatically.
+ *
+ * Example usage:
+ * <pre>
+ *     PackedDfa table = PackedDfaFile.loadOrBuild(cache, spec, () -&gt; PackedDfa.compile(buildDfa(spec)));
+ * </pre>
+ */
+public final class PackedDfaFile {
+    /**
+     * Magic number at the start of every file ("PDFA").
+     */
+    public static final int MAGIC = 0x50444641;
+
+    /**
+     * Current format version; files with another version are rebuilt.
+     */
+    public static final int VERSION = 2;
+
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER_LENGTH = 8 + HASH_LENGTH + 6 * 4;
+
+    private PackedDfaFile() {
+    }
+
+    /**
+     * Computes the hash identifying a lexer specification (for instance
+     * every rule's token type and regex, concatenated).
+     *
+     * @param spec The textual lexer specification.
+     * @return The SHA-256 of the specification.
+     */
+    public static byte[] specHash(String spec) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(spec.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Loads the table for a specification from a file, building and writing
+     * it first if the file is missing, unreadable or built from another
+     * specification or format version.
+     *
+     * @param file    The cache file.
+     * @param spec    The textual lexer specification the table is built from.
+     * @param builder Builds the table when the file cannot be used.
+     * @return The loaded or freshly built table.
+     * @throws IOException If the rebuilt table cannot be written.
+     */
+    public static PackedDfa loadOrBuild(Path file, String spec, Supplier<PackedDfa> builder) throws IOException {
+        byte[] hash = specHash(spec);
+        PackedDfa table = null;
+        if (Files.isRegularFile(file)) {
+            try {
+                table = read(file, hash);
+            } catch (IOException | RuntimeException e) {
+                table = null; // corrupt file: rebuild it
+            }
+        }
+        if (table == null) {
+            table = builder.get();
+            write(table, hash, file);
+        }
+        return table;
+    }
+
+    /**
+     * Writes a table to a file. The file is written next to its destination
+     * and then moved into place, so readers never see a partial file.
+     *
+     * @param table    The table to write.
+     * @param specHash The hash of the specification the table was built from.
+     * @param file     The destination file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(PackedDfa table, byte[] specHash, Path file) throws IOException {
+        if (specHash.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("Specification hash must be " + HASH_LENGTH + " bytes");
+        }
+        int n = table.getStateCount();
+        int[] classMap = table.getClassMap();
+        int[] next = table.getTransitions();
+        int tokenCount = table.getTokenCount();
+
+        byte[][] types = new byte[tokenCount][];
+        byte[][] patterns = new byte[tokenCount][];
+        int size = HEADER_LENGTH + 4 * (classMap.length + next.length + n) + n;
+        for (int id = 0; id < tokenCount; id++) {
+            Token token = table.getTokenById(id);
+            types[id] = utf8(token.getType());
+            patterns[id] = utf8(token.getPattern());
+            size += 1 + 4 + 4 + length(types[id]) + 4 + length(patterns[id]);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).put(specHash);
+        buffer.putInt(n).putInt(table.getClassCount()).putInt(table.getStartState())
+              .putInt(table.getHighClass()).putInt(classMap.length).putInt(tokenCount);
+        buffer.asIntBuffer().put(classMap).put(next);
+        buffer.position(buffer.position() + 4 * (classMap.length + next.length));
+        for (int s = 0; s < n; s++) buffer.putInt(table.getTokenId(s));
+        for (int s = 0; s < n; s++) buffer.put((byte) (table.isFinal(s) ? 1 : 0));
+        for (int id = 0; id < tokenCount; id++) {
+            buffer.put((byte) (table.isSkipToken(id) ? 1 : 0));
+            buffer.putInt(table.getTokenById(id).getRule());
+            putString(buffer, types[id]);
+            putString(buffer, patterns[id]);
+        }
+        buffer.flip();
+
+        Path absolute = file.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Maps a file and loads its table, whatever specification it was built from.
+     *
+     * @param file The file to load.
+     * @return The loaded table.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If the file is not a table of the current version.
+     */
+    public static PackedDfa read(Path file) throws IOException {
+        return read(file, null);
+    }
+
+    /**
+     * Maps a file and loads its table if it was built from a specification.
+     *
+     * @param file     The file to load.
+     * @param specHash The expected specification hash, or null to accept any.
+     * @return The loaded table, or null if the file was built from another specification.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If the file is not a table of the current version.
+     */
+    public static PackedDfa read(Path file, byte[] specHash) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return read(buffer, specHash);
+    }
+
+    /**
+     * Loads a table from a buffer holding the file contents.
+     *
+     * @param buffer   The file contents, from position 0.
+     * @param specHash The expected specification hash, or null to accept any.
+     * @return The loaded table, or null if it was built from another specification.
+     * @throws IllegalArgumentException If the buffer is not a table of the current version, or is truncated or corrupt.
+     */
+    public static PackedDfa read(ByteBuffer buffer, byte[] specHash) {
+        if (buffer.limit() < HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a packed DFA file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported packed DFA version " + buffer.getInt(4));
+        }
+        byte[] storedHash = new byte[HASH_LENGTH];
+        buffer.get(8, storedHash);
+        if (specHash != null && !Arrays.equals(specHash, storedHash)) {
+            return null;
+        }
+
+        try {
+            ByteBuffer in = buffer.duplicate().position(8 + HASH_LENGTH);
+            int n = in.getInt();
+            int k = in.getInt();
+            int startState = in.getInt();
+            int highClass = in.getInt();
+            int classMapLength = in.getInt();
+            int tokenCount = in.getInt();
+
+            int[] classMap = getInts(in, classMapLength);
+            int[] next = getInts(in, (long) n * k);
+            int[] tokenIds = getInts(in, n);
+            checkCount(in, n, 1);
+            boolean[] accepting = new boolean[n];
+            for (int s = 0; s < n; s++) accepting[s] = in.get() != 0;
+            checkCount(in, tokenCount, 1 + 4 + 4 + 4);
+            Token[] tokens = new Token[tokenCount];
+            boolean[] skipTokens = new boolean[tokenCount];
+            for (int id = 0; id < tokenCount; id++) {
+                skipTokens[id] = in.get() != 0;
+                int rule = in.getInt();
+                String type = getString(in);
+                String pattern = getString(in);
+                // The table's skip flag is the token's (see PackedDfa), so rule tokens get theirs back
+                tokens[id] = new Token(type, "", -1, pattern, rule, skipTokens[id]);
+            }
+            return new PackedDfa(n, k, startState, classMap, highClass, next, accepting, tokenIds, tokens, skipTokens);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated packed DFA file", e);
+        }
+    }
+
+    private static int[] getInts(ByteBuffer in, long count) {
+        checkCount(in, count, 4);
+        int[] values = new int[(int) count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + 4 * values.length);
+        return values;
+    }
+
+    /**
+     * Checks that a count read from the file fits in the bytes left.
+     *
+     * @param bytesEach The minimum size of one item.
+     * @throws IllegalArgumentException If the count is negative or too large.
+     */
+    private static void checkCount(ByteBuffer in, long count, int bytesEach) {
+        if (count < 0 || count > in.remaining() / bytesEach) {
+            throw new IllegalArgumentException("Corrupt packed DFA file: " + count + " items of "
+                + bytesEach + " bytes at offset " + in.position() + ", " + in.remaining() + " bytes left");
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putString(ByteBuffer out, byte[] bytes) {
+        if (bytes == null) {
+            out.putInt(-1);
+        } else {
+            out.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == -1) return null;
+        checkCount(in, length, 1);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,109 @@
+package com.compiler.lexer.dfa;
+
+import com.compiler.lexer.Token;
+
+/**
+ * TransitionTable
+ * ---------------
+ * Int-indexed view of a deterministic automaton, as consumed by the
+ * Tokenizer and the DfaSimulator. States are plain ints, a missing
+ * transition is reported as {@link #DEAD}, and accepting states expose a
+ * token ID that indexes the token table.
+ * <p>
+ * Implementations may build states on demand; callers should therefore
+ * only rely on the state returned by the latest call to {@link #next}.
+ */
+public interface TransitionTable {
+    /**
+     * Value returned by {@link #next} when there is no transition.
+     */
+    int DEAD = -1;
+
+    /**
+     * Value returned by {@link #getTokenId} for states without a token.
+     */
+    int NO_TOKEN = -1;
+
+    /**
+     * Returns the start state.
+     */
+    int getStartState();
+
+    /**
+     * Returns the next state for a given state and input character.
+     *
+     * @param state  The current state.
+     * @param symbol The input character.
+     * @return The next state, or {@link #DEAD} if there is no transition.
+     */
+    int next(int state, char symbol);
+
+    /**
+     * Checks if a state is final (accepting).
+     */
+    boolean isFinal(int state);
+
+    /**
+     * Returns the token ID of a state, or {@link #NO_TOKEN} if it has none.
+     */
+    int getTokenId(int state);
+
+    /**
+     * Returns the token with the given ID.
+     */
+    Token getTokenById(int id);
+
+    /**
+     * Checks if tokens with the given ID are discarded by the tokenizer.
+     */
+    boolean isSkipToken(int id);
+
+    /**
+     * Checks if a state has a transition to itself, such as the body of a
+     * whitespace or comment token, so that runs can be skipped with
+     * {@link #skipSelfLoop}.
+     */
+    default boolean hasSelfLoop(int state) {
+        return false;
+    }
+
+    /**
+     * Advances through a run of characters that keep the automaton in the
+     * same state.
+     *
+     * @param state The current state.
+     * @param input The input text.
+     * @param from  The position of the first character to test.
+     * @param to    The end of the text to scan (exclusive).
+     * @return The position of the first character leaving the state, or {@code to}.
+     */
+    default int skipSelfLoop(int state, CharSequence input, int from, int to) {
+        int pos = from;
+        while (pos < to && next(state, input.charAt(pos)) == state) pos++;
+        return pos;
+    }
+
+    /**
+     * Reclassifies a token once its lexeme is known, for tables that refine
+     * the token of an accepting state by looking at the whole lexeme (such as
+     * keywords recognized among identifiers). Tokenizers call this for every
+     * matched lexeme before deciding whether to keep it.
+     *
+     * @param tokenId The token ID of the accepting state.
+     * @param input   The text holding the lexeme.
+     * @param start   The position of the first character of the lexeme.
+     * @param end     The position after its last character.
+     * @return The token ID of the lexeme; by default, {@code tokenId}.
+     */
+    default int refineToken(int tokenId, CharSequence input, int start, int end) {
+        return tokenId;
+    }
+
+    /**
+     * Returns the token recognized by a state, or null if it has none.
+     */
+    default Token getToken(int state) {
+        int id = getTokenId(state);
+        return id == NO_TOKEN ? null : getTokenById(id);
+    }
+}
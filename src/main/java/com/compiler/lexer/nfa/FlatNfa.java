@@ -0,0 +1,260 @@
+package com.compiler.lexer.nfa;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * FlatNfa
+ * -------
+ * Array-based view of an NFA. The states reachable from the start state are
+ * given dense IDs 0..n-1 (the start state is 0) and the transitions are
+ * stored in compact arrays, so automaton algorithms can use plain int
+ * indices, {@link BitSet}s and sorted {@code int[]} sets instead of
+ * {@code HashSet<State>}.
+ * <p>
+ * The epsilon-closure of each state is computed on first use and cached as
+ * a sorted {@code int[]}; the cache is safe to share between threads, so
+ * one view per NFA ({@link NFA#flatten()}) serves every simulator and
+ * converter. Finality and token types are read from the original
+ * {@link State} objects; the transitions, however, are captured when the
+ * view is built, so the NFA must not gain new transitions afterwards.
+ */
+public final class FlatNfa {
+    private final State[] states;
+    private final Map<State, Integer> index;
+
+    // Symbol transitions of state s: edges symbolStart[s] .. symbolStart[s + 1] - 1
+    private final int[] symbolStart;
+    private final char[] symbolLo;
+    private final char[] symbolHi;
+    private final int[] symbolTarget;
+
+    // Epsilon transitions of state s: epsilonStart[s] .. epsilonStart[s + 1] - 1
+    private final int[] epsilonStart;
+    private final int[] epsilonTarget;
+
+    // Cached epsilon-closures (null until first requested)
+    private final AtomicReferenceArray<int[]> closures;
+
+    /**
+     * Builds the flat view of the states reachable from the NFA start state.
+     *
+     * @param nfa The NFA to flatten.
+     */
+    public FlatNfa(NFA nfa) {
+        // Step 1: Dense numbering (BFS from the start state)
+        index = new IdentityHashMap<>();
+        List<State> order = new ArrayList<>();
+        index.put(nfa.startState, 0);
+        order.add(nfa.startState);
+        int symbolCount = 0;
+        int epsilonCount = 0;
+        for (int i = 0; i < order.size(); i++) {
+            for (Transition t : order.get(i).transitions) {
+                if (t.isEpsilon()) epsilonCount++; else symbolCount++;
+                if (index.putIfAbsent(t.toState, order.size()) == null) order.add(t.toState);
+            }
+        }
+        states = order.toArray(new State[0]);
+        int n = states.length;
+
+        // Step 2: Compressed edge arrays
+        symbolStart = new int[n + 1];
+        symbolLo = new char[symbolCount];
+        symbolHi = new char[symbolCount];
+        symbolTarget = new int[symbolCount];
+        epsilonStart = new int[n + 1];
+        epsilonTarget = new int[epsilonCount];
+        int se = 0;
+        int ee = 0;
+        for (int s = 0; s < n; s++) {
+            symbolStart[s] = se;
+            epsilonStart[s] = ee;
+            for (Transition t : states[s].transitions) {
+                int target = index.get(t.toState);
+                if (t.isEpsilon()) {
+                    epsilonTarget[ee++] = target;
+                } else {
+                    symbolLo[se] = t.lo;
+                    symbolHi[se] = t.hi;
+                    symbolTarget[se++] = target;
+                }
+            }
+        }
+        symbolStart[n] = se;
+        epsilonStart[n] = ee;
+
+        closures = new AtomicReferenceArray<>(n);
+    }
+
+    /**
+     * Returns the number of states.
+     */
+    public int size() {
+        return states.length;
+    }
+
+    /**
+     * Returns the dense ID of the start state (always 0).
+     */
+    public int getStartState() {
+        return 0;
+    }
+
+    /**
+     * Returns the original NFA state with the given dense ID.
+     */
+    public State getState(int id) {
+        return states[id];
+    }
+
+    /**
+     * Returns the dense ID of an NFA state, or -1 if it is not reachable.
+     */
+    public int indexOf(State state) {
+        Integer id = index.get(state);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Checks if the state with the given dense ID is final.
+     */
+    public boolean isFinal(int id) {
+        return states[id].isFinal();
+    }
+
+    /**
+     * Returns the number of symbol transitions in the NFA.
+     */
+    public int getSymbolEdgeCount() {
+        return symbolTarget.length;
+    }
+
+    /**
+     * Returns the first index of the symbol transitions of a state.
+     */
+    public int symbolEdgesFrom(int state) {
+        return symbolStart[state];
+    }
+
+    /**
+     * Returns one past the last index of the symbol transitions of a state.
+     */
+    public int symbolEdgesTo(int state) {
+        return symbolStart[state + 1];
+    }
+
+    /**
+     * Returns the lowest character accepted by a symbol transition.
+     */
+    public char edgeLo(int edge) {
+        return symbolLo[edge];
+    }
+
+    /**
+     * Returns the highest character accepted by a symbol transition.
+     */
+    public char edgeHi(int edge) {
+        return symbolHi[edge];
+    }
+
+    /**
+     * Returns the target state of a symbol transition.
+     */
+    public int edgeTarget(int edge) {
+        return symbolTarget[edge];
+    }
+
+    /**
+     * Returns the first index of the epsilon transitions of a state.
+     */
+    public int epsilonEdgesFrom(int state) {
+        return epsilonStart[state];
+    }
+
+    /**
+     * Returns one past the last index of the epsilon transitions of a state.
+     */
+    public int epsilonEdgesTo(int state) {
+        return epsilonStart[state + 1];
+    }
+
+    /**
+     * Returns the target state of an epsilon transition.
+     */
+    public int epsilonTarget(int edge) {
+        return epsilonTarget[edge];
+    }
+
+    /**
+     * Returns the epsilon-closure of a state as a sorted array of dense IDs.
+     * The result is cached and must not be modified.
+     *
+     * @param state The dense ID of the state.
+     * @return The states reachable through epsilon transitions, including itself.
+     */
+    public int[] closure(int state) {
+        int[] closure = closures.get(state);
+        if (closure == null) {
+            closure = computeClosure(state);
+            closures.set(state, closure);
+        }
+        return closure;
+    }
+
+    /**
+     * Adds the epsilon-closure of a state to a set.
+     *
+     * @param state The dense ID of the state.
+     * @param set   The set receiving the closure.
+     */
+    public void addClosure(int state, BitSet set) {
+        for (int s : closure(state)) set.set(s);
+    }
+
+    /**
+     * Computes the states reachable from a set on a given character, followed
+     * by their epsilon-closure (the "move" and "epsilon-closure" steps of the
+     * subset construction in a single pass).
+     *
+     * @param from   The current set of states (already epsilon-closed).
+     * @param symbol The input character.
+     * @param into   Cleared and filled with the resulting set.
+     */
+    public void step(BitSet from, char symbol, BitSet into) {
+        into.clear();
+        for (int s = from.nextSetBit(0); s >= 0; s = from.nextSetBit(s + 1)) {
+            for (int e = symbolStart[s]; e < symbolStart[s + 1]; e++) {
+                if (symbolLo[e] <= symbol && symbol <= symbolHi[e]) {
+                    addClosure(symbolTarget[e], into);
+                }
+            }
+        }
+    }
+
+    /**
+     * Iterative depth-first search over epsilon transitions.
+     */
+    private int[] computeClosure(int start) {
+        BitSet seen = new BitSet(states.length);
+        int[] stack = new int[states.length];
+        int top = 0;
+        stack[top++] = start;
+        seen.set(start);
+        while (top > 0) {
+            int s = stack[--top];
+            for (int e = epsilonStart[s]; e < epsilonStart[s + 1]; e++) {
+                int target = epsilonTarget[e];
+                if (!seen.get(target)) {
+                    seen.set(target);
+                    stack[top++] = target;
+                }
+            }
+        }
+        return seen.stream().toArray(); // BitSet order: already sorted
+    }
+}
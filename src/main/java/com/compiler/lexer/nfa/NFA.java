@@ -5,6 +5,11 @@ package com.compiler.lexer.nfa;
  * <p>
  * An NFA is used in lexical analysis to model regular expressions and pattern matching.
  * This class encapsulates the start and end states of the automaton.
+ * <p>
+ * The array-based view used by the simulators and DFA constructions is
+ * built once per NFA and shared (see {@link #flatten()}), so a complete
+ * NFA must not gain new transitions once it has been simulated or
+ * converted.
  */
 public class NFA {
     /**
@@ -17,6 +22,9 @@ public class NFA {
      */
     public final State endState;
 
+    // Flat view shared by all users, built on first request
+    private volatile FlatNfa flat;
+
     /**
      * Constructs a new NFA with the given start and end states.
      * @param start The initial state.
@@ -34,4 +42,19 @@ public class NFA {
     public State getStartState() {
         return this.startState;
     }
+
+    /**
+     * Returns the array-based view of this NFA with its cached epsilon-closures.
+     * The view is built on the first call and then shared by every caller and thread.
+     * @return the flat view
+     */
+    public FlatNfa flatten() {
+        FlatNfa view = flat;
+        if (view == null) {
+            // Two threads may both build a view; either one is complete and equivalent
+            view = new FlatNfa(this);
+            flat = view;
+        }
+        return view;
+    }
 }
\ No newline at end of file
@@ -30,6 +30,16 @@ public class State {
      */
     private String tokenType;
 
+    /**
+     * ID of the lexer rule accepted by this state (lower wins), or -1.
+     */
+    private int rule = -1;
+
+    /**
+     * Whether tokens of the rule are discarded by the tokenizer.
+     */
+    private boolean skip;
+
     /**
      * Constructs a new state with a unique identifier and no transitions.
      * The state is not final by default.
@@ -65,15 +75,40 @@ public class State {
     }
 
     /**
-     * Returns the states reachable from this state via epsilon transitions (symbol
-     * == null).
+     * Gets the ID of the lexer rule accepted by this state, or -1 if none.
+     */
+    public int getRule() {
+        return rule;
+    }
+
+    /**
+     * Checks if tokens accepted by this state are discarded by the tokenizer
+     * (only meaningful if a rule is set).
+     */
+    public boolean isSkip() {
+        return skip;
+    }
+
+    /**
+     * Sets the lexer rule accepted by this state (only meaningful if final).
+     *
+     * @param rule The rule ID; lower IDs win when several rules accept.
+     * @param skip Whether tokens of the rule are discarded by the tokenizer.
+     */
+    public void setRule(int rule, boolean skip) {
+        this.rule = rule;
+        this.skip = skip;
+    }
+
+    /**
+     * Returns the states reachable from this state via epsilon transitions.
      *
      * @return a list of states reachable by epsilon transitions
      */
     public List<State> getEpsilonTransitions() {
-        List<State> epsilonStates = new java.util.LinkedList<>();
+        List<State> epsilonStates = new java.util.ArrayList<>();
         for (Transition t : transitions) {
-            if (t.symbol == null) {
+            if (t.isEpsilon()) {
                 epsilonStates.add(t.toState);
             }
         }
@@ -81,16 +116,16 @@ public class State {
     }
 
     /**
-     * Returns the states reachable from this state via a transition with the given
-     * symbol.
+     * Returns the states reachable from this state via a transition whose range
+     * contains the given symbol.
      *
      * @param symbol the symbol for the transition
      * @return a list of states reachable by the given symbol
      */
     public List<State> getTransitions(char symbol) {
-        List<State> symbolStates = new java.util.LinkedList<>();
+        List<State> symbolStates = new java.util.ArrayList<>();
         for (Transition t : transitions) {
-            if (t.symbol != null && t.symbol == symbol) {
+            if (t.matches(symbol)) {
                 symbolStates.add(t.toState);
             }
         }
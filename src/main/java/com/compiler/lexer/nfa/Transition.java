@@ -2,19 +2,34 @@ package com.compiler.lexer.nfa;
 
 /**
  * Represents a transition in a Non-deterministic Finite Automaton (NFA).
- * Each transition consists of a symbol and a destination state.
+ * Each transition consists of a character range and a destination state.
  *
  * <p>
- * The transition occurs when the automaton reads the specified symbol,
- * moving from the current state to the given destination state.
+ * The transition occurs when the automaton reads a symbol in the range
+ * {@code [lo, hi]}, moving from the current state to the given destination
+ * state. A single-character transition is the range {@code [c, c]}, so a
+ * character class like {@code [a-z]} needs one edge instead of 26.
  * </p>
  */
 public class Transition {
     /**
-     * The symbol that triggers this transition. Null for epsilon transitions.
+     * The symbol that triggers this transition if it is a single character.
+     * Null for epsilon transitions and for ranges of several characters.
      */
     public final Character symbol;
 
+    /**
+     * The lowest symbol of the range (unused for epsilon transitions).
+     */
+    public final char lo;
+
+    /**
+     * The highest symbol of the range, inclusive (unused for epsilon transitions).
+     */
+    public final char hi;
+
+    private final boolean epsilon;
+
     /**
      * The destination state for this transition.
      */
@@ -28,6 +43,41 @@ public class Transition {
      */
     public Transition(Character symbol, State toState) {
         this.symbol = symbol;
+        this.lo = symbol == null ? 0 : symbol;
+        this.hi = symbol == null ? 0 : symbol;
+        this.epsilon = symbol == null;
+        this.toState = toState;
+    }
+
+    /**
+     * Constructs a new transition on a range of symbols.
+     *
+     * @param lo The lowest symbol of the range.
+     * @param hi The highest symbol of the range (inclusive).
+     * @param toState The destination state.
+     */
+    public Transition(char lo, char hi, State toState) {
+        if (lo > hi) {
+            throw new IllegalArgumentException("Empty range: " + (int) lo + " > " + (int) hi);
+        }
+        this.symbol = lo == hi ? Character.valueOf(lo) : null;
+        this.lo = lo;
+        this.hi = hi;
+        this.epsilon = false;
         this.toState = toState;
     }
+
+    /**
+     * Checks if this is an epsilon transition.
+     */
+    public boolean isEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Checks if this transition is taken on the given symbol.
+     */
+    public boolean matches(char c) {
+        return !epsilon && lo <= c && c <= hi;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+package com.compiler.lexer.regex;
+
+import java.util.Arrays;
+
+/**
+ * CharSet
+ * -------
+ * Immutable set of characters stored as sorted, disjoint, non-adjacent
+ * inclusive ranges. Used for the operands of a regex: a single character,
+ * a bracket class such as {@code [a-zA-Z_]}, its negation, or {@code .}.
+ * Each range becomes one NFA edge.
+ */
+public final class CharSet {
+    /**
+     * The set of every character.
+     */
+    public static final CharSet ALL = new CharSet(new char[] {Character.MIN_VALUE, Character.MAX_VALUE});
+
+    /**
+     * The empty set.
+     */
+    public static final CharSet EMPTY = new CharSet(new char[0]);
+
+    // ranges[2i] .. ranges[2i + 1], inclusive
+    private final char[] ranges;
+
+    private CharSet(char[] ranges) {
+        this.ranges = ranges;
+    }
+
+    /**
+     * Returns the set holding a single character.
+     */
+    public static CharSet of(char c) {
+        return new CharSet(new char[] {c, c});
+    }
+
+    /**
+     * Returns the set of characters in {@code [lo, hi]}.
+     *
+     * @throws IllegalArgumentException If {@code lo > hi}.
+     */
+    public static CharSet range(char lo, char hi) {
+        if (lo > hi) {
+            throw new IllegalArgumentException("Invalid range: '" + lo + "'-'" + hi + "'");
+        }
+        return new CharSet(new char[] {lo, hi});
+    }
+
+    /**
+     * Returns the union of this set and another.
+     */
+    public CharSet union(CharSet other) {
+        if (other.ranges.length == 0) return this;
+        if (ranges.length == 0) return other;
+
+        // Merge both range lists by start, then coalesce overlapping or adjacent ranges
+        char[] merged = new char[ranges.length + other.ranges.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < ranges.length || j < other.ranges.length) {
+            char[] from;
+            int at;
+            if (j >= other.ranges.length || (i < ranges.length && ranges[i] <= other.ranges[j])) {
+                from = ranges;
+                at = i;
+                i += 2;
+            } else {
+                from = other.ranges;
+                at = j;
+                j += 2;
+            }
+            char lo = from[at];
+            char hi = from[at + 1];
+            if (n > 0 && lo <= merged[n - 1] + 1) {
+                if (hi > merged[n - 1]) merged[n - 1] = hi;
+            } else {
+                merged[n++] = lo;
+                merged[n++] = hi;
+            }
+        }
+        return new CharSet(Arrays.copyOf(merged, n));
+    }
+
+    /**
+     * Returns the set of characters not in this set.
+     */
+    public CharSet complement() {
+        char[] result = new char[ranges.length + 2];
+        int n = 0;
+        int next = Character.MIN_VALUE;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                result[n++] = (char) next;
+                result[n++] = (char) (ranges[i] - 1);
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= Character.MAX_VALUE) {
+            result[n++] = (char) next;
+            result[n++] = Character.MAX_VALUE;
+        }
+        return new CharSet(Arrays.copyOf(result, n));
+    }
+
+    /**
+     * Checks if the set contains a character.
+     */
+    public boolean contains(char c) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (c < ranges[i]) return false;
+            if (c <= ranges[i + 1]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the set is empty.
+     */
+    public boolean isEmpty() {
+        return ranges.length == 0;
+    }
+
+    /**
+     * Returns the number of disjoint ranges.
+     */
+    public int getRangeCount() {
+        return ranges.length / 2;
+    }
+
+    /**
+     * Returns the lowest character of the i-th range.
+     */
+    public char getLo(int i) {
+        return ranges[2 * i];
+    }
+
+    /**
+     * Returns the highest character (inclusive) of the i-th range.
+     */
+    public char getHi(int i) {
+        return ranges[2 * i + 1];
+    }
+
+    /**
+     * Checks if the set holds exactly one character.
+     */
+    public boolean isSingleChar() {
+        return ranges.length == 2 && ranges[0] == ranges[1];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CharSet && Arrays.equals(ranges, ((CharSet) o).ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ranges);
+    }
+
+    @Override
+    public String toString() {
+        if (isSingleChar()) {
+            StringBuilder sb = new StringBuilder();
+            if ("|*+?()[]{}.\\·".indexOf(ranges[0]) >= 0) sb.append('\\');
+            append(sb, ranges[0]);
+            return sb.toString();
+        }
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < ranges.length; i += 2) {
+            append(sb, ranges[i]);
+            if (ranges[i + 1] != ranges[i]) {
+                if (ranges[i + 1] > ranges[i] + 1) sb.append('-');
+                append(sb, ranges[i + 1]);
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    private static void append(StringBuilder sb, char c) {
+        if (c < 0x20 || c > 0x7E) {
+            sb.append(String.format("\\u%04x", (int) c));
+        } else {
+            if (c == ']' || c == '\\' || c == '-' || c == '^') sb.append('\\');
+            sb.append(c);
+        }
+    }
+}
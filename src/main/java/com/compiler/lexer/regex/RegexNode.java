@@ -0,0 +1,327 @@
+package com.compiler.lexer.regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * RegexNode
+ * ---------
+ * Immutable abstract syntax tree of a regular expression. Nodes are
+ * compared structurally, so equal subexpressions can be detected and
+ * merged by {@link RegexSimplifier}. Concatenations and unions are n-ary.
+ *
+ * Example usage:
+ * <pre>
+ *     RegexNode tree = RegexSimplifier.simplify(RegexNode.parse("if|in|int"));
+ *     // tree.toString() is "i(f|nt?)"
+ * </pre>
+ */
+public final class RegexNode {
+
+    /**
+     * Kind of a node.
+     */
+    public enum Kind {
+        /** Matches the empty string only. */
+        EMPTY,
+        /** Matches one character of a {@link CharSet}. */
+        CHARS,
+        /** Matches its children in sequence. */
+        CONCAT,
+        /** Matches any of its children. */
+        UNION,
+        /** Zero or more repetitions of its child. */
+        STAR,
+        /** One or more repetitions of its child. */
+        PLUS,
+        /** Zero or one occurrence of its child. */
+        OPTIONAL,
+        /** Between min and max (or unbounded, -1) repetitions of its child. */
+        REPEAT
+    }
+
+    private static final RegexNode EMPTY = new RegexNode(Kind.EMPTY, null, Collections.emptyList(), 0, 0);
+
+    private final Kind kind;
+    private final CharSet chars;
+    private final List<RegexNode> children;
+    private final int min;
+    private final int max;
+    private final int hash;
+
+    private RegexNode(Kind kind, CharSet chars, List<RegexNode> children, int min, int max) {
+        this.kind = kind;
+        this.chars = chars;
+        this.children = children;
+        this.min = min;
+        this.max = max;
+        this.hash = Objects.hash(kind, chars, children, min, max);
+    }
+
+    /**
+     * Returns the node matching only the empty string.
+     */
+    public static RegexNode empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns a node matching one character of a set.
+     */
+    public static RegexNode chars(CharSet chars) {
+        return new RegexNode(Kind.CHARS, chars, Collections.emptyList(), 0, 0);
+    }
+
+    /**
+     * Returns the concatenation of nodes.
+     */
+    public static RegexNode concat(List<RegexNode> children) {
+        return new RegexNode(Kind.CONCAT, null, List.copyOf(children), 0, 0);
+    }
+
+    /**
+     * Returns the union (alternation) of nodes.
+     */
+    public static RegexNode union(List<RegexNode> children) {
+        return new RegexNode(Kind.UNION, null, List.copyOf(children), 0, 0);
+    }
+
+    /**
+     * Returns {@code child*}.
+     */
+    public static RegexNode star(RegexNode child) {
+        return new RegexNode(Kind.STAR, null, List.of(child), 0, -1);
+    }
+
+    /**
+     * Returns {@code child+}.
+     */
+    public static RegexNode plus(RegexNode child) {
+        return new RegexNode(Kind.PLUS, null, List.of(child), 1, -1);
+    }
+
+    /**
+     * Returns {@code child?}.
+     */
+    public static RegexNode optional(RegexNode child) {
+        return new RegexNode(Kind.OPTIONAL, null, List.of(child), 0, 1);
+    }
+
+    /**
+     * Returns {@code child{min,max}}.
+     *
+     * @param max The maximum count, or -1 if unbounded.
+     */
+    public static RegexNode repeat(RegexNode child, int min, int max) {
+        if (min < 0 || (max >= 0 && max < min)) {
+            throw new IllegalArgumentException("Invalid repetition {" + min + "," + (max < 0 ? "" : max) + "}");
+        }
+        return new RegexNode(Kind.REPEAT, null, List.of(child), min, max);
+    }
+
+    /**
+     * Parses a regular expression (see {@link ShuntingYard} for the syntax).
+     *
+     * @param regex Regular expression in infix notation.
+     * @return The syntax tree, not simplified.
+     */
+    public static RegexNode parse(String regex) {
+        return fromPostfix(ShuntingYard.toPostfixTokens(regex));
+    }
+
+    /**
+     * Builds the syntax tree of postfix tokens.
+     *
+     * @param postfix Tokens in postfix order, as produced by {@link ShuntingYard#toPostfixTokens}.
+     * @return The syntax tree.
+     * @throws IllegalStateException If the tokens do not form a single expression.
+     */
+    public static RegexNode fromPostfix(List<RegexToken> postfix) {
+        Deque<RegexNode> stack = new ArrayDeque<>();
+        for (RegexToken token : postfix) {
+            if (token.isOperand()) {
+                stack.push(chars(token.getChars()));
+                continue;
+            }
+            switch (token.getOperator()) {
+                case '·': {
+                    RegexNode right = pop(stack);
+                    stack.push(concat(join(Kind.CONCAT, pop(stack), right)));
+                    break;
+                }
+                case '|': {
+                    RegexNode right = pop(stack);
+                    stack.push(union(join(Kind.UNION, pop(stack), right)));
+                    break;
+                }
+                case '*': stack.push(star(pop(stack))); break;
+                case '+': stack.push(plus(pop(stack))); break;
+                case '?': stack.push(optional(pop(stack))); break;
+                case '{': stack.push(repeat(pop(stack), token.getMin(), token.getMax())); break;
+                default: throw new IllegalArgumentException("Invalid operator: " + token.getOperator());
+            }
+        }
+        if (stack.size() != 1) {
+            throw new IllegalStateException("Invalid postfix regex, stack size != 1");
+        }
+        return stack.pop();
+    }
+
+    /**
+     * Operands of a binary operator, merging a left operand of the same kind
+     * so that long sequences give flat n-ary nodes instead of deep trees.
+     */
+    private static List<RegexNode> join(Kind kind, RegexNode left, RegexNode right) {
+        List<RegexNode> operands = new ArrayList<>();
+        if (left.kind == kind) operands.addAll(left.children); else operands.add(left);
+        operands.add(right);
+        return operands;
+    }
+
+    private static RegexNode pop(Deque<RegexNode> stack) {
+        if (stack.isEmpty()) {
+            throw new IllegalStateException("Invalid postfix regex, missing operand");
+        }
+        return stack.pop();
+    }
+
+    /**
+     * Returns the kind of this node.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the characters of a CHARS node, or null.
+     */
+    public CharSet getChars() {
+        return chars;
+    }
+
+    /**
+     * Returns the children (empty for EMPTY and CHARS nodes).
+     */
+    public List<RegexNode> getChildren() {
+        return children;
+    }
+
+    /**
+     * Returns the only child of a STAR, PLUS, OPTIONAL or REPEAT node.
+     */
+    public RegexNode getChild() {
+        return children.get(0);
+    }
+
+    /**
+     * Returns the minimum count of a REPEAT node.
+     */
+    public int getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the maximum count of a REPEAT node, or -1 if unbounded.
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Checks if the expression matches the empty string.
+     */
+    public boolean isNullable() {
+        switch (kind) {
+            case EMPTY:
+            case STAR:
+            case OPTIONAL:
+                return true;
+            case CHARS:
+                return false;
+            case CONCAT:
+                for (RegexNode child : children) {
+                    if (!child.isNullable()) return false;
+                }
+                return true;
+            case UNION:
+                for (RegexNode child : children) {
+                    if (child.isNullable()) return true;
+                }
+                return false;
+            case PLUS:
+                return getChild().isNullable();
+            case REPEAT:
+                return min == 0 || getChild().isNullable();
+            default:
+                throw new IllegalStateException("Unknown kind " + kind);
+        }
+    }
+
+    /**
+     * Counts the nodes of the tree.
+     */
+    public int size() {
+        int size = 1;
+        for (RegexNode child : children) size += child.size();
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RegexNode)) return false;
+        RegexNode other = (RegexNode) o;
+        return hash == other.hash && kind == other.kind && min == other.min && max == other.max
+            && Objects.equals(chars, other.chars) && children.equals(other.children);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Returns the expression in regex syntax (with minimal parentheses).
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        append(sb, 0);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the expression, parenthesized if its precedence is below
+     * the context's (0 = union, 1 = concatenation, 2 = postfix operand).
+     */
+    private void append(StringBuilder sb, int context) {
+        int precedence = kind == Kind.UNION ? 0 : kind == Kind.CONCAT ? 1 : 2;
+        boolean parens = precedence < context || (kind == Kind.EMPTY && context == 2);
+        if (parens) sb.append('(');
+        switch (kind) {
+            case EMPTY:
+                break;
+            case CHARS:
+                sb.append(chars);
+                break;
+            case CONCAT:
+                for (RegexNode child : children) child.append(sb, 1);
+                break;
+            case UNION:
+                for (int i = 0; i < children.size(); i++) {
+                    if (i > 0) sb.append('|');
+                    children.get(i).append(sb, 0);
+                }
+                break;
+            default:
+                getChild().append(sb, 2);
+                sb.append(kind == Kind.STAR ? "*" : kind == Kind.PLUS ? "+" : kind == Kind.OPTIONAL ? "?"
+                    : "{" + min + (min == max ? "" : "," + (max < 0 ? "" : max)) + "}");
+        }
+        if (parens) sb.append(')');
+    }
+}
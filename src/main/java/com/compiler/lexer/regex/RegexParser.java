@@ -1,5 +1,9 @@
 package com.compiler.lexer.regex;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 
 import com.compiler.lexer.nfa.NFA;
@@ -10,15 +14,34 @@ import com.compiler.lexer.nfa.Transition;
  * RegexParser
  * -----------
  * Parses regular expressions and constructs NFAs using Thompson's construction.
+ * The expression is first parsed into a {@link RegexNode} tree and
+ * simplified by {@link RegexSimplifier}, so redundant forms such as
+ * {@code (a|a)}, {@code (x*)*} or alternations of single characters
+ * create no extra states.
  * Supports the operators: concatenation (·), union (|), Kleene star (*),
- * optional (?), and plus (+).
+ * optional (?), and plus (+), over operands that are single characters,
+ * bracket classes ({@code [a-z_]}, {@code [^0-9]}), escapes or {@code .}
+ * (see {@link ShuntingYard}). An operand becomes one NFA edge per character
+ * range, so {@code [a-zA-Z0-9_]} costs two states and four edges.
+ * <p>
+ * Counted repetitions {@code {m}}, {@code {m,}} and {@code {m,n}} copy the
+ * repeated sub-NFA only as often as needed: the optional copies of
+ * {@code {m,n}} all exit to one shared end state, and {@code {m,}} loops on
+ * its last mandatory copy. A repetition that would need more NFA states than
+ * the parser's state budget is rejected with an IllegalArgumentException.
  */
 public class RegexParser {
 
+    /**
+     * Default maximum number of NFA states a single repetition may create.
+     */
+    public static final int DEFAULT_STATE_BUDGET = 10_000;
+
     private final String tokenType;
+    private final int stateBudget;
 
     public RegexParser() {
-        this.tokenType = null; // default tokenType
+        this(null); // default tokenType
     }
 
     /**
@@ -27,46 +50,66 @@ public class RegexParser {
      * @param tokenType The type of token this regex represents.
      */
     public RegexParser(String tokenType) {
+        this(tokenType, DEFAULT_STATE_BUDGET);
+    }
+
+    /**
+     * Constructor for RegexParser with token type and repetition state budget.
+     *
+     * @param tokenType   The type of token this regex represents.
+     * @param stateBudget Maximum number of NFA states a single repetition may create.
+     */
+    public RegexParser(String tokenType, int stateBudget) {
+        if (stateBudget < 1) {
+            throw new IllegalArgumentException("stateBudget must be positive");
+        }
         this.tokenType = tokenType;
+        this.stateBudget = stateBudget;
     }
 
     public NFA parse(String infixRegex) {
-        // Convert infix regex to postfix using Shunting Yard algorithm
-        String postfix = ShuntingYard.toPostfix(infixRegex);
-        NFA nfa = buildNfaFromPostfix(postfix);
+        // Convert infix regex to a syntax tree (Shunting Yard) and simplify it
+        RegexNode tree = RegexSimplifier.simplify(RegexNode.parse(infixRegex));
+        return parse(tree);
+    }
+
+    /**
+     * Builds the NFA of a regex syntax tree with Thompson's construction.
+     *
+     * @param tree The (preferably simplified) syntax tree.
+     * @return The NFA, whose end state is final and carries the token type.
+     */
+    public NFA parse(RegexNode tree) {
+        Stack<NFA> stack = new Stack<>();
+        buildNfa(tree, stack);
+        NFA nfa = stack.pop();
 
         // Assign tokenType to the final state
         nfa.endState.isFinal = true;
         nfa.endState.setTokenType(tokenType);
-
         return nfa;
     }
 
-    private NFA buildNfaFromPostfix(String postfixRegex) {
-        Stack<NFA> stack = new Stack<>();
-
-        for (int i = 0; i < postfixRegex.length(); i++) {
-            char c = postfixRegex.charAt(i);
-
-            if (isOperand(c)) {
-                stack.push(createNfaForCharacter(c));
-            } else {
-                switch (c) {
-                    case '·': handleConcatenation(stack); break;
-                    case '|': handleUnion(stack); break;
-                    case '*': handleKleeneStar(stack); break;
-                    case '?': handleOptional(stack); break;
-                    case '+': handlePlus(stack); break;
-                    default: throw new IllegalArgumentException("Invalid operator: " + c);
-                }
-            }
+    private void buildNfa(RegexNode node, Stack<NFA> stack) {
+        switch (node.getKind()) {
+            case EMPTY: stack.push(createEmptyNfa()); return;
+            case CHARS: stack.push(createNfaForCharSet(node.getChars())); return;
+            default: break;
         }
-
-        if (stack.size() != 1) {
-            throw new IllegalStateException("Invalid postfix regex, stack size != 1");
+        for (RegexNode child : node.getChildren()) {
+            buildNfa(child, stack);
+        }
+        switch (node.getKind()) {
+            case CONCAT:
+                for (int i = 1; i < node.getChildren().size(); i++) handleConcatenation(stack);
+                break;
+            case UNION: handleUnion(stack, node.getChildren().size()); break;
+            case STAR: handleKleeneStar(stack); break;
+            case OPTIONAL: handleOptional(stack); break;
+            case PLUS: handlePlus(stack); break;
+            case REPEAT: handleRepetition(stack, node.getMin(), node.getMax()); break;
+            default: throw new IllegalArgumentException("Invalid node: " + node.getKind());
         }
-
-        return stack.pop();
     }
 
     /**
@@ -104,17 +147,127 @@ public class RegexParser {
         nfa.endState.transitions.add(new Transition(null, nfa.startState));
         nfa.endState.transitions.add(new Transition(null, end));
 
+        // The inner end is no longer accepting: "a+b" must not accept "a"
+        nfa.endState.isFinal = false;
+        nfa.endState.setTokenType(null);
+
         end.isFinal = true;
         end.setTokenType(tokenType);
 
         stack.push(new NFA(start, end));
     }
 
-    private NFA createNfaForCharacter(char c) {
+    /**
+     * Handles the counted repetition {min,max} (max = -1 for unbounded).
+     * The sub-NFA is reused as the first copy and cloned for the others;
+     * the optional copies share a single exit state.
+     */
+    private void handleRepetition(Stack<NFA> stack, int min, int max) {
+        NFA nfa = stack.pop();
+        boolean bounded = max >= 0;
+        int copies = bounded ? max : Math.max(min, 1);
+
+        long needed = (long) copies * countStates(nfa) + 2;
+        if (needed > stateBudget) {
+            throw new IllegalArgumentException("Repetition {" + min + "," + (bounded ? max : "") + "} needs "
+                + needed + " NFA states, more than the budget of " + stateBudget);
+        }
+
+        // Clone before linking: afterwards the fragment reaches the next copies
+        NFA[] fragments = new NFA[copies];
+        for (int i = 0; i < copies; i++) {
+            fragments[i] = i == 0 ? nfa : copyNfa(nfa);
+        }
+
         State start = new State();
         State end = new State();
+        State cursor = start;
+        for (int i = 0; i < copies; i++) {
+            NFA copy = fragments[i];
+            // Optional copies (and X{0,} as a whole) may be skipped straight to the shared end
+            if (bounded ? i >= min : min == 0) {
+                cursor.transitions.add(new Transition(null, end));
+            }
+            copy.endState.isFinal = false;
+            copy.endState.setTokenType(null);
+            cursor.transitions.add(new Transition(null, copy.startState));
+            cursor = copy.endState;
+            if (!bounded && i == copies - 1) {
+                cursor.transitions.add(new Transition(null, copy.startState)); // X{m,} = X{m-1}X+
+            }
+        }
+        cursor.transitions.add(new Transition(null, end));
 
-        start.transitions.add(new Transition(c, end));
+        end.isFinal = true;
+        end.setTokenType(tokenType);
+
+        stack.push(new NFA(start, end));
+    }
+
+    /**
+     * Counts the states of an NFA fragment.
+     */
+    private static int countStates(NFA nfa) {
+        return reachableStates(nfa.startState).size();
+    }
+
+    /**
+     * Lists the states reachable from a state (BFS order).
+     */
+    private static List<State> reachableStates(State from) {
+        Map<State, Boolean> seen = new IdentityHashMap<>();
+        List<State> order = new ArrayList<>();
+        seen.put(from, Boolean.TRUE);
+        order.add(from);
+        for (int i = 0; i < order.size(); i++) {
+            for (Transition t : order.get(i).transitions) {
+                if (seen.put(t.toState, Boolean.TRUE) == null) order.add(t.toState);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Creates an independent copy of an NFA fragment.
+     */
+    private static NFA copyNfa(NFA nfa) {
+        Map<State, State> copies = new IdentityHashMap<>();
+        List<State> states = reachableStates(nfa.startState);
+        for (State state : states) {
+            State copy = new State();
+            copy.isFinal = state.isFinal;
+            copy.setTokenType(state.getTokenType());
+            copies.put(state, copy);
+        }
+        for (State state : states) {
+            State copy = copies.get(state);
+            for (Transition t : state.transitions) {
+                State target = copies.get(t.toState);
+                copy.transitions.add(t.isEpsilon() ? new Transition(null, target) : new Transition(t.lo, t.hi, target));
+            }
+        }
+        return new NFA(copies.get(nfa.startState), copies.get(nfa.endState));
+    }
+
+    private NFA createEmptyNfa() {
+        State start = new State();
+        State end = new State();
+
+        start.transitions.add(new Transition(null, end));
+        end.isFinal = true;
+        end.setTokenType(tokenType);
+
+        return new NFA(start, end);
+    }
+
+    private NFA createNfaForCharSet(CharSet chars) {
+        State start = new State();
+        State end = new State();
+
+        // One edge per range of the set
+        for (int i = 0; i < chars.getRangeCount(); i++) {
+            start.transitions.add(new Transition(chars.getLo(i), chars.getHi(i), end));
+        }
         end.isFinal = true;
         end.setTokenType(tokenType);
 
@@ -132,23 +285,23 @@ public class RegexParser {
         stack.push(new NFA(nfa1.startState, nfa2.endState));
     }
 
-    private void handleUnion(Stack<NFA> stack) {
-        NFA nfa2 = stack.pop();
-        NFA nfa1 = stack.pop();
-
+    /**
+     * Handles an n-ary union: one new start and end state for all alternatives.
+     */
+    private void handleUnion(Stack<NFA> stack, int count) {
         State start = new State();
         State end = new State();
 
-        start.transitions.add(new Transition(null, nfa1.startState));
-        start.transitions.add(new Transition(null, nfa2.startState));
-
-        nfa1.endState.isFinal = false;
-        nfa1.endState.setTokenType(null);
-        nfa2.endState.isFinal = false;
-        nfa2.endState.setTokenType(null);
-
-        nfa1.endState.transitions.add(new Transition(null, end));
-        nfa2.endState.transitions.add(new Transition(null, end));
+        NFA[] alternatives = new NFA[count];
+        for (int i = count - 1; i >= 0; i--) {
+            alternatives[i] = stack.pop();
+        }
+        for (NFA nfa : alternatives) {
+            start.transitions.add(new Transition(null, nfa.startState));
+            nfa.endState.isFinal = false;
+            nfa.endState.setTokenType(null);
+            nfa.endState.transitions.add(new Transition(null, end));
+        }
 
         end.isFinal = true;
         end.setTokenType(tokenType);
@@ -176,8 +329,4 @@ public class RegexParser {
 
         stack.push(new NFA(start, end));
     }
-
-    private boolean isOperand(char c) {
-        return !(c == '·' || c == '|' || c == '*' || c == '?' || c == '+' || c == '(' || c == ')');
-    }
 }
\ No newline at end of file
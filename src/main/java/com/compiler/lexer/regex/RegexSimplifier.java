@@ -0,0 +1,205 @@
+package com.compiler.lexer.regex;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RegexSimplifier
+ * ---------------
+ * Rewrites a {@link RegexNode} tree into an equivalent, smaller one before
+ * NFA construction. Bottom-up, it:
+ * <ul>
+ *   <li>flattens nested concatenations and unions and drops empty factors;</li>
+ *   <li>removes duplicate alternatives ({@code a|a} = {@code a});</li>
+ *   <li>factors common prefixes of alternatives ({@code if|in|int} = {@code i(f|nt?)});</li>
+ *   <li>merges single-character alternatives into one set ({@code a|b|c} = {@code [a-c]});</li>
+ *   <li>collapses nested quantifiers ({@code (x*)*} = {@code x*}, {@code a?*} = {@code a*},
+ *       {@code (x+)?} = {@code x*}) and trivial repetitions ({@code x{1}} = {@code x}).</li>
+ * </ul>
+ * Each rewrite preserves the language, so the resulting automaton accepts
+ * exactly the same strings with fewer states and epsilon transitions.
+ */
+public final class RegexSimplifier {
+
+    private RegexSimplifier() {
+    }
+
+    /**
+     * Simplifies a regex tree.
+     *
+     * @param node The tree to simplify.
+     * @return An equivalent tree, possibly the same instance.
+     */
+    public static RegexNode simplify(RegexNode node) {
+        switch (node.getKind()) {
+            case EMPTY:
+            case CHARS:
+                return node;
+            case CONCAT:
+                return simplifyConcat(node.getChildren());
+            case UNION:
+                return simplifyUnion(node.getChildren());
+            case STAR:
+                return star(simplify(node.getChild()));
+            case PLUS:
+                return plus(simplify(node.getChild()));
+            case OPTIONAL:
+                return optional(simplify(node.getChild()));
+            case REPEAT:
+                return repeat(simplify(node.getChild()), node.getMin(), node.getMax());
+            default:
+                throw new IllegalStateException("Unknown kind " + node.getKind());
+        }
+    }
+
+    private static RegexNode simplifyConcat(List<RegexNode> children) {
+        List<RegexNode> factors = new ArrayList<>();
+        for (RegexNode child : children) {
+            addFactor(factors, simplify(child));
+        }
+        return concat(factors);
+    }
+
+    /**
+     * Appends a factor to a concatenation, flattening nested ones and dropping EMPTY.
+     */
+    private static void addFactor(List<RegexNode> factors, RegexNode factor) {
+        if (factor.getKind() == RegexNode.Kind.CONCAT) {
+            factors.addAll(factor.getChildren());
+        } else if (factor.getKind() != RegexNode.Kind.EMPTY) {
+            factors.add(factor);
+        }
+    }
+
+    private static RegexNode concat(List<RegexNode> factors) {
+        if (factors.isEmpty()) return RegexNode.empty();
+        if (factors.size() == 1) return factors.get(0);
+        return RegexNode.concat(factors);
+    }
+
+    private static RegexNode simplifyUnion(List<RegexNode> children) {
+        // Step 1: Flatten nested unions and remove duplicates (order of first appearance)
+        Set<RegexNode> alternatives = new LinkedHashSet<>();
+        for (RegexNode child : children) {
+            RegexNode alternative = simplify(child);
+            if (alternative.getKind() == RegexNode.Kind.UNION) {
+                alternatives.addAll(alternative.getChildren());
+            } else {
+                alternatives.add(alternative);
+            }
+        }
+        return union(alternatives);
+    }
+
+    /**
+     * Builds the simplified union of already simplified, flattened alternatives.
+     */
+    private static RegexNode union(Set<RegexNode> alternatives) {
+        // Step 2: Factor common prefixes: group the alternatives by their first factor
+        boolean nullable = alternatives.remove(RegexNode.empty());
+        Map<RegexNode, List<List<RegexNode>>> groups = new LinkedHashMap<>();
+        for (RegexNode alternative : alternatives) {
+            List<RegexNode> factors = factorsOf(alternative);
+            groups.computeIfAbsent(factors.get(0), k -> new ArrayList<>()).add(factors);
+        }
+        List<RegexNode> result = new ArrayList<>();
+        for (Map.Entry<RegexNode, List<List<RegexNode>>> group : groups.entrySet()) {
+            List<List<RegexNode>> members = group.getValue();
+            if (members.size() == 1) {
+                result.add(concat(members.get(0)));
+                continue;
+            }
+            Set<RegexNode> suffixes = new LinkedHashSet<>();
+            for (List<RegexNode> factors : members) {
+                suffixes.add(concat(factors.subList(1, factors.size())));
+            }
+            List<RegexNode> factored = new ArrayList<>();
+            factored.add(group.getKey());
+            addFactor(factored, union(flatten(suffixes)));
+            result.add(concat(factored));
+        }
+
+        // Step 3: Merge the single-character alternatives into one set
+        CharSet merged = null;
+        int mergedAt = -1;
+        List<RegexNode> others = new ArrayList<>();
+        for (RegexNode alternative : result) {
+            if (alternative.getKind() == RegexNode.Kind.CHARS) {
+                if (merged == null) mergedAt = others.size();
+                merged = merged == null ? alternative.getChars() : merged.union(alternative.getChars());
+            } else {
+                others.add(alternative);
+            }
+        }
+        if (merged != null) others.add(mergedAt, RegexNode.chars(merged));
+
+        RegexNode union = others.isEmpty() ? RegexNode.empty()
+            : others.size() == 1 ? others.get(0)
+            : RegexNode.union(others);
+        return nullable ? optional(union) : union;
+    }
+
+    /**
+     * Flattens unions among a set of alternatives.
+     */
+    private static Set<RegexNode> flatten(Set<RegexNode> alternatives) {
+        Set<RegexNode> flat = new LinkedHashSet<>();
+        for (RegexNode alternative : alternatives) {
+            if (alternative.getKind() == RegexNode.Kind.UNION) {
+                flat.addAll(alternative.getChildren());
+            } else {
+                flat.add(alternative);
+            }
+        }
+        return flat;
+    }
+
+    private static List<RegexNode> factorsOf(RegexNode node) {
+        return node.getKind() == RegexNode.Kind.CONCAT ? node.getChildren() : List.of(node);
+    }
+
+    private static RegexNode star(RegexNode child) {
+        switch (child.getKind()) {
+            case EMPTY:
+            case STAR:
+                return child; // ()* = (), (x*)* = x*
+            case PLUS:
+            case OPTIONAL:
+                return star(child.getChild()); // (x+)* = (x?)* = x*
+            default:
+                return RegexNode.star(child);
+        }
+    }
+
+    private static RegexNode plus(RegexNode child) {
+        switch (child.getKind()) {
+            case EMPTY:
+            case STAR:
+            case PLUS:
+                return child; // (x*)+ = x*, (x+)+ = x+
+            case OPTIONAL:
+                return star(child.getChild()); // (x?)+ = x*
+            default:
+                return RegexNode.plus(child);
+        }
+    }
+
+    private static RegexNode optional(RegexNode child) {
+        if (child.isNullable()) return child; // (x*)? = x*, (x?)? = x?
+        if (child.getKind() == RegexNode.Kind.PLUS) return star(child.getChild()); // (x+)? = x*
+        return RegexNode.optional(child);
+    }
+
+    private static RegexNode repeat(RegexNode child, int min, int max) {
+        if (child.getKind() == RegexNode.Kind.EMPTY || (min == 1 && max == 1)) return child;
+        if (max == 0) return RegexNode.empty();
+        if (min == 0 && max == 1) return optional(child);
+        if (min == 0 && max < 0) return star(child);
+        if (min == 1 && max < 0) return plus(child);
+        return RegexNode.repeat(child, min, max);
+    }
+}
@@ -0,0 +1,451 @@
+package com.compiler.lexer.regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * RegexTerm
+ * ---------
+ * Immutable extended regular expression in canonical form, used as a DFA
+ * state by the derivative construction ({@code DerivativeDfaBuilder}).
+ * Besides the usual operators it supports intersection ({@code r & s}) and
+ * complement ({@code ~r}), so rules like "identifier but not keyword" can be
+ * written directly:
+ * <pre>
+ *     RegexTerm identifier = RegexTerm.and(RegexTerm.parse("[a-z]+"),
+ *                                          RegexTerm.not(RegexTerm.parse("if|else")));
+ * </pre>
+ * Terms are only built through smart constructors, which apply the
+ * similarity rules of Brzozowski/Owens et al.: unions and intersections are
+ * flattened, deduplicated and sorted, the empty language and the empty
+ * string are absorbed, concatenations are right-associated, and
+ * {@code (r*)*} = {@code r*}, {@code ~~r} = {@code r}. Equal languages that
+ * arise from derivatives therefore usually have equal terms, which keeps
+ * the number of DFA states close to the minimum.
+ * <p>
+ * Counted repetitions nest one term per optional copy, so the methods that
+ * walk a whole term use explicit stacks rather than recursion.
+ */
+public final class RegexTerm implements Comparable<RegexTerm> {
+
+    /**
+     * Kind of a term.
+     */
+    public enum Kind {
+        /** The empty language. */
+        NOTHING,
+        /** Matches the empty string only. */
+        EPSILON,
+        /** Matches one character of a {@link CharSet}. */
+        CHARS,
+        /** Matches its two children in sequence. */
+        CONCAT,
+        /** Zero or more repetitions of its child. */
+        STAR,
+        /** Matches any of its children. */
+        OR,
+        /** Matches all of its children. */
+        AND,
+        /** Matches every string its child does not match. */
+        NOT
+    }
+
+    private static final RegexTerm NOTHING = new RegexTerm(Kind.NOTHING, null, Collections.emptyList());
+    private static final RegexTerm EPSILON = new RegexTerm(Kind.EPSILON, null, Collections.emptyList());
+    private static final RegexTerm ANYTHING = new RegexTerm(Kind.NOT, null, List.of(NOTHING));
+
+    private final Kind kind;
+    private final CharSet chars;
+    private final List<RegexTerm> children;
+    private final boolean nullable;
+    private final boolean complement;
+    private final int hash;
+
+    private RegexTerm(Kind kind, CharSet chars, List<RegexTerm> children) {
+        this.kind = kind;
+        this.chars = chars;
+        this.children = children;
+        this.nullable = computeNullable();
+        boolean negated = kind == Kind.NOT;
+        for (RegexTerm child : children) negated |= child.complement;
+        this.complement = negated;
+        this.hash = Objects.hash(kind, chars, children);
+    }
+
+    /**
+     * Parses a regular expression (see {@link ShuntingYard} for the syntax).
+     *
+     * @param regex Regular expression in infix notation.
+     * @return The equivalent term.
+     */
+    public static RegexTerm parse(String regex) {
+        return of(RegexSimplifier.simplify(RegexNode.parse(regex)));
+    }
+
+    /**
+     * Converts a syntax tree into a term. Counted repetitions are expanded,
+     * within {@link RegexParser#DEFAULT_STATE_BUDGET} nodes per repetition.
+     *
+     * @throws IllegalArgumentException If a repetition exceeds the budget.
+     */
+    public static RegexTerm of(RegexNode node) {
+        switch (node.getKind()) {
+            case EMPTY:
+                return EPSILON;
+            case CHARS:
+                return chars(node.getChars());
+            case CONCAT: {
+                RegexTerm term = EPSILON;
+                List<RegexNode> children = node.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) term = concat(of(children.get(i)), term);
+                return term;
+            }
+            case UNION: {
+                RegexTerm term = NOTHING;
+                for (RegexNode child : node.getChildren()) term = or(term, of(child));
+                return term;
+            }
+            case STAR:
+                return star(of(node.getChild()));
+            case PLUS: {
+                RegexTerm child = of(node.getChild());
+                return concat(child, star(child));
+            }
+            case OPTIONAL:
+                return or(EPSILON, of(node.getChild()));
+            case REPEAT: {
+                // r{m,n} = r...r (r(r(...)?)?)?, r{m,} = r...r r*
+                int copies = node.getMax() < 0 ? Math.max(node.getMin(), 1) : node.getMax();
+                long size = (long) copies * node.getChild().size();
+                if (size > RegexParser.DEFAULT_STATE_BUDGET) {
+                    throw new IllegalArgumentException("Repetition {" + node.getMin() + ","
+                        + (node.getMax() < 0 ? "" : node.getMax()) + "} needs " + size
+                        + " nodes, more than the budget of " + RegexParser.DEFAULT_STATE_BUDGET);
+                }
+                RegexTerm child = of(node.getChild());
+                RegexTerm tail = node.getMax() < 0 ? star(child) : EPSILON;
+                for (int i = node.getMin(); i < node.getMax(); i++) tail = or(EPSILON, concat(child, tail));
+                for (int i = 0; i < node.getMin(); i++) tail = concat(child, tail);
+                return tail;
+            }
+            default:
+                throw new IllegalStateException("Unknown kind " + node.getKind());
+        }
+    }
+
+    /**
+     * Returns the empty language.
+     */
+    public static RegexTerm nothing() {
+        return NOTHING;
+    }
+
+    /**
+     * Returns the term matching only the empty string.
+     */
+    public static RegexTerm epsilon() {
+        return EPSILON;
+    }
+
+    /**
+     * Returns the term matching every string ({@code ~nothing}).
+     */
+    public static RegexTerm anything() {
+        return ANYTHING;
+    }
+
+    /**
+     * Returns the term matching one character of a set.
+     */
+    public static RegexTerm chars(CharSet chars) {
+        return chars.isEmpty() ? NOTHING : new RegexTerm(Kind.CHARS, chars, Collections.emptyList());
+    }
+
+    /**
+     * Returns {@code left right}.
+     */
+    public static RegexTerm concat(RegexTerm left, RegexTerm right) {
+        if (left.kind == Kind.NOTHING || right.kind == Kind.NOTHING) return NOTHING;
+        if (left.kind == Kind.EPSILON) return right;
+        if (right.kind == Kind.EPSILON) return left;
+        // (rs)t = r(st): rebuild the right-associated chain of left in front of right
+        List<RegexTerm> chain = new ArrayList<>();
+        while (left.kind == Kind.CONCAT) {
+            chain.add(left.children.get(0));
+            left = left.children.get(1);
+        }
+        RegexTerm term = new RegexTerm(Kind.CONCAT, null, List.of(left, right));
+        for (int i = chain.size() - 1; i >= 0; i--) term = new RegexTerm(Kind.CONCAT, null, List.of(chain.get(i), term));
+        return term;
+    }
+
+    /**
+     * Returns {@code child*}.
+     */
+    public static RegexTerm star(RegexTerm child) {
+        if (child.kind == Kind.NOTHING || child.kind == Kind.EPSILON) return EPSILON;
+        if (child.kind == Kind.STAR) return child;
+        return new RegexTerm(Kind.STAR, null, List.of(child));
+    }
+
+    /**
+     * Returns {@code left | right}.
+     */
+    public static RegexTerm or(RegexTerm left, RegexTerm right) {
+        TreeSet<RegexTerm> operands = new TreeSet<>();
+        CharSet merged = CharSet.EMPTY;
+        for (RegexTerm term : new RegexTerm[] {left, right}) {
+            for (RegexTerm operand : term.kind == Kind.OR ? term.children : List.of(term)) {
+                if (operand.equals(ANYTHING)) return ANYTHING; // r | ~() = ~()
+                if (operand.kind == Kind.CHARS) {
+                    merged = merged.union(operand.chars);
+                } else if (operand.kind != Kind.NOTHING) {
+                    operands.add(operand);
+                }
+            }
+        }
+        if (!merged.isEmpty()) operands.add(chars(merged));
+        return combine(Kind.OR, operands, NOTHING);
+    }
+
+    /**
+     * Returns {@code left & right}: the strings matched by both.
+     */
+    public static RegexTerm and(RegexTerm left, RegexTerm right) {
+        TreeSet<RegexTerm> operands = new TreeSet<>();
+        for (RegexTerm term : new RegexTerm[] {left, right}) {
+            for (RegexTerm operand : term.kind == Kind.AND ? term.children : List.of(term)) {
+                if (operand.kind == Kind.NOTHING) return NOTHING; // r & {} = {}
+                if (!operand.equals(ANYTHING)) operands.add(operand);
+            }
+        }
+        return combine(Kind.AND, operands, ANYTHING);
+    }
+
+    /**
+     * Returns {@code ~child}: the strings not matched by child.
+     */
+    public static RegexTerm not(RegexTerm child) {
+        if (child.kind == Kind.NOT) return child.children.get(0);
+        if (child.kind == Kind.NOTHING) return ANYTHING;
+        return new RegexTerm(Kind.NOT, null, List.of(child));
+    }
+
+    private static RegexTerm combine(Kind kind, TreeSet<RegexTerm> operands, RegexTerm identity) {
+        if (operands.isEmpty()) return identity;
+        if (operands.size() == 1) return operands.first();
+        return new RegexTerm(kind, null, List.copyOf(operands));
+    }
+
+    private boolean computeNullable() {
+        switch (kind) {
+            case NOTHING:
+            case CHARS:
+                return false;
+            case EPSILON:
+            case STAR:
+                return true;
+            case CONCAT:
+                return children.get(0).nullable && children.get(1).nullable;
+            case OR:
+                for (RegexTerm child : children) {
+                    if (child.nullable) return true;
+                }
+                return false;
+            case AND:
+                for (RegexTerm child : children) {
+                    if (!child.nullable) return false;
+                }
+                return true;
+            case NOT:
+                return !children.get(0).nullable;
+            default:
+                throw new IllegalStateException("Unknown kind " + kind);
+        }
+    }
+
+    /**
+     * Returns the kind of this term.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the characters of a CHARS term, or null.
+     */
+    public CharSet getChars() {
+        return chars;
+    }
+
+    /**
+     * Returns the children: two for CONCAT, one for STAR and NOT, two or
+     * more (sorted) for OR and AND, none otherwise.
+     */
+    public List<RegexTerm> getChildren() {
+        return children;
+    }
+
+    /**
+     * Checks if the term matches the empty string.
+     */
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    /**
+     * Checks if the term contains a complement, i.e. may match characters
+     * that appear in none of its character sets.
+     */
+    public boolean hasComplement() {
+        return complement;
+    }
+
+    /**
+     * Adds the character sets of the term to a list.
+     */
+    public void collectCharSets(List<CharSet> sets) {
+        Deque<RegexTerm> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            RegexTerm term = pending.pop();
+            if (term.chars != null) sets.add(term.chars);
+            for (int i = term.children.size() - 1; i >= 0; i--) pending.push(term.children.get(i));
+        }
+    }
+
+    /**
+     * Orders terms by kind, then hash, then text, so that unions and
+     * intersections have one canonical operand order.
+     */
+    @Override
+    public int compareTo(RegexTerm other) {
+        if (this == other) return 0;
+        if (kind != other.kind) return kind.compareTo(other.kind);
+        if (hash != other.hash) return Integer.compare(hash, other.hash);
+        if (equals(other)) return 0;
+        return toString().compareTo(other.toString());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RegexTerm)) return false;
+        RegexTerm other = (RegexTerm) o;
+        if (!shallowEquals(other)) return false;
+        // Compare the children pairwise, in pairs pushed on a stack
+        Deque<RegexTerm> pending = new ArrayDeque<>();
+        pushChildren(pending, this, other);
+        while (!pending.isEmpty()) {
+            RegexTerm right = pending.pop();
+            RegexTerm left = pending.pop();
+            if (left == right) continue;
+            if (!left.shallowEquals(right)) return false;
+            pushChildren(pending, left, right);
+        }
+        return true;
+    }
+
+    private boolean shallowEquals(RegexTerm other) {
+        return hash == other.hash && kind == other.kind && Objects.equals(chars, other.chars)
+            && children.size() == other.children.size();
+    }
+
+    private static void pushChildren(Deque<RegexTerm> pending, RegexTerm left, RegexTerm right) {
+        for (int i = 0; i < left.children.size(); i++) {
+            pending.push(left.children.get(i));
+            pending.push(right.children.get(i));
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Returns the term in regex syntax, with {@code &} for intersection,
+     * {@code ~} for complement and {@code []} for the empty language.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        // Output still to write, next on top: literal text, or terms to print in a context
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(new Printing(this, 0));
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+            if (next instanceof Printing) {
+                Printing printing = (Printing) next;
+                printing.term.print(sb, pending, printing.context);
+            } else {
+                sb.append((String) next);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Prints the term, parenthesized if its precedence is below the
+     * context's (0 = union, 1 = intersection, 2 = concatenation, 3 = operand).
+     * Text before the children is written; the children and the text
+     * after them are pushed in reverse order.
+     */
+    private void print(StringBuilder sb, Deque<Object> pending, int context) {
+        int precedence = kind == Kind.OR ? 0 : kind == Kind.AND ? 1 : kind == Kind.CONCAT ? 2 : 3;
+        boolean parens = precedence < context || (kind == Kind.EPSILON && context == 3);
+        if (parens) {
+            sb.append('(');
+            pending.push(")");
+        }
+        switch (kind) {
+            case NOTHING:
+                sb.append("[]");
+                break;
+            case EPSILON:
+                break;
+            case CHARS:
+                sb.append(chars);
+                break;
+            case CONCAT:
+                pending.push(new Printing(children.get(1), 2));
+                pending.push(new Printing(children.get(0), 3));
+                break;
+            case OR:
+            case AND:
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    pending.push(new Printing(children.get(i), precedence + 1));
+                    if (i > 0) pending.push(kind == Kind.OR ? "|" : "&");
+                }
+                break;
+            case STAR:
+                pending.push("*");
+                pending.push(new Printing(children.get(0), 3));
+                break;
+            case NOT:
+                sb.append('~');
+                pending.push(new Printing(children.get(0), 3));
+                break;
+            default:
+                throw new IllegalStateException("Unknown kind " + kind);
+        }
+    }
+
+    /**
+     * A term waiting to be printed, with the precedence of its context.
+     */
+    private static final class Printing {
+        final RegexTerm term;
+        final int context;
+
+        Printing(RegexTerm term, int context) {
+            this.term = term;
+            this.context = context;
+        }
+    }
+}
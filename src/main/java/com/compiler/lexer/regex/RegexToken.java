@@ -0,0 +1,101 @@
+package com.compiler.lexer.regex;
+
+/**
+ * RegexToken
+ * ----------
+ * Lexical unit of a regular expression: either an operand (a set of
+ * characters, see {@link CharSet}) or one of the operators
+ * {@code | · * + ? ( )}, or a counted repetition {@code {m,n}} (operator
+ * {@code '{'} with its bounds). Produced by {@link ShuntingYard#tokenize(String)},
+ * so a bracket class or an escape is a single operand no matter how many
+ * characters it stands for.
+ */
+public final class RegexToken {
+    private final char operator; // 0 for operands
+    private final CharSet chars;
+    private final int min;
+    private final int max;
+
+    private RegexToken(char operator, CharSet chars, int min, int max) {
+        this.operator = operator;
+        this.chars = chars;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Creates an operand token.
+     */
+    public static RegexToken operand(CharSet chars) {
+        return new RegexToken((char) 0, chars, 0, 0);
+    }
+
+    /**
+     * Creates an operator (or parenthesis) token.
+     */
+    public static RegexToken operator(char operator) {
+        return new RegexToken(operator, null, 0, 0);
+    }
+
+    /**
+     * Creates a counted repetition {@code {min,max}}.
+     *
+     * @param min Minimum number of repetitions.
+     * @param max Maximum number of repetitions, or -1 if unbounded.
+     */
+    public static RegexToken repeat(int min, int max) {
+        if (min < 0 || (max >= 0 && max < min)) {
+            throw new IllegalArgumentException("Invalid repetition {" + min + "," + (max < 0 ? "" : max) + "}");
+        }
+        return new RegexToken('{', null, min, max);
+    }
+
+    /**
+     * Checks if this token is an operand.
+     */
+    public boolean isOperand() {
+        return chars != null;
+    }
+
+    /**
+     * Returns the operator character, or 0 for operands.
+     */
+    public char getOperator() {
+        return operator;
+    }
+
+    /**
+     * Returns the characters matched by an operand, or null for operators.
+     */
+    public CharSet getChars() {
+        return chars;
+    }
+
+    /**
+     * Returns the minimum count of a repetition.
+     */
+    public int getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the maximum count of a repetition, or -1 if unbounded.
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Checks if this token is the given operator.
+     */
+    public boolean is(char op) {
+        return chars == null && operator == op;
+    }
+
+    @Override
+    public String toString() {
+        if (chars != null) return chars.toString();
+        if (operator == '{') return "{" + min + (min == max ? "" : "," + (max < 0 ? "" : max)) + "}";
+        return String.valueOf(operator);
+    }
+}
@@ -1,5 +1,8 @@
 package com.compiler.lexer.regex;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Utility class for regular expression parsing using the Shunting Yard
  * algorithm.
@@ -7,9 +10,26 @@ package com.compiler.lexer.regex;
  * Provides methods to preprocess regular expressions by inserting explicit
  * concatenation operators, and to convert infix regular expressions to postfix
  * notation for easier parsing and NFA construction.
+ * <p>
+ * The String methods work on single characters. The {@link RegexToken}
+ * methods additionally understand:
+ * <ul>
+ *   <li>bracket classes {@code [abc]}, ranges {@code [a-z0-9]} and negation {@code [^"]};</li>
+ *   <li>{@code .} (any character except newline);</li>
+ *   <li>counted repetitions {@code {m}}, {@code {m,}} and {@code {m,n}} (a '{'
+ *       that does not start one is a literal);</li>
+ *   <li>escapes: {@code \n \t \r \f \0}, <code>&#92;uXXXX</code>, the classes {@code \d \w \s}
+ *       and their negations {@code \D \W \S}, and any escaped operator such as {@code \*}.</li>
+ * </ul>
  */
 public class ShuntingYard {
 
+    private static final CharSet DIGITS = CharSet.range('0', '9');
+    private static final CharSet WORD = CharSet.range('a', 'z').union(CharSet.range('A', 'Z'))
+        .union(DIGITS).union(CharSet.of('_'));
+    private static final CharSet SPACE = CharSet.range('\t', '\r').union(CharSet.of(' '));
+    private static final CharSet ANY_BUT_NEWLINE = CharSet.of('\n').complement();
+
     /**
      * Default constructor for ShuntingYard.
      */
@@ -115,4 +135,221 @@ public class ShuntingYard {
 
         return output.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Splits a regular expression into operands and operators, resolving
+     * bracket classes, escapes and {@code .} into character sets.
+     *
+     * @param regex Regular expression in infix notation.
+     * @return The tokens of the expression, without explicit concatenations.
+     * @throws IllegalArgumentException If a class or escape is malformed.
+     */
+    public static List<RegexToken> tokenize(String regex) {
+        List<RegexToken> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                int[] end = new int[1];
+                tokens.add(RegexToken.operand(parseEscape(regex, i, end)));
+                i = end[0];
+            } else if (c == '[') {
+                int[] end = new int[1];
+                tokens.add(RegexToken.operand(parseClass(regex, i, end)));
+                i = end[0];
+            } else if (c == '{' && parseRepetition(regex, i, tokens)) {
+                i = regex.indexOf('}', i) + 1;
+            } else if (c == '.') {
+                tokens.add(RegexToken.operand(ANY_BUT_NEWLINE));
+                i++;
+            } else if (isOperand(c)) {
+                tokens.add(RegexToken.operand(CharSet.of(c)));
+                i++;
+            } else {
+                tokens.add(RegexToken.operator(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Inserts explicit concatenation operators ('·') between tokens, with the
+     * same rules as {@link #insertConcatenationOperator(String)}.
+     *
+     * @param tokens Tokens of a regular expression.
+     * @return Tokens with explicit concatenation operators.
+     */
+    public static List<RegexToken> insertConcatenationOperator(List<RegexToken> tokens) {
+        List<RegexToken> output = new ArrayList<>(tokens.size() * 2);
+        for (int i = 0; i < tokens.size(); i++) {
+            RegexToken t1 = tokens.get(i);
+            output.add(t1);
+            if (i + 1 < tokens.size()) {
+                RegexToken t2 = tokens.get(i + 1);
+                if ((t1.isOperand() || t1.is(')') || t1.is('*') || t1.is('+') || t1.is('?') || t1.is('{'))
+                        && (t2.isOperand() || t2.is('('))) {
+                    output.add(RegexToken.operator('·'));
+                }
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Converts a regular expression to postfix tokens, understanding
+     * character classes and escapes (see {@link #tokenize(String)}).
+     *
+     * @param infixRegex Regular expression in infix notation.
+     * @return The expression as postfix tokens.
+     * @throws IllegalArgumentException If a class or escape is malformed.
+     */
+    public static List<RegexToken> toPostfixTokens(String infixRegex) {
+        List<RegexToken> regex = insertConcatenationOperator(tokenize(infixRegex));
+        List<RegexToken> output = new ArrayList<>(regex.size());
+        RegexToken[] stack = new RegexToken[regex.size()];
+        int top = -1;
+
+        for (RegexToken token : regex) {
+            if (token.isOperand()) {
+                output.add(token);
+            } else if (token.is('(')) {
+                stack[++top] = token;
+            } else if (token.is(')')) {
+                while (top >= 0 && !stack[top].is('(')) {
+                    output.add(stack[top--]);
+                }
+                if (top >= 0) {
+                    top--; // pop '('
+                }
+            } else { // operator
+                while (top >= 0 && !stack[top].is('(')
+                        && precedence(stack[top].getOperator()) >= precedence(token.getOperator())) {
+                    output.add(stack[top--]);
+                }
+                stack[++top] = token;
+            }
+        }
+        while (top >= 0) {
+            output.add(stack[top--]);
+        }
+        return output;
+    }
+
+    private static int precedence(char op) {
+        return (op == '*' || op == '+' || op == '?' || op == '{') ? 3
+             : (op == '·') ? 2
+             : (op == '|') ? 1
+             : 0;
+    }
+
+    /**
+     * Parses {@code {m}}, {@code {m,}} or {@code {m,n}} at {@code regex.charAt(start) == '{'}.
+     *
+     * @param tokens Receives the repetition token.
+     * @return False if the brace does not start a repetition (it is then a literal).
+     */
+    private static boolean parseRepetition(String regex, int start, List<RegexToken> tokens) {
+        int close = regex.indexOf('}', start);
+        if (close < 0) return false;
+        String body = regex.substring(start + 1, close);
+        if (!body.matches("\\d+(,\\d*)?")) return false;
+        try {
+            int comma = body.indexOf(',');
+            int min = Integer.parseInt(comma < 0 ? body : body.substring(0, comma));
+            int max = comma < 0 ? min : comma == body.length() - 1 ? -1 : Integer.parseInt(body.substring(comma + 1));
+            tokens.add(RegexToken.repeat(min, max));
+            return true;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Repetition count too large at position " + start + ": " + regex, e);
+        }
+    }
+
+    /**
+     * Parses a bracket class starting at {@code regex.charAt(start) == '['}.
+     * A ']' right after '[' or '[^' and a '-' at either end are literal.
+     *
+     * @param end Receives the index right after the closing ']'.
+     */
+    private static CharSet parseClass(String regex, int start, int[] end) {
+        int i = start + 1;
+        boolean negated = i < regex.length() && regex.charAt(i) == '^';
+        if (negated) i++;
+        CharSet set = CharSet.EMPTY;
+        boolean first = true;
+        while (true) {
+            if (i >= regex.length()) {
+                throw new IllegalArgumentException("Unterminated character class at position " + start + ": " + regex);
+            }
+            char c = regex.charAt(i);
+            if (c == ']' && !first) break;
+            first = false;
+
+            // One item: a character, an escape, or the start of a range
+            CharSet item;
+            int[] next = new int[1];
+            if (c == '\\') {
+                item = parseEscape(regex, i, next);
+            } else {
+                item = CharSet.of(c);
+                next[0] = i + 1;
+            }
+            i = next[0];
+            if (i + 1 < regex.length() && regex.charAt(i) == '-' && regex.charAt(i + 1) != ']') {
+                CharSet hi;
+                if (regex.charAt(i + 1) == '\\') {
+                    hi = parseEscape(regex, i + 1, next);
+                } else {
+                    hi = CharSet.of(regex.charAt(i + 1));
+                    next[0] = i + 2;
+                }
+                if (!item.isSingleChar() || !hi.isSingleChar() || item.getLo(0) > hi.getLo(0)) {
+                    throw new IllegalArgumentException("Invalid range in character class at position " + i + ": " + regex);
+                }
+                item = CharSet.range(item.getLo(0), hi.getLo(0));
+                i = next[0];
+            }
+            set = set.union(item);
+        }
+        end[0] = i + 1;
+        return negated ? set.complement() : set;
+    }
+
+    /**
+     * Parses an escape starting at {@code regex.charAt(start) == '\\'}.
+     *
+     * @param end Receives the index right after the escape.
+     */
+    private static CharSet parseEscape(String regex, int start, int[] end) {
+        if (start + 1 >= regex.length()) {
+            throw new IllegalArgumentException("Dangling escape at end of regex: " + regex);
+        }
+        char c = regex.charAt(start + 1);
+        end[0] = start + 2;
+        switch (c) {
+            case 'n': return CharSet.of('\n');
+            case 't': return CharSet.of('\t');
+            case 'r': return CharSet.of('\r');
+            case 'f': return CharSet.of('\f');
+            case '0': return CharSet.of('\0');
+            case 'd': return DIGITS;
+            case 'D': return DIGITS.complement();
+            case 'w': return WORD;
+            case 'W': return WORD.complement();
+            case 's': return SPACE;
+            case 'S': return SPACE.complement();
+            case 'u':
+                if (start + 6 > regex.length()) {
+                    throw new IllegalArgumentException("Invalid unicode escape at position " + start + ": " + regex);
+                }
+                try {
+                    end[0] = start + 6;
+                    return CharSet.of((char) Integer.parseInt(regex.substring(start + 2, start + 6), 16));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid unicode escape at position " + start + ": " + regex, e);
+                }
+            default:
+                return CharSet.of(c); // escaped operator or literal
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.compiler.lexer.AutomatonCache;
+import com.compiler.lexer.DfaSimulator;
+import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.dfa.PackedDfa;
+
+public class AutomatonCacheTest {
+    private static final Set<Character> ALPHABET = Set.of('i', 'f', 'x', '0', '1', ' ', '\n');
+
+    @Test
+    public void testRepeatedCompilationsHitTheCache() {
+        AutomatonCache cache = new AutomatonCache(2);
+        PackedDfa number = cache.compile("[0-9]+", "NUMBER");
+        assertSame(number, cache.compile("[0-9]+", "NUMBER"));
+        assertTrue(cache.matches("[0-9]+", "2026"));
+        assertFalse(cache.matches("[0-9]+", "20x"));
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses()); // token type is part of the key
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        AutomatonCache cache = new AutomatonCache(2);
+        PackedDfa number = cache.compile("[0-9]+", "NUMBER");
+        cache.compile("[0-9]+");
+        cache.compile("[0-9]+", "NUMBER");
+        cache.compile("x+");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertSame(number, cache.compile("[0-9]+", "NUMBER"));
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testFailedCompilationsAreNotCached() {
+        AutomatonCache cache = new AutomatonCache(2);
+        assertThrows(IllegalArgumentException.class, () -> cache.compile("a{1,100000}"));
+        assertThrows(IllegalArgumentException.class, () -> cache.compile("a{1,100000}"));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testEveryCallerGetsItsOwnDfa() {
+        AutomatonCache cache = new AutomatonCache(2);
+        DFA dfa = cache.getDfa("(i|f)+", "IDENTIFIER", ALPHABET);
+        DFA again = cache.getDfa("(i|f)+", "IDENTIFIER", Set.of('\n', ' ', '1', '0', 'x', 'f', 'i'));
+        assertEquals(1, cache.getHits());
+        assertNotSame(dfa, again);
+        assertNotSame(dfa.startState, again.startState);
+        assertEquals(dfa.allStates.size(), again.allStates.size());
+
+        // Changing one copy leaves the others intact
+        dfa.startState.addTransition('x', dfa.startState);
+        dfa.startState.setFinal(true);
+        DfaSimulator dfaSimulator = new DfaSimulator();
+        DFA fresh = cache.getDfa("(i|f)+", "IDENTIFIER", ALPHABET);
+        for (DFA copy : new DFA[] {again, fresh}) {
+            assertTrue(dfaSimulator.simulate(copy, "fif"));
+            assertFalse(dfaSimulator.simulate(copy, "x"));
+            assertFalse(dfaSimulator.simulate(copy, ""));
+            assertEquals("IDENTIFIER", dfaSimulator.recognizeToken(copy, "if").getType());
+        }
+        assertTrue(dfaSimulator.simulate(dfa, "x"));
+    }
+
+    @Test
+    public void testConcurrentLookupsShareOneCompilation() throws Exception {
+        AutomatonCache cache = new AutomatonCache(AutomatonCache.DEFAULT_CAPACITY);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<PackedDfa>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) results.add(pool.submit(() -> cache.compile("[a-z_][a-z0-9_]*")));
+            for (Future<PackedDfa> result : results) assertSame(results.get(0).get(), result.get());
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1, cache.getMisses());
+        assertEquals(15, cache.getHits());
+    }
+}
@@ -0,0 +1,94 @@
+package com.compiler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.compiler.lexer.BatchLexer;
+import com.compiler.lexer.LexerSpec;
+import com.compiler.lexer.Tokenizer;
+import com.compiler.lexer.dfa.PackedDfa;
+
+public class BatchLexerTest {
+    private static final PackedDfa TABLE = LexerSpec.builder()
+        .rule("KEYWORD", "if")
+        .rule("IDENTIFIER", "[ifx]+")
+        .rule("NUMBER", "[01]+")
+        .skip("WHITESPACE", "[ \n]+")
+        .build()
+        .compile();
+
+    /**
+     * Writes 20 files, the eighth with a character that starts no token,
+     * and adds a path that does not exist.
+     */
+    private static List<Path> writeFiles(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Path file = dir.resolve("f" + i + ".txt");
+            Files.writeString(file, i == 7 ? "if ?" : "if x" + i % 2 + " 10");
+            files.add(file);
+        }
+        files.add(dir.resolve("missing.txt"));
+        return files;
+    }
+
+    @Test
+    public void testLexAllReportsEveryFile(@TempDir Path dir) throws IOException {
+        List<Path> files = writeFiles(dir);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (BatchLexer lexer = new BatchLexer(TABLE, executor, 2)) {
+            List<BatchLexer.Result> results = lexer.lexAll(files);
+            assertEquals(files.size(), results.size());
+            Tokenizer tokenizer = new Tokenizer(TABLE);
+            for (BatchLexer.Result result : results) {
+                String name = result.getPath().getFileName().toString();
+                if (name.equals("f7.txt") || name.equals("missing.txt")) {
+                    assertFalse(result.isSuccess(), name);
+                    assertNull(result.getTokens());
+                } else {
+                    assertTrue(result.isSuccess(), name);
+                    assertEquals(tokenizer.tokenize(Files.readString(result.getPath())).toString(),
+                                 result.getTokens().toString());
+                    assertTrue(result.getLexNanos() >= 0 && result.getReadNanos() >= 0);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailingConsumerStopsTheBatch(@TempDir Path dir) throws IOException {
+        List<Path> files = writeFiles(dir);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (BatchLexer lexer = new BatchLexer(TABLE, executor, 2)) {
+            AtomicInteger delivered = new AtomicInteger();
+            IllegalStateException failure = assertThrows(IllegalStateException.class, () ->
+                lexer.lex(files, result -> {
+                    delivered.incrementAndGet();
+                    throw new IllegalStateException("consumer failed");
+                }));
+            assertEquals("consumer failed", failure.getMessage());
+            assertEquals(1, delivered.get());
+
+            // The lexer stays usable
+            assertEquals(files.size(), lexer.lexAll(files).size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
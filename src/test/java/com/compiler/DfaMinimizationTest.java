@@ -3,15 +3,21 @@ package com.compiler;
 import java.util.HashSet;
 import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
+import com.compiler.lexer.AlphabetPartition;
 import com.compiler.lexer.DfaMinimizer;
 import com.compiler.lexer.DfaSimulator;
+import com.compiler.lexer.HopcroftMinimizer;
 import com.compiler.lexer.NfaToDfaConverter;
 import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.dfa.PackedDfa;
 import com.compiler.lexer.nfa.NFA;
+import com.compiler.lexer.nfa.State;
+import com.compiler.lexer.nfa.Transition;
 import com.compiler.lexer.regex.RegexParser;
 
 public class DfaMinimizationTest {
@@ -36,4 +42,113 @@ public class DfaMinimizationTest {
         assertFalse(dfaSimulator.simulate(minimized, "a"), "Minimized DFA should not accept 'a'");
         assertFalse(dfaSimulator.simulate(minimized, "d"), "Minimized DFA should not accept 'd'");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testHopcroftMinimization_abd() {
+        String regex = "a(b*|c+)?d";
+        NFA nfa = new RegexParser().parse(regex);
+        Set<Character> alphabet = Set.of('a', 'b', 'c', 'd');
+        DFA dfa = NfaToDfaConverter.convertNfaToDfa(nfa, alphabet);
+        DFA tableFilling = DfaMinimizer.minimizeDfa(dfa, alphabet);
+        DFA hopcroft = DfaMinimizer.minimizeDfa(dfa, alphabet, DfaMinimizer.Algorithm.HOPCROFT);
+        DfaSimulator dfaSimulator = new DfaSimulator();
+        assertEquals(tableFilling.allStates.size(), hopcroft.allStates.size(), "Both algorithms should find the same number of states");
+        for (String input : new String[] {"abd", "acd", "abbbd", "acccd", "ad", "a", "d", "abcd", ""}) {
+            assertEquals(dfaSimulator.simulate(dfa, input), dfaSimulator.simulate(hopcroft, input), "Hopcroft DFA disagrees on '" + input + "'");
+        }
+    }
+
+    @Test
+    public void testHopcroftKeepsTokenTypesApart() {
+        // "ab" and "cd" lead to equivalent final states unless token types are considered
+        State start = new State();
+        NFA first = new RegexParser("KEYWORD").parse("ab");
+        NFA second = new RegexParser("IDENTIFIER").parse("cd");
+        start.transitions.add(new Transition(null, first.startState));
+        start.transitions.add(new Transition(null, second.startState));
+        Set<Character> alphabet = Set.of('a', 'b', 'c', 'd');
+        DFA dfa = NfaToDfaConverter.convertNfaToDfa(new NFA(start, null), alphabet);
+
+        DFA hopcroft = HopcroftMinimizer.minimizeDfa(dfa, alphabet);
+        DfaSimulator dfaSimulator = new DfaSimulator();
+        assertEquals("KEYWORD", dfaSimulator.recognizeToken(hopcroft, "ab").getType());
+        assertEquals("IDENTIFIER", dfaSimulator.recognizeToken(hopcroft, "cd").getType());
+        assertEquals(5, hopcroft.allStates.size());
+
+        PackedDfa packed = HopcroftMinimizer.minimize(PackedDfa.compile(dfa));
+        assertEquals(5, packed.getStateCount());
+        assertEquals("KEYWORD", dfaSimulator.recognizeToken(packed, "ab").getType());
+        assertEquals("IDENTIFIER", dfaSimulator.recognizeToken(packed, "cd").getType());
+        assertFalse(dfaSimulator.simulate(packed, "ad"));
+    }
+
+    @Test
+    public void testAlphabetPartitionSplitsOverlappingRanges() {
+        // [a-f], [d-z] and [x]: a-c, d-f, g-w y-z and x are told apart by the ranges containing them
+        AlphabetPartition classes = AlphabetPartition.fromRanges(new char[] {'a', 'd', 'x'}, new char[] {'f', 'z', 'x'}, null);
+        assertEquals(4, classes.getClassCount());
+        assertEquals(classes.classOf('a'), classes.classOf('c'));
+        assertEquals(classes.classOf('d'), classes.classOf('f'));
+        assertEquals(classes.classOf('g'), classes.classOf('y'));
+        Set<Integer> distinct = Set.of(classes.classOf('a'), classes.classOf('d'), classes.classOf('g'), classes.classOf('x'));
+        assertEquals(4, distinct.size());
+        assertEquals("ghijklmnopqrstuvwyz", new String(classes.getMembers(classes.classOf('g'))));
+        assertEquals('g', classes.getRepresentative(classes.classOf('z')));
+        assertEquals('z', classes.getMaxChar());
+
+        // Characters outside every range have no class
+        assertEquals(AlphabetPartition.NO_CLASS, classes.classOf('0'));
+        assertEquals(AlphabetPartition.NO_CLASS, classes.classOf('`'));
+        assertEquals(AlphabetPartition.NO_CLASS, classes.classOf('{'));
+        assertEquals(AlphabetPartition.NO_CLASS, classes.classOf(Character.MAX_VALUE));
+
+        // Restricting to an alphabet drops the other characters and renumbers the classes
+        AlphabetPartition restricted = AlphabetPartition.fromRanges(new char[] {'a', 'd', 'x'}, new char[] {'f', 'z', 'x'},
+            Set.of('a', 'b', 'y', '0'));
+        assertEquals(2, restricted.getClassCount());
+        assertEquals(restricted.classOf('a'), restricted.classOf('b'));
+        assertEquals(AlphabetPartition.NO_CLASS, restricted.classOf('c'));
+        assertEquals(AlphabetPartition.NO_CLASS, restricted.classOf('0'));
+        assertEquals("y", new String(restricted.getMembers(restricted.classOf('y'))));
+    }
+
+    @Test
+    public void testAlphabetPartitionGroupsEquivalentCharacters() {
+        // In the NFA, a and c always move together; b also starts "bx"
+        NFA nfa = new RegexParser().parse("[a-c]y|bx");
+        AlphabetPartition nfaClasses = AlphabetPartition.fromNfa(nfa, null);
+        assertEquals(4, nfaClasses.getClassCount());
+        assertEquals(nfaClasses.classOf('a'), nfaClasses.classOf('c'));
+        assertTrue(nfaClasses.classOf('a') != nfaClasses.classOf('b'));
+        assertEquals(AlphabetPartition.NO_CLASS, nfaClasses.classOf('z'));
+
+        // In the DFA of (a|b)c, a and b lead to the same target in every state
+        Set<Character> alphabet = Set.of('a', 'b', 'c', 'd');
+        DFA dfa = NfaToDfaConverter.convertNfaToDfa(new RegexParser().parse("(a|b)c"), alphabet);
+        AlphabetPartition dfaClasses = AlphabetPartition.fromDfa(dfa, alphabet);
+        assertEquals(2, dfaClasses.getClassCount());
+        assertEquals(dfaClasses.classOf('a'), dfaClasses.classOf('b'));
+        assertTrue(dfaClasses.classOf('a') != dfaClasses.classOf('c'));
+        assertEquals(AlphabetPartition.NO_CLASS, dfaClasses.classOf('d'));
+    }
+
+    @Test
+    public void testPackedDfaReservesDeadClassZero() {
+        Set<Character> alphabet = Set.of('a', 'b', 'c');
+        DFA dfa = NfaToDfaConverter.convertNfaToDfa(new RegexParser().parse("(a|b)c"), alphabet);
+        PackedDfa packed = PackedDfa.compile(dfa);
+
+        // Class 0 is every character without a transition, and leads nowhere
+        assertEquals(3, packed.getClassCount());
+        assertEquals(0, packed.classOf('d'));
+        assertEquals(0, packed.classOf(Character.MAX_VALUE));
+        assertEquals(packed.classOf('a'), packed.classOf('b'));
+        assertTrue(packed.classOf('a') > 0 && packed.classOf('c') > 0 && packed.classOf('a') != packed.classOf('c'));
+        for (int s = 0; s < packed.getStateCount(); s++) {
+            assertEquals(PackedDfa.DEAD, packed.next(s, 'd'));
+        }
+        int afterA = packed.next(packed.getStartState(), 'a');
+        assertEquals(afterA, packed.next(packed.getStartState(), 'b'));
+        assertTrue(packed.isFinal(packed.next(afterA, 'c')));
+    }
+}
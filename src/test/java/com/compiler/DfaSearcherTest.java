@@ -0,0 +1,91 @@
+package com.compiler;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.compiler.lexer.AutomatonCache;
+import com.compiler.lexer.DfaSearcher;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.dfa.TransitionTable;
+
+public class DfaSearcherTest {
+    private static final String CHARS = "ERO 0123abxyz@ex.cominft\n";
+    private static final String MATCHES = "ERROR 42 joe@ex.com ab axb intx xababy zzz";
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+        // regex;            required prefix; required substring
+        "ERROR [0-9]+;       'ERROR ';        'ERROR '",
+        "[a-z]+@ex\\.com;    '';              @ex.com",
+        "[0-9]+;             '';              ''",
+        "a.b;                a;               a",
+        "(if|in)t?x;         i;               i",
+        "x(ab)*y|z{2,3};     '';              ''"
+    })
+    void testRequiredLiterals(String regex, String prefix, String substring) {
+        DfaSearcher searcher = new DfaSearcher(regex);
+        assertEquals(prefix, searcher.getRequiredPrefix());
+        assertEquals(substring, searcher.getRequiredSubstring());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ERROR [0-9]+", "[a-z]+@ex\\.com", "[0-9]+", "a.b", "(if|in)t?x", "x(ab)*y|z{2,3}"})
+    void testFindAllMatchesLeftmostLongest(String regex) {
+        DfaSearcher searcher = new DfaSearcher(regex);
+        PackedDfa table = AutomatonCache.shared().compile(regex);
+        Random random = new Random(23);
+        for (int trial = 0; trial < 20; trial++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 300; i++) text.append(CHARS.charAt(random.nextInt(CHARS.length())));
+            if (trial % 2 == 0) text.insert(random.nextInt(text.length()), MATCHES);
+
+            // On a String (indexOf) and on a StringBuilder (Horspool)
+            String expected = bruteForce(table, text);
+            for (CharSequence input : new CharSequence[] {text.toString(), text}) {
+                StringBuilder actual = new StringBuilder();
+                for (DfaSearcher.Match match : searcher.findAll(input)) {
+                    actual.append(match.getStart()).append('-').append(match.getEnd()).append(' ');
+                }
+                assertEquals(expected, actual.toString(), regex + " in " + text);
+            }
+        }
+    }
+
+    /**
+     * Runs the DFA from every start, left to right, and lists the longest matches.
+     */
+    private static String bruteForce(PackedDfa table, CharSequence text) {
+        StringBuilder matches = new StringBuilder();
+        for (int start = 0; start < text.length(); ) {
+            int state = table.getStartState();
+            int end = -1;
+            for (int pos = start; pos < text.length(); pos++) {
+                state = table.next(state, text.charAt(pos));
+                if (state == TransitionTable.DEAD) break;
+                if (table.isFinal(state)) end = pos + 1;
+            }
+            if (end < 0) {
+                start++;
+            } else {
+                matches.append(start).append('-').append(end).append(' ');
+                start = end;
+            }
+        }
+        return matches.toString();
+    }
+
+    @Test
+    void testFindFromPosition() {
+        DfaSearcher emails = new DfaSearcher("[a-z]+@ex\\.com");
+        String log = "from joe@ex.com to ann@ex.org";
+        assertEquals("joe@ex.com", emails.find(log, 0).getText(log));
+        assertEquals("oe@ex.com", emails.find(log, 6).getText(log));
+        assertNull(emails.find(log, 16));
+    }
+}
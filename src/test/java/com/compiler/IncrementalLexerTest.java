@@ -0,0 +1,130 @@
+package com.compiler;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.compiler.lexer.IncrementalLexer;
+import com.compiler.lexer.LexerSpec;
+import com.compiler.lexer.TokenStream;
+import com.compiler.lexer.Tokenizer;
+import com.compiler.lexer.dfa.PackedDfa;
+
+public class IncrementalLexerTest {
+    private static final PackedDfa TABLE = LexerSpec.builder()
+        .keywords("KEYWORD", "NAME", "if", "int")
+        .rule("NAME", "[a-z_][a-z0-9_]*")
+        .rule("NUMBER", "[0-9]+(\\.[0-9]+)?")
+        .skip("COMMENT", "/\\*([^*]|\\*+[^*/])*\\*+/")
+        .rule("OP", "[-+*/=;.]")
+        .skip("BLANK", "\\s+")
+        .build()
+        .compile();
+
+    private static final String LINE = "int x1 = 2.5; /* note */ if a = x1;\n";
+
+    @Test
+    public void testRandomEditsMatchFullTokenizer() {
+        Tokenizer tokenizer = new Tokenizer(TABLE);
+        Random random = new Random(25);
+        String[] pieces = {"a", "if", "x1", " ", "\n", "/*", "*/", "*", "/", "1", ".", "2", "=", ";", "int"};
+
+        StringBuilder text = new StringBuilder();
+        IncrementalLexer lexer = new IncrementalLexer(TABLE, "");
+        for (int step = 0; step < 2000; step++) {
+            int offset = random.nextInt(text.length() + 1);
+            int removed = random.nextInt(4) == 0 ? random.nextInt(Math.min(5, text.length() - offset) + 1) : 0;
+            String inserted = removed > 0 && random.nextBoolean() ? "" : pieces[random.nextInt(pieces.length)];
+            text.replace(offset, offset + removed, inserted);
+            IncrementalLexer.Change change = lexer.edit(offset, removed, inserted);
+
+            String context = "step " + step + " " + change + " in '" + text + "'";
+            assertEquals(text.toString(), lexer.getText().toString(), context);
+            TokenStream expected = tokenizer.tokenizeToStream(text.toString());
+            TokenStream actual = lexer.toTokenStream();
+            assertEquals(expected.size(), actual.size(), context);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getType(i) + "@" + expected.getStart(i) + "-" + expected.getEnd(i),
+                    actual.getType(i) + "@" + actual.getStart(i) + "-" + actual.getEnd(i), context);
+            }
+            // Skipped tokens included, the tokens cover the text
+            for (int i = 0, end = 0; i < lexer.getTokenCount(); end = lexer.getEnd(i++)) {
+                assertEquals(end, lexer.getStart(i), context);
+            }
+        }
+    }
+
+    @Test
+    public void testKeystrokeRelexesOnlyNearbyTokens() {
+        IncrementalLexer lexer = new IncrementalLexer(TABLE, LINE.repeat(2000));
+        int middle = LINE.length() * 1000 + 4;
+        IncrementalLexer.Change change = lexer.edit(middle, 0, "y");
+        assertEquals("BLANK", lexer.getType(change.getFirstToken())); // its scan read the 'x'
+        assertEquals("yx1", lexer.getLexeme(lexer.tokenIndexAt(middle)));
+        assertTrue(change.getInsertedCount() <= 2 && change.getRemovedCount() <= 2, change.toString());
+    }
+
+    @Test
+    public void testOpeningCommentRelexesUpToItsEnd() {
+        IncrementalLexer lexer = new IncrementalLexer(TABLE, LINE.repeat(2000));
+        int middle = LINE.length() * 1000 + 4;
+        int tokens = lexer.getTokenCount();
+        IncrementalLexer.Change change = lexer.edit(middle - 4, 0, "/*");
+        assertEquals(middle - 5, change.getStart());
+        assertTrue(change.getEnd() < middle + LINE.length(), change.toString());
+
+        // Removing the opening again restores the tokens
+        lexer.edit(middle - 4, 2, "");
+        assertEquals(tokens, lexer.getTokenCount());
+    }
+
+    @Test
+    public void testEditOutsideTextIsRejected() {
+        IncrementalLexer lexer = new IncrementalLexer(TABLE, LINE);
+        assertThrows(IndexOutOfBoundsException.class, () -> lexer.edit(-1, 0, "x"));
+        assertThrows(IndexOutOfBoundsException.class, () -> lexer.edit(LINE.length() + 1, 0, "x"));
+        assertThrows(IndexOutOfBoundsException.class, () -> lexer.edit(LINE.length() - 1, 2, ""));
+    }
+
+    @Test
+    public void testCharacterStartingNoTokenBecomesUntypedToken() {
+        IncrementalLexer lexer = new IncrementalLexer(TABLE, "a ? b");
+        assertEquals(5, lexer.getTokenCount());
+        assertNull(lexer.getType(2));
+        lexer.edit(2, 1, "+");
+        assertEquals("OP", lexer.getType(2));
+    }
+
+    @Test
+    public void testEditsAfterLongReadAheadStayLocal() {
+        PackedDfa table = LexerSpec.builder()
+            .rule("NAME", "[a-z_][a-z0-9_]*")
+            .rule("NUMBER", "[0-9]+")
+            .skip("COMMENT", "/\\*([^*]|\\*+[^*/])*\\*+/")
+            .rule("OP", "[-+*/=;]")
+            .skip("BLANK", "\\s+")
+            .build()
+            .compile();
+        String line = "x1 = 2 + a;\n";
+        int lines = 2000;
+        IncrementalLexer lexer = new IncrementalLexer(table, line.repeat(lines));
+
+        // An unclosed comment at the top makes its scan read to the end of the text
+        lexer.edit(line.length(), 0, "/*");
+        assertEquals("OP", lexer.getType(lexer.tokenIndexAt(line.length())));
+        lexer.edit(line.length(), 2, "");
+
+        // Edits far below only touch the tokens of their line
+        int offset = line.length() * (lines - 10) + 1;
+        for (int i = 0; i < 200; i++) {
+            IncrementalLexer.Change change = i % 2 == 0 ? lexer.edit(offset, 0, "y") : lexer.edit(offset, 1, "");
+            assertTrue(change.getStart() >= offset - 2 && change.getRemovedCount() <= 3, change.toString());
+        }
+        TokenStream expected = new Tokenizer(table).tokenizeToStream(lexer.getText().toString());
+        assertEquals(expected.size(), lexer.toTokenStream().size());
+    }
+}
@@ -0,0 +1,124 @@
+package com.compiler;
+
+import java.util.List;
+import java.util.Random;
+
+import com.compiler.lexer.KeywordTable;
+import com.compiler.lexer.LexerSpec;
+import com.compiler.lexer.TokenStream;
+import com.compiler.lexer.Tokenizer;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.dfa.TransitionTable;
+
+/**
+ * Benchmark comparing the two keyword strategies of {@link LexerSpec}:
+ * keywords compiled into the DFA, and keywords looked up in a perfect hash after
+ * the DFA matched an identifier. For each strategy it prints the compile
+ * time, the number of DFA states and the tokenizing throughput on a
+ * generated Java-like source.
+ * <p>
+ * It lives with the tests so that it stays out of the artifact, and is
+ * not run by the test suite. Run it with
+ * {@code mvn test-compile} and
+ * {@code java -cp target/classes:target/test-classes com.compiler.KeywordBenchmark}.
+ */
+public class KeywordBenchmark {
+    private static final List<String> KEYWORDS = List.of(
+        "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+        "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+        "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+        "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp", "super",
+        "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while");
+
+    /**
+     * Default constructor for KeywordBenchmark.
+     */
+    public KeywordBenchmark() {}
+
+    /**
+     * Entry point for the benchmark.
+     *
+     * @param args Optional size of the generated input in characters (default 4,000,000).
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        String input = generateSource(size, new Random(42));
+        System.out.println("Input: " + input.length() + " characters, " + KEYWORDS.size() + " keywords\n");
+
+        TokenStream reference = null;
+        for (LexerSpec.KeywordStrategy strategy : LexerSpec.KeywordStrategy.values()) {
+            LexerSpec spec = spec(strategy);
+            long started = System.nanoTime();
+            TransitionTable table = spec.toTable();
+            long compileNanos = System.nanoTime() - started;
+            int states = table instanceof KeywordTable
+                ? ((KeywordTable) table).getStateCount()
+                : ((PackedDfa) table).getStateCount();
+
+            Tokenizer tokenizer = new Tokenizer(table);
+            TokenStream tokens = null;
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 7; run++) {
+                started = System.nanoTime();
+                tokens = tokenizer.tokenizeToStream(input);
+                best = Math.min(best, System.nanoTime() - started);
+            }
+            if (reference == null) {
+                reference = tokens;
+            } else if (!sameTokens(reference, tokens)) {
+                throw new IllegalStateException("Strategies produced different tokens");
+            }
+
+            System.out.println("--- " + strategy + " ---");
+            System.out.println("DFA states:   " + states);
+            System.out.printf("Compile time: %.1f ms%n", compileNanos / 1e6);
+            System.out.printf("Tokenize:     %.1f ms (%.1f MB/s, %d tokens)%n%n",
+                best / 1e6, input.length() / (best / 1e3), tokens.size());
+        }
+    }
+
+    /**
+     * Builds the Java-like specification with the given keyword strategy.
+     */
+    private static LexerSpec spec(LexerSpec.KeywordStrategy strategy) {
+        return LexerSpec.builder()
+            .keywords("KEYWORD", "IDENTIFIER", KEYWORDS)
+            .rule("IDENTIFIER", "[a-zA-Z_$][a-zA-Z0-9_$]*")
+            .rule("NUMBER", "[0-9]+(\\.[0-9]+)?")
+            .rule("OPERATOR", "[-+*/%=<>!&|^~?:]+")
+            .rule("PUNCTUATION", "[(){}\\[\\];,.]")
+            .skip("WHITESPACE", "\\s+")
+            .keywordStrategy(strategy)
+            .build();
+    }
+
+    /**
+     * Generates statements mixing keywords, identifiers (some sharing a
+     * prefix with a keyword), numbers and punctuation.
+     */
+    private static String generateSource(int size, Random random) {
+        String[] identifiers = {"index", "count", "value", "iffy", "classic", "returned", "format", "doubled", "x", "node"};
+        String[] operators = {"=", "+", "<=", "==", "&&", "-"};
+        StringBuilder sb = new StringBuilder(size + 64);
+        while (sb.length() < size) {
+            sb.append(KEYWORDS.get(random.nextInt(KEYWORDS.size()))).append(' ')
+              .append(identifiers[random.nextInt(identifiers.length)]).append(' ')
+              .append(operators[random.nextInt(operators.length)]).append(' ')
+              .append(random.nextInt(1000)).append(random.nextBoolean() ? ";\n" : ") {\n    ");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks if two token streams have the same types at the same positions.
+     */
+    private static boolean sameTokens(TokenStream a, TokenStream b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.getType(i).equals(b.getType(i)) || a.getStart(i) != b.getStart(i) || a.getEnd(i) != b.getEnd(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
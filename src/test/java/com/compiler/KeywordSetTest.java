@@ -0,0 +1,115 @@
+package com.compiler;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.compiler.lexer.DfaSimulator;
+import com.compiler.lexer.KeywordSet;
+import com.compiler.lexer.KeywordTable;
+import com.compiler.lexer.LexerSpec;
+import com.compiler.lexer.MappedFileTokenizer;
+import com.compiler.lexer.StreamingTokenizer;
+import com.compiler.lexer.Token;
+import com.compiler.lexer.Tokenizer;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.dfa.TransitionTable;
+
+public class KeywordSetTest {
+    private static final String INPUT = "if iffy els else\twhile while_ int in inx x1 = 42; if(x) año años";
+
+    private static LexerSpec spec(LexerSpec.KeywordStrategy strategy) {
+        return LexerSpec.builder()
+            .keywords("KEYWORD", "IDENTIFIER", "if", "else", "while", "int", "in", "año")
+            .rule("IDENTIFIER", "[a-zñ_][a-zñ0-9_]*")
+            .rule("NUMBER", "[0-9]+")
+            .rule("SYMBOL", "[=;()]")
+            .skip("WHITESPACE", "\\s+")
+            .keywordStrategy(strategy)
+            .build();
+    }
+
+    @Test
+    public void testLookupFindsWholeLexemesOnly() {
+        KeywordSet set = new KeywordSet("if", "in", "int", "else", "if", "+=");
+        assertEquals(5, set.size());
+        assertEquals(2, set.indexOf("x = int;", 4, 7));
+        assertEquals(1, set.indexOf("x = int;", 4, 6));
+        assertEquals(KeywordSet.NOT_FOUND, set.indexOf("x = int;", 3, 6));
+        assertTrue(set.contains("else"));
+        assertFalse(set.contains("els"));
+        assertFalse(set.contains("elsewhere"));
+    }
+
+    @Test
+    public void testToRegexEscapesSymbols() {
+        assertEquals("if|in|int|else|\\+\\=", new KeywordSet("if", "in", "int", "else", "+=").toRegex());
+    }
+
+    @ParameterizedTest
+    @EnumSource(LexerSpec.KeywordStrategy.class)
+    public void testStrategyClassifiesKeywords(LexerSpec.KeywordStrategy strategy) {
+        TransitionTable table = spec(strategy).toTable();
+        List<Token> tokens = new Tokenizer(table).tokenize(INPUT);
+        assertEquals("KEYWORD:if IDENTIFIER:iffy IDENTIFIER:els KEYWORD:else KEYWORD:while IDENTIFIER:while_ "
+            + "KEYWORD:int KEYWORD:in IDENTIFIER:inx IDENTIFIER:x1 SYMBOL:= NUMBER:42 SYMBOL:; KEYWORD:if SYMBOL:( "
+            + "IDENTIFIER:x SYMBOL:) KEYWORD:año IDENTIFIER:años",
+            tokens.stream().map(t -> t.getType() + ":" + t.getLexeme()).collect(Collectors.joining(" ")));
+        assertEquals("KEYWORD", new DfaSimulator().recognizeToken(table, "while").getType());
+        assertEquals("IDENTIFIER", new DfaSimulator().recognizeToken(table, "whilex").getType());
+    }
+
+    @ParameterizedTest
+    @EnumSource(LexerSpec.KeywordStrategy.class)
+    public void testEveryTokenizerRefinesKeywords(LexerSpec.KeywordStrategy strategy) {
+        TransitionTable table = spec(strategy).toTable();
+        List<Token> tokens = new Tokenizer(table).tokenize(INPUT);
+        List<Token> streamed = new StreamingTokenizer(table, new StringReader(INPUT), 4).stream().collect(Collectors.toList());
+        List<Token> mapped = new MappedFileTokenizer(table).tokenize(ByteBuffer.wrap(INPUT.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(tokens.toString(), streamed.toString());
+        assertEquals(tokens.stream().map(Token::getType).collect(Collectors.toList()),
+            mapped.stream().map(Token::getType).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testPostCheckAddsNoStates() {
+        PackedDfa inDfa = (PackedDfa) spec(LexerSpec.KeywordStrategy.IN_DFA).toTable();
+        KeywordTable postCheck = (KeywordTable) spec(LexerSpec.KeywordStrategy.POST_CHECK).toTable();
+        assertTrue(postCheck.getStateCount() < inDfa.getStateCount(),
+            postCheck.getStateCount() + " states, " + inDfa.getStateCount() + " in the DFA");
+    }
+
+    @Test
+    public void testKeywordsMustBeIdentifiersDeclaredFirst() {
+        assertThrows(IllegalArgumentException.class, () -> LexerSpec.builder()
+            .keywords("KEYWORD", "IDENTIFIER", "if", "+=")
+            .rule("IDENTIFIER", "[a-z]+")
+            .build());
+        assertThrows(IllegalArgumentException.class, () -> LexerSpec.builder()
+            .rule("IDENTIFIER", "[a-z]+")
+            .keywords("KEYWORD", "IDENTIFIER", "if")
+            .build());
+    }
+
+    @Test
+    public void testRuleShadowingKeywordsIsRejected() {
+        // A rule in between would take the keyword before the post-check sees it
+        LexerSpec shadowed = LexerSpec.builder()
+            .keywords("KEYWORD", "IDENTIFIER", "true")
+            .rule("BOOLEAN", "true|false")
+            .rule("IDENTIFIER", "[a-z]+")
+            .keywordStrategy(LexerSpec.KeywordStrategy.POST_CHECK)
+            .build();
+        assertThrows(IllegalArgumentException.class, shadowed::toTable);
+    }
+}
@@ -0,0 +1,89 @@
+package com.compiler;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.compiler.lexer.NfaToDfaConverter;
+import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.dfa.DfaState;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.nfa.FlatNfa;
+import com.compiler.lexer.nfa.NFA;
+import com.compiler.lexer.nfa.State;
+import com.compiler.lexer.nfa.Transition;
+
+public class NfaToDfaConverterTest {
+    private static final Set<Character> ALPHABET = Set.of('x', 'y', 'z', 'q');
+
+    private State target;
+    private State other;
+
+    /**
+     * Builds an NFA whose start state reaches states 1..70 (dense IDs in
+     * transition order): on x the subset {1, 62}, on y {2, 31}, whose
+     * hashes collide, and on z the others. Both x and y subsets reach the
+     * same subset on q, through their transitions in opposite orders.
+     */
+    private NFA buildNfa() {
+        State start = new State();
+        State[] states = new State[71];
+        for (int i = 1; i <= 70; i++) {
+            states[i] = new State();
+            char symbol = i == 1 || i == 62 ? 'x' : i == 2 || i == 31 ? 'y' : 'z';
+            start.transitions.add(new Transition(symbol, states[i]));
+        }
+        target = new State();
+        target.isFinal = true;
+        other = new State();
+        states[1].transitions.add(new Transition('q', target));
+        states[62].transitions.add(new Transition('q', other));
+        states[2].transitions.add(new Transition('q', other));
+        states[31].transitions.add(new Transition('q', target));
+        return new NFA(start, target);
+    }
+
+    @Test
+    public void testCollidingSubsetsStayApart() {
+        NFA nfa = buildNfa();
+        FlatNfa flat = nfa.flatten();
+        assertEquals(71, flat.indexOf(target));
+        assertEquals(Arrays.hashCode(new int[] {1, 62}), Arrays.hashCode(new int[] {2, 31}));
+
+        DFA dfa = NfaToDfaConverter.convertNfaToDfa(nfa, ALPHABET);
+        DfaState onX = dfa.startState.getTransitions().get('x');
+        DfaState onY = dfa.startState.getTransitions().get('y');
+        assertNotEquals(onX.getNfaStates(), onY.getNfaStates());
+        assertTrue(onX != onY);
+
+        PackedDfa packed = NfaToDfaConverter.convertToPacked(nfa);
+        int start = packed.getStartState();
+        assertNotEquals(packed.next(start, 'x'), packed.next(start, 'y'));
+    }
+
+    @Test
+    public void testEqualSubsetsShareOneState() {
+        NFA nfa = buildNfa();
+
+        // {start}, {1, 62}, {2, 31}, the z subset and {target, other}
+        DFA dfa = NfaToDfaConverter.convertNfaToDfa(nfa, ALPHABET);
+        assertEquals(5, dfa.allStates.size());
+        DfaState fromX = dfa.startState.getTransitions().get('x').getTransitions().get('q');
+        DfaState fromY = dfa.startState.getTransitions().get('y').getTransitions().get('q');
+        assertSame(fromX, fromY);
+        assertEquals(Set.of(target, other), fromX.getNfaStates());
+        assertTrue(fromX.isFinal);
+
+        PackedDfa packed = NfaToDfaConverter.convertToPacked(nfa);
+        assertEquals(5, packed.getStateCount());
+        int start = packed.getStartState();
+        int packedFromX = packed.next(packed.next(start, 'x'), 'q');
+        assertEquals(packedFromX, packed.next(packed.next(start, 'y'), 'q'));
+        assertTrue(packed.isFinal(packedFromX));
+    }
+}
@@ -0,0 +1,140 @@
+package com.compiler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.compiler.lexer.LexerSpec;
+import com.compiler.lexer.Tokenizer;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.dfa.PackedDfaFile;
+
+public class PackedDfaFileTest {
+    // Offset of the state count, after the magic, the version and the hash
+    private static final int STATE_COUNT_OFFSET = 40;
+
+    private static PackedDfa buildTable() {
+        return LexerSpec.builder()
+            .rule("IF", "if")
+            .rule("NAME", "[a-z]+")
+            .skip("BLANK", " +")
+            .build()
+            .compile();
+    }
+
+    /**
+     * Loads a table through the cache file, counting the builds.
+     */
+    private static PackedDfa load(Path file, String spec, PackedDfa table, AtomicInteger builds) throws IOException {
+        return PackedDfaFile.loadOrBuild(file, spec, () -> {
+            builds.incrementAndGet();
+            return table;
+        });
+    }
+
+    @Test
+    public void testLoadOrBuildWritesThenLoads(@TempDir Path dir) throws IOException {
+        PackedDfa table = buildTable();
+        Path file = dir.resolve("lexer.pdfa");
+        AtomicInteger builds = new AtomicInteger();
+        PackedDfa built = load(file, "spec-v1", table, builds);
+        PackedDfa loaded = load(file, "spec-v1", table, builds);
+        assertEquals(1, builds.get());
+        assertSame(table, built);
+        assertNotSame(table, loaded);
+        assertEquals(table.getStateCount(), loaded.getStateCount());
+        String input = "if iffy x  if";
+        assertEquals(new Tokenizer(table).tokenize(input).toString(), new Tokenizer(loaded).tokenize(input).toString());
+    }
+
+    @Test
+    public void testChangedSpecificationIsRebuilt(@TempDir Path dir) throws IOException {
+        PackedDfa table = buildTable();
+        Path file = dir.resolve("lexer.pdfa");
+        AtomicInteger builds = new AtomicInteger();
+        load(file, "spec-v1", table, builds);
+        load(file, "spec-v2", table, builds);
+        assertEquals(2, builds.get());
+        assertNull(PackedDfaFile.read(file, PackedDfaFile.specHash("spec-v1")));
+        load(file, "spec-v2", table, builds);
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void testForeignFileIsRebuilt(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("lexer.pdfa");
+        Files.write(file, new byte[] {1, 2, 3});
+        assertThrows(IllegalArgumentException.class, () -> PackedDfaFile.read(file));
+        AtomicInteger builds = new AtomicInteger();
+        load(file, "spec", buildTable(), builds);
+        assertEquals(1, builds.get());
+        assertEquals(buildTable().getStateCount(), PackedDfaFile.read(file).getStateCount());
+    }
+
+    @Test
+    public void testRuleIdsAndSkipFlagsSurvive(@TempDir Path dir) throws IOException {
+        LexerSpec spec = LexerSpec.builder()
+            .rule("IF", "if")
+            .rule("NAME", "[a-z]+")
+            .skip("BLANK", " +")
+            .build();
+        Path specFile = dir.resolve("spec.pdfa");
+        PackedDfa cold = spec.compile(specFile);
+        PackedDfa warm = spec.compile(specFile);
+        assertNotSame(cold, warm);
+        assertEquals(3, warm.getTokenCount());
+        for (int id = 0; id < warm.getTokenCount(); id++) {
+            assertEquals(cold.getTokenById(id).getType(), warm.getTokenById(id).getType());
+            assertEquals(cold.getTokenById(id).getRule(), warm.getTokenById(id).getRule());
+            assertEquals(cold.getTokenById(id).isSkip(), warm.getTokenById(id).isSkip());
+            assertEquals(cold.isSkipToken(id), warm.isSkipToken(id));
+        }
+        assertTrue(warm.getTokenById(warm.getTokenId(warm.next(warm.getStartState(), ' '))).isSkip());
+    }
+
+    @Test
+    public void testCorruptCountsAreRejectedBeforeAllocating(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("lexer.pdfa");
+        PackedDfaFile.write(buildTable(), PackedDfaFile.specHash("spec"), file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        // A huge or negative state count with a valid hash
+        for (int count : new int[] {Integer.MAX_VALUE, 1 << 28, -1}) {
+            ByteBuffer corrupt = ByteBuffer.wrap(bytes.clone()).putInt(STATE_COUNT_OFFSET, count);
+            assertThrows(IllegalArgumentException.class, () -> PackedDfaFile.read(corrupt, null));
+        }
+
+        // A file cut anywhere after the header
+        for (int length = 64; length < bytes.length; length += 7) {
+            ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(bytes, length));
+            assertThrows(IllegalArgumentException.class, () -> PackedDfaFile.read(truncated, null));
+        }
+    }
+
+    @Test
+    public void testCorruptFileIsRebuilt(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("lexer.pdfa");
+        PackedDfa table = buildTable();
+        PackedDfaFile.write(table, PackedDfaFile.specHash("spec"), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, ByteBuffer.wrap(bytes).putInt(STATE_COUNT_OFFSET, Integer.MAX_VALUE).array());
+
+        AtomicInteger builds = new AtomicInteger();
+        PackedDfa loaded = load(file, "spec", table, builds);
+        assertSame(table, loaded);
+        assertEquals(1, builds.get());
+        assertEquals(table.getStateCount(), PackedDfaFile.read(file).getStateCount());
+    }
+}
@@ -1,17 +1,31 @@
 package com.compiler;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.IntStream;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import com.compiler.lexer.DerivativeDfaBuilder;
+import com.compiler.lexer.DfaSimulator;
+import com.compiler.lexer.DirectDfaBuilder;
 import com.compiler.lexer.NfaSimulator;
+import com.compiler.lexer.PikeVmSimulator;
 import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.nfa.FlatNfa;
 import com.compiler.lexer.nfa.NFA;
+import com.compiler.lexer.regex.RegexNode;
 import com.compiler.lexer.regex.RegexParser;
+import com.compiler.lexer.regex.RegexSimplifier;
+import com.compiler.lexer.regex.RegexTerm;
 
 public class RegexTest {
 
@@ -322,4 +336,226 @@ public class RegexTest {
     assertEquals(expected, actualNfa, "NFA fallo para la cadena: '" + input + "'");
      assertEquals(expected, actualDfa, "DFA fallo para la cadena: '" + input + "'");
     }
+
+    @ParameterizedTest
+    @CsvSource({
+        // regex,                      input,        expected
+        "'[a-zA-Z_][a-zA-Z0-9_]*',     _foo42,       true",
+        "'[a-zA-Z_][a-zA-Z0-9_]*',     9lives,       false",
+        "'[^0-9]+',                    abc,          true",
+        "'[^0-9]+',                    ab7,          false",
+        "'\\d+(\\.\\d+)?',             3.14,         true",
+        "'\\d+(\\.\\d+)?',             3.,           false",
+        "'a.c',                        a-c,          true",
+        "'a.c',                        ac,           false",
+        "'[]a-]+',                     ]-a,          true",
+        "'\\u00e9\\*',                 é*,           true",
+        "'\\w\\s\\W',                  'a é',        true",
+        "'\\w\\s\\W',                  'a b',        false",
+        "'[0-9]{1,3}',                 7,            true",
+        "'[0-9]{1,3}',                 123,          true",
+        "'[0-9]{1,3}',                 1234,         false",
+        "'[0-9]{1,3}',                 '',           false",
+        "'(ab){2}c',                   ababc,        true",
+        "'(ab){2}c',                   abc,          false",
+        "'a{2,}',                      aaaaa,        true",
+        "'a{2,}',                      a,            false",
+        "'x(a|b){0,2}',                x,            true",
+        "'x(a|b){0,2}',                xba,          true",
+        "'x(a|b){0,2}',                xbab,         false",
+        "'a{0}b',                      b,            true",
+        "'a{,2}',                      'a{,2}',      true"
+    })
+    void testCharacterClassesAndRepetitions(String regex, String input, boolean expected) {
+        NFA nfa = new RegexParser().parse(regex);
+        boolean actualNfa = new NfaSimulator().simulate(nfa, input);
+        boolean actualDfa = new com.compiler.lexer.DfaSimulator().simulate(
+            com.compiler.lexer.NfaToDfaConverter.convertToPacked(nfa), input);
+        assertEquals(expected, actualNfa, "NFA fallo para " + regex + " con: '" + input + "'");
+        assertEquals(expected, actualDfa, "DFA fallo para " + regex + " con: '" + input + "'");
+    }
+
+    @Test
+    void testRepetitionStateBudget() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new RegexParser(null, 1_000).parse("(a{100}){100}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> new RegexParser().parse("a{3,1}"));
+        new RegexParser(null, 1_000).parse("[0-9]{1,100}");
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+        // regex;             simplified
+        "a|a;                 a",
+        "(x*)*;               x*",
+        "a?*;                 a*",
+        "(a+)?;               a*",
+        "a|b|c|x;             [a-cx]",
+        "if|in|int;           i(f|nt?)",
+        "(ab|ac)d;            a[bc]d",
+        "a{1}b{0,1}c{0};      ab?",
+        "(a|b)*a(a|b)*;       [ab]*a[ab]*"
+    })
+    void testSimplification(String regex, String expected) {
+        RegexNode tree = RegexNode.parse(regex);
+        RegexNode simplified = RegexSimplifier.simplify(tree);
+        assertEquals(expected, simplified.toString());
+
+        // Same language on every short string over the regex characters
+        NFA reparsed = new RegexParser().parse(simplified.toString());
+        NfaSimulator nfaSimulator = new NfaSimulator();
+        String chars = "abcdfintx";
+        for (int length = 0; length <= 4; length++) {
+            int total = (int) Math.pow(chars.length(), length);
+            for (int code = 0; code < total; code++) {
+                StringBuilder input = new StringBuilder();
+                for (int i = 0, c = code; i < length; i++, c /= chars.length()) input.append(chars.charAt(c % chars.length()));
+                assertEquals(matchesUnsimplified(tree, input.toString()), nfaSimulator.simulate(reparsed, input.toString()),
+                    regex + " con: '" + input + "'");
+            }
+        }
+    }
+
+    private static boolean matchesUnsimplified(RegexNode tree, String input) {
+        return new NfaSimulator().simulate(new RegexParser().parse(tree), input);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+        "(a|b)*abb",
+        "if|in|int",
+        "a(b|c)*d?",
+        "[a-c]+|d{2,3}",
+        "(ab|a)*b?",
+        "a{0,2}(b|cd){2,}",
+        "(a?b?)*c",
+        "(ab|a)+b",
+        "[a-c]+d"
+    })
+    void testDirectConstruction(String regex) {
+        Set<Character> alphabet = Set.of('a', 'b', 'c', 'd', 'f', 'i', 'n', 't');
+        DFA direct = DirectDfaBuilder.build(regex, null, alphabet);
+        NFA nfa = new RegexParser().parse(regex);
+        DfaSimulator dfaSimulator = new DfaSimulator();
+        NfaSimulator nfaSimulator = new NfaSimulator();
+        String chars = "abcdint";
+        for (int length = 0; length <= 5; length++) {
+            int total = (int) Math.pow(chars.length(), length);
+            for (int code = 0; code < total; code++) {
+                StringBuilder input = new StringBuilder();
+                for (int i = 0, c = code; i < length; i++, c /= chars.length()) input.append(chars.charAt(c % chars.length()));
+                assertEquals(nfaSimulator.simulate(nfa, input.toString()), dfaSimulator.simulate(direct, input.toString()),
+                    regex + " con: '" + input + "'");
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        // input, plain, [a-d]+ & ~(ab|ba), ~(.*cd.*)
+        "'',     false, false, true",
+        "a,      true,  true,  true",
+        "ab,     true,  false, true",
+        "abc,    true,  true,  true",
+        "acd,    true,  true,  false",
+        "ba,     true,  false, true",
+        "dcdc,   true,  true,  false",
+        "bad,    true,  true,  true"
+    })
+    void testDerivativeConstruction(String input, boolean plain, boolean intersection, boolean complement) {
+        Set<Character> alphabet = Set.of('a', 'b', 'c', 'd');
+        RegexTerm word = RegexTerm.parse("[a-d]+");
+        DfaSimulator dfaSimulator = new DfaSimulator();
+
+        DFA dfa = new DerivativeDfaBuilder().rule("WORD", word).toDfa(alphabet);
+        assertEquals(plain, dfaSimulator.simulate(dfa, input));
+        dfa = new DerivativeDfaBuilder().rule("WORD", RegexTerm.and(word, RegexTerm.not(RegexTerm.parse("ab|ba")))).toDfa(alphabet);
+        assertEquals(intersection, dfaSimulator.simulate(dfa, input));
+        dfa = new DerivativeDfaBuilder().rule("FREE", RegexTerm.not(RegexTerm.parse(".*cd.*"))).toDfa(alphabet);
+        assertEquals(complement, dfaSimulator.simulate(dfa, input));
+
+        // Smart constructors: equivalent terms built differently are equal
+        assertEquals(RegexTerm.parse("(b|a)*"), RegexTerm.star(RegexTerm.parse("a|b|a")));
+        assertEquals(word, RegexTerm.not(RegexTerm.not(word)));
+        assertEquals(RegexTerm.nothing(), RegexTerm.and(word, RegexTerm.nothing()));
+    }
+
+    @Test
+    void testPikeVmLongestMatch() {
+        PikeVmSimulator abs = new PikeVmSimulator(finalNfa("ab*"));
+        assertEquals(5, abs.longestMatch("xabbbc", 1));
+        assertEquals(3, abs.longestMatch("xab", 1));
+        assertEquals(-1, abs.longestMatch("xabbbc", 0));
+        assertEquals(-1, abs.longestMatch("xab", 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> abs.longestMatch("xab", 4));
+
+        // A nullable regex reports the empty match at the start position
+        PikeVmSimulator as = new PikeVmSimulator(finalNfa("a*"));
+        assertEquals(0, as.longestMatch("bbb", 0));
+        assertEquals(3, as.longestMatch("bbb", 3));
+        assertEquals(3, as.longestMatch("baab", 1));
+
+        // Overlapping epsilon-closures: each state is added once per step
+        PikeVmSimulator overlapping = new PikeVmSimulator(finalNfa("(a|a|a|a|a|a)*b"));
+        assertEquals(7, overlapping.longestMatch("aaaaaabb", 0));
+        assertTrue(overlapping.matches("a".repeat(1000) + "b"));
+        assertFalse(overlapping.matches("a".repeat(1000)));
+    }
+
+    private static NFA finalNfa(String regex) {
+        NFA nfa = new RegexParser().parse(regex);
+        nfa.endState.isFinal = true;
+        return nfa;
+    }
+
+    @Test
+    void testPlusInsideConcatenation() {
+        // The end of the repeated part must not stay accepting inside a concatenation
+        NfaSimulator nfaSimulator = new NfaSimulator();
+        NFA nfa = finalNfa("a+b");
+        assertFalse(nfaSimulator.simulate(nfa, "a"));
+        assertFalse(nfaSimulator.simulate(nfa, "aa"));
+        assertTrue(nfaSimulator.simulate(nfa, "ab"));
+        assertTrue(nfaSimulator.simulate(nfa, "aaab"));
+        assertFalse(nfaSimulator.simulate(finalNfa("(ab)+c"), "ab"));
+        assertTrue(nfaSimulator.simulate(finalNfa("(ab)+c"), "ababc"));
+    }
+
+    @Test
+    void testNfaSimulatorKeepsNoStateBetweenCalls() {
+        NfaSimulator nfaSimulator = new NfaSimulator();
+        NFA letters = finalNfa("ab*");
+        NFA digits = finalNfa("(0|1)+");
+        for (int round = 0; round < 3; round++) {
+            assertTrue(nfaSimulator.simulate(letters, "abb"));
+            assertFalse(nfaSimulator.simulate(letters, "01"));
+            assertTrue(nfaSimulator.simulate(digits, "01"));
+            assertFalse(nfaSimulator.simulate(digits, "abb"));
+        }
+
+        // Every call runs on the one flat view cached by the NFA, from any thread
+        FlatNfa flat = letters.flatten();
+        assertTrue(IntStream.range(0, 1_000).parallel()
+            .allMatch(i -> nfaSimulator.simulate(letters, "a" + "b".repeat(i % 7))
+                && !nfaSimulator.simulate(digits, "a" + "b".repeat(i % 7))));
+        assertSame(flat, letters.flatten());
+    }
+
+    @Test
+    void testDerivativeRepetitionBudget() {
+        assertThrows(IllegalArgumentException.class, () -> RegexTerm.parse("a{1,100000}"));
+        assertThrows(IllegalArgumentException.class, () -> RegexTerm.parse("(ab|c){1,3000}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> new DerivativeDfaBuilder().rule("A", "a{1,100000}"));
+
+        // Within the budget, deeply nested terms are derived and printed without recursion
+        RegexTerm deep = RegexTerm.parse("a{1,9000}");
+        assertTrue(deep.toString().startsWith("a(|a(|a("));
+        assertEquals(deep, RegexTerm.parse("a{1,9000}"));
+        DFA dfa = new DerivativeDfaBuilder().rule("A", deep).toDfa(Set.of('a'));
+        DfaSimulator dfaSimulator = new DfaSimulator();
+        assertTrue(dfaSimulator.simulate(dfa, "a".repeat(9000)));
+        assertFalse(dfaSimulator.simulate(dfa, "a".repeat(9001)));
+    }
 }
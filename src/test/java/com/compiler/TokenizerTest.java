@@ -0,0 +1,352 @@
+package com.compiler;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.compiler.lexer.DerivativeDfaBuilder;
+import com.compiler.lexer.DfaMinimizer;
+import com.compiler.lexer.DfaSimulator;
+import com.compiler.lexer.DirectDfaBuilder;
+import com.compiler.lexer.LazyDfa;
+import com.compiler.lexer.LexerSpec;
+import com.compiler.lexer.MappedFileTokenizer;
+import com.compiler.lexer.MappedToken;
+import com.compiler.lexer.NfaToDfaConverter;
+import com.compiler.lexer.ParallelTokenizer;
+import com.compiler.lexer.StreamingTokenizer;
+import com.compiler.lexer.Token;
+import com.compiler.lexer.TokenStream;
+import com.compiler.lexer.Tokenizer;
+import com.compiler.lexer.dfa.CompiledDfa;
+import com.compiler.lexer.dfa.DFA;
+import com.compiler.lexer.dfa.DfaMatcher;
+import com.compiler.lexer.dfa.PackedDfa;
+import com.compiler.lexer.dfa.TransitionTable;
+import com.compiler.lexer.nfa.NFA;
+import com.compiler.lexer.nfa.State;
+import com.compiler.lexer.nfa.Transition;
+import com.compiler.lexer.regex.RegexParser;
+import com.compiler.lexer.regex.RegexTerm;
+
+public class TokenizerTest {
+    private static final Set<Character> ALPHABET = Set.of('i', 'f', 'x', '0', '1', ' ', '\n');
+
+    /**
+     * Builds an NFA recognizing keywords, identifiers, numbers and whitespace.
+     */
+    private static NFA buildLexerNfa() {
+        State start = new State();
+        String[][] rules = {
+            {"KEYWORD", "if"},
+            {"IDENTIFIER", "(i|f|x)(i|f|x)*"},
+            {"NUMBER", "(0|1)+"},
+            {"WHITESPACE", "( |\n)+"}
+        };
+        for (String[] rule : rules) {
+            NFA nfa = new RegexParser(rule[0]).parse(rule[1]);
+            start.transitions.add(new Transition(null, nfa.startState));
+        }
+        return new NFA(start, null);
+    }
+
+    private static DFA buildLexerDfa() {
+        return NfaToDfaConverter.convertNfaToDfa(buildLexerNfa(), ALPHABET);
+    }
+
+    @Test
+    public void testTokenizeLongestMatchAndPriority() {
+        List<Token> tokens = new Tokenizer(buildLexerDfa()).tokenize("if xi  10 iff i");
+
+        assertEquals(5, tokens.size());
+        assertEquals("KEYWORD", tokens.get(0).getType());
+        assertEquals("if", tokens.get(0).getLexeme());
+        assertEquals("IDENTIFIER", tokens.get(1).getType());
+        assertEquals("xi", tokens.get(1).getLexeme());
+        assertEquals(3, tokens.get(1).getPosition());
+        assertEquals("NUMBER", tokens.get(2).getType());
+        assertEquals("10", tokens.get(2).getLexeme());
+        assertEquals("IDENTIFIER", tokens.get(3).getType());
+        assertEquals("iff", tokens.get(3).getLexeme());
+        assertEquals("IDENTIFIER", tokens.get(4).getType());
+        assertEquals(14, tokens.get(4).getPosition());
+    }
+
+    @Test
+    public void testTokenizeRejectsUnknownCharacter() {
+        Tokenizer tokenizer = new Tokenizer(buildLexerDfa());
+        assertThrows(RuntimeException.class, () -> tokenizer.tokenize("if ?"));
+    }
+
+    @Test
+    public void testPackedDfaMatchesMinimizedDfa() {
+        DFA dfa = buildLexerDfa();
+        DFA minimized = DfaMinimizer.minimizeDfa(dfa, ALPHABET);
+        PackedDfa table = PackedDfa.compile(minimized);
+        DfaSimulator simulator = new DfaSimulator();
+
+        assertTrue(table.getClassCount() < ALPHABET.size() + 1, "Equivalent characters should share a class");
+        for (String input : new String[] {"if", "iff", "x", "101", "  ", "", "1x", "?"}) {
+            assertEquals(simulator.simulate(minimized, input), simulator.simulate(table, input),
+                "Packed DFA disagrees on '" + input + "'");
+        }
+        assertEquals("NUMBER", simulator.recognizeToken(table, "1101").getType());
+        assertNull(simulator.recognizeToken(table, "1x"));
+        assertFalse(simulator.simulate(table, "?"));
+    }
+
+    @Test
+    public void testLazyDfaMatchesEagerDfa() {
+        String input = "if xi  10 iff i 0 fix 11 if";
+        List<Token> expected = new Tokenizer(buildLexerDfa()).tokenize(input);
+
+        LazyDfa unbounded = new LazyDfa(buildLexerNfa());
+        List<Token> lazy = new Tokenizer(unbounded).tokenize(input);
+        assertEquals(expected.toString(), lazy.toString());
+
+        // A tiny cache forces flushes but must not change the result
+        LazyDfa bounded = new LazyDfa(buildLexerNfa(), 2);
+        List<Token> flushed = new Tokenizer(bounded).tokenize(input);
+        assertEquals(expected.toString(), flushed.toString());
+        assertTrue(bounded.getFlushCount() > 0, "The bounded cache should have been flushed");
+        assertTrue(bounded.getCachedStateCount() <= 2);
+
+        DfaSimulator simulator = new DfaSimulator();
+        assertEquals("KEYWORD", simulator.recognizeToken(bounded, "if").getType());
+        assertFalse(simulator.simulate(bounded, "1x"));
+    }
+
+    @Test
+    public void testStreamingTokenizerMatchesTokenizer() {
+        String input = "if xi  10 iff i 0 fix 11 if  1111111111 xxxxxxxxxxxxx i";
+        PackedDfa table = PackedDfa.compile(buildLexerDfa());
+        List<Token> expected = new Tokenizer(table).tokenize(input);
+
+        // A 3-char buffer forces refills and growth in the middle of lexemes
+        StreamingTokenizer streaming = new StreamingTokenizer(table, new StringReader(input), 3);
+        List<Token> streamed = streaming.stream().collect(Collectors.toList());
+        assertEquals(expected.toString(), streamed.toString());
+        assertTrue(streaming.getBufferCapacity() < input.length(), "Buffer should stay smaller than the input");
+
+        StreamingTokenizer failing = new StreamingTokenizer(table, new StringReader("if ?"), 2);
+        assertEquals("if", failing.next().getLexeme());
+        assertThrows(RuntimeException.class, failing::hasNext);
+    }
+
+    @Test
+    public void testMappedFileTokenizerMatchesTokenizer(@TempDir Path dir) throws IOException {
+        String input = "if xi  10 iff i 0 fix 11 if";
+        Path file = dir.resolve("input.txt");
+        Files.writeString(file, input);
+        PackedDfa table = PackedDfa.compile(buildLexerDfa());
+
+        List<Token> expected = new Tokenizer(table).tokenize(input);
+        List<Token> mapped = new MappedFileTokenizer(table).tokenize(file);
+        assertEquals(expected.toString(), mapped.toString());
+        assertEquals(2, ((MappedToken) mapped.get(1)).getLength());
+    }
+
+    @Test
+    public void testTokenStreamStoresTokensCompactly() {
+        String input = "if xi  10 iff";
+        TokenStream stream = new Tokenizer(buildLexerDfa()).tokenizeToStream(input);
+
+        assertEquals(4, stream.size());
+        assertEquals("NUMBER", stream.getType(2));
+        assertEquals(7, stream.getStart(2));
+        assertEquals(2, stream.getLength(2));
+        assertEquals("iff", stream.getLexeme(3));
+        assertEquals(stream.getTokenId(1), stream.getTokenId(3), "Same type should share one token ID");
+        assertEquals(new Tokenizer(buildLexerDfa()).tokenize(input).toString(), stream.asList().toString());
+    }
+
+    @Test
+    public void testParallelTokenizerMatchesSequential() {
+        PackedDfa table = PackedDfa.compile(buildLexerDfa());
+        Random random = new Random(42);
+        String[] pieces = {"if", "iff", "x", "fix", "0", "101", " ", "  ", "\n"};
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            input.append(pieces[random.nextInt(pieces.length)]);
+        }
+        String text = input.toString();
+        List<Token> expected = new Tokenizer(table).tokenize(text);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int chunkSize : new int[] {1, 7, 64, 1000}) {
+                List<Token> parallel = new ParallelTokenizer(table, pool, chunkSize).tokenize(text);
+                assertEquals(expected.toString(), parallel.toString(), "Chunk size " + chunkSize);
+            }
+            String invalid = text + "?" + text;
+            RuntimeException sequential = assertThrows(RuntimeException.class, () -> new Tokenizer(table).tokenize(invalid));
+            RuntimeException parallel = assertThrows(RuntimeException.class,
+                () -> new ParallelTokenizer(table, pool, 50).tokenize(invalid));
+            assertEquals(sequential.getMessage(), parallel.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLexerSpecResolvesConflictsByRuleOrder() {
+        LexerSpec spec = LexerSpec.builder()
+            .rule("IF", "if")
+            .rule("NAME", "(i|f|x)(i|f|x)*")
+            .rule("BITS", "(0|1)+")
+            .skip("BLANK", "( |\n)+")
+            .rule("ZERO", "0")
+            .build();
+        PackedDfa table = spec.compile();
+        String input = "if iff\n0 10 x";
+        String types = new Tokenizer(table).tokenize(input).stream()
+            .map(t -> t.getType() + ":" + t.getLexeme()).collect(Collectors.joining(" "));
+        assertEquals("IF:if NAME:iff BITS:0 BITS:10 NAME:x", types);
+
+        // Swapping two rules swaps the winner; the DFA path agrees with the packed one
+        LexerSpec swapped = LexerSpec.builder()
+            .rule("NAME", "(i|f|x)(i|f|x)*")
+            .rule("IF", "if")
+            .skip("BLANK", "( |\n)+")
+            .build();
+        Tokenizer tokenizer = new Tokenizer(swapped.toDfa(ALPHABET));
+        assertEquals("NAME", tokenizer.tokenize("if").get(0).getType());
+        assertEquals(new Tokenizer(swapped.compile()).tokenize(input.replaceAll("[01]", "x")).toString(),
+                     tokenizer.tokenize(input.replaceAll("[01]", "x")).toString());
+        assertThrows(IllegalArgumentException.class, () -> LexerSpec.builder().build());
+    }
+
+    @Test
+    public void testDirectConstructionMatchesSubsetConstruction() {
+        LexerSpec spec = LexerSpec.builder()
+            .rule("IF", "if")
+            .rule("NAME", "[a-z_][a-z0-9_]*")
+            .rule("NUMBER", "[0-9]+(\\.[0-9]+)?")
+            .rule("OP", "==|=|\\+|\\(|\\)")
+            .skip("BLANK", "\\s+")
+            .build();
+        String input = "if (x1 == 3.25) iff = y_2 + 10";
+        assertEquals(new Tokenizer(spec.compile()).tokenize(input).toString(),
+                     new Tokenizer(spec.compileDirect()).tokenize(input).toString());
+        assertEquals(spec.compile().getStateCount(), spec.compileDirect().getStateCount());
+
+        // Unminimized, the DFA over an alphabet recognizes the same tokens
+        Tokenizer tokenizer = new Tokenizer(DirectDfaBuilder.build(spec, ALPHABET));
+        assertEquals(new Tokenizer(spec.toDfa(ALPHABET)).tokenize("if iff\nx0 10").toString(),
+                     tokenizer.tokenize("if iff\nx0 10").toString());
+    }
+
+    @Test
+    public void testDerivativeConstruction() {
+        LexerSpec spec = LexerSpec.builder()
+            .rule("IF", "if")
+            .rule("NAME", "[a-z_][a-z0-9_]*")
+            .rule("NUMBER", "[0-9]+(\\.[0-9]+)?")
+            .rule("OP", "==|=|\\+|\\(|\\)")
+            .skip("BLANK", "\\s+")
+            .build();
+        String input = "if (x1 == 3.25) iff = y_2 + 10";
+        DerivativeDfaBuilder builder = DerivativeDfaBuilder.from(spec);
+        PackedDfa table = builder.toPacked();
+        assertEquals(new Tokenizer(spec.compile()).tokenize(input).toString(),
+                     new Tokenizer(table).tokenize(input).toString());
+        // Canonical terms already merge equivalent states: no minimization needed here
+        assertEquals(spec.compile().getStateCount(), table.getStateCount());
+        assertTrue(builder.getDerivativeCount() > 0);
+
+        // "Identifier but not keyword" as a single rule, independent of rule order
+        RegexTerm keyword = RegexTerm.parse("if|else");
+        DFA dfa = new DerivativeDfaBuilder()
+            .rule("IDENTIFIER", RegexTerm.and(RegexTerm.parse("[a-z]+"), RegexTerm.not(keyword)))
+            .rule("KEYWORD", keyword)
+            .skip("BLANK", RegexTerm.parse(" +"))
+            .toDfa(Set.of('i', 'f', 'e', 'l', 's', 'x', ' '));
+        String types = new Tokenizer(dfa).tokenize("if iff else elsex x").stream()
+            .map(t -> t.getType() + ":" + t.getLexeme()).collect(Collectors.joining(" "));
+        assertEquals("KEYWORD:if IDENTIFIER:iff KEYWORD:else IDENTIFIER:elsex IDENTIFIER:x", types);
+    }
+
+    @Test
+    public void testCompiledDfaMatchesTable() {
+        LexerSpec spec = LexerSpec.builder()
+            .rule("IF", "if")
+            .rule("NAME", "[a-zA-Z_][a-zA-Z0-9_]*")
+            .rule("NUMBER", "[0-9]+(\\.[0-9]+)?")
+            .rule("STRING", "\"[^\"\n]*\"")
+            .rule("OP", "==|=|\\+|\\(|\\)|;")
+            .skip("BLANK", "\\s+")
+            .build();
+        PackedDfa table = spec.compile();
+        CompiledDfa compiled = CompiledDfa.compile(table);
+        String input = "if (x1 == 3.25) iff = \"a é b\" + y_2;\n  z = 10;";
+        assertEquals(new Tokenizer(table).tokenize(input).toString(),
+                     new Tokenizer(compiled).tokenize(input).toString());
+
+        // Same longest match as the table at every position, including failures
+        Random random = new Random(21);
+        String chars = "if xyz_019.+=();\"\né#";
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) text.append(chars.charAt(random.nextInt(chars.length())));
+        for (int from = 0; from < text.length(); from++) {
+            int state = table.getStartState();
+            long expected = DfaMatcher.NO_MATCH;
+            for (int pos = from; pos < text.length(); pos++) {
+                state = table.next(state, text.charAt(pos));
+                if (state == TransitionTable.DEAD) break;
+                if (table.isFinal(state)) expected = DfaMatcher.result(pos + 1, table.getTokenId(state));
+            }
+            assertEquals(expected, compiled.match(text, from), "at " + from);
+        }
+
+        DfaSimulator simulator = new DfaSimulator();
+        assertEquals("NUMBER", simulator.recognizeToken(compiled, "3.25").getType());
+        assertNull(simulator.recognizeToken(compiled, "3."));
+        assertTrue(CompiledDfa.compileOrKeep(table) instanceof CompiledDfa);
+
+        // Too many states for one method: the table is kept
+        PackedDfa large = LexerSpec.builder().rule("A", "a{1,2000}").build().compile();
+        assertThrows(IllegalArgumentException.class, () -> CompiledDfa.compile(large));
+        assertTrue(CompiledDfa.compileOrKeep(large) == large);
+    }
+
+    @Test
+    public void testSelfLoopRunsAreSkipped() {
+        LexerSpec spec = LexerSpec.builder()
+            .rule("NAME", "[a-z_][a-z0-9_]*")
+            .rule("NUMBER", "[0-9]+")
+            .rule("OP", "=|;")
+            .skip("BLANK", "\\s+")
+            .skip("COMMENT", "//[^\n]*")
+            .build();
+        PackedDfa table = spec.compile();
+        int blank = table.next(table.getStartState(), ' ');
+        assertTrue(table.hasSelfLoop(blank));
+        assertFalse(table.hasSelfLoop(table.getStartState()));
+        assertEquals(9, table.skipSelfLoop(blank, "x      \t\ny", 1, 10));
+        assertEquals(5, table.skipSelfLoop(blank, "x      \t\ny", 1, 5));
+
+        // Same tokens as the character-by-character loop of the lazy DFA
+        StringBuilder input = new StringBuilder();
+        for (int line = 0; line < 50; line++) {
+            input.append(" ".repeat(line % 13)).append("x").append(line).append(" = ").append(line * 7)
+                 .append(";\t// comment ").append("é".repeat(line % 3)).append('\n');
+        }
+        input.append("       ");
+        String expected = new Tokenizer(new LazyDfa(spec.toNfa())).tokenize(input.toString()).toString();
+        assertEquals(expected, new Tokenizer(table).tokenize(input.toString()).toString());
+    }
+}